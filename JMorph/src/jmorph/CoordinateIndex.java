@@ -0,0 +1,99 @@
+package jmorph;
+
+import geometry.MyPoint2D;
+import geometry.MyPoint2DVector;
+import java.util.ArrayList;
+import java.util.function.IntPredicate;
+import jmorph.geometry.PointGrid;
+import jmorph.measurements.Measurement;
+
+/** A spatial index of the coordinates of all the measurements for a sample, used for hit-testing.
+ * The index is brought up to date by the refresh method: only measurements that have been replaced
+ * or whose version has changed since the last refresh are indexed again.
+ * @author Peter Lelievre
+ */
+public final class CoordinateIndex {
+
+    // ------------------ Properties -------------------
+
+    /** The width of the grid cells in sample image pixels. */
+    public static final double CELL_SIZE = 16.0;
+
+    private final PointGrid grid = new PointGrid(CELL_SIZE); // the coordinates, owned by the measurement indices
+    private final ArrayList<Measurement> indexed = new ArrayList<>(); // the measurement indexed for each measurement index
+    private final ArrayList<Long> versions = new ArrayList<>(); // the version of each measurement when it was indexed
+
+    // -------------------- Getters -------------------
+
+    /** Returns the number of coordinates in the index.
+     * @return The number of coordinates in the index.
+     */
+    public int size() { return grid.size(); }
+
+    // -------------------- Public Methods -------------------
+
+    /** Brings the index up to date with a measurement list.
+     * @param list The measurement list.
+     */
+    public void refresh(MeasurementVector list) {
+        int n = ( list==null ? 0 : list.size() );
+        // Remove any measurements no longer in the list:
+        for ( int i=indexed.size()-1 ; i>=n ; i-- ) {
+            grid.removeOwner(i);
+            indexed.remove(i);
+            versions.remove(i);
+        }
+        // Index any new or changed measurements:
+        for ( int i=0 ; i<n ; i++ ) {
+            Measurement m = list.get(i);
+            if ( i<indexed.size() && indexed.get(i)==m && versions.get(i)==m.getVersion() ) { continue; }
+            grid.removeOwner(i);
+            MyPoint2DVector coords = m.getCoordinates();
+            if (coords!=null) {
+                for ( int j=0 ; j<coords.size() ; j++ ) {
+                    MyPoint2D p = coords.get(j);
+                    grid.add(i,j,p.getX(),p.getY());
+                }
+            }
+            if (i<indexed.size()) {
+                indexed.set(i,m);
+                versions.set(i,m.getVersion());
+            } else {
+                indexed.add(m);
+                versions.add(m.getVersion());
+            }
+        }
+    }
+
+    /** Finds the measurement coordinate nearest a point, over all measurements.
+     * @param p The point in sample image pixel coordinates.
+     * @param maxDistance Only coordinates within this distance are considered (may be infinite).
+     * @return The nearest coordinate (the owner is the measurement index and the index is the coordinate index), or null if none.
+     */
+    public PointGrid.Entry nearest(MyPoint2D p, double maxDistance) {
+        return grid.nearest(p.getX(),p.getY(),-1,maxDistance);
+    }
+
+    /** Finds the measurement coordinate nearest a point, over the measurements accepted by a filter
+     * (e.g. only those that are displayed).
+     * @param p The point in sample image pixel coordinates.
+     * @param accept Returns true for the indices of the measurements to consider.
+     * @param maxDistance Only coordinates within this distance are considered (may be infinite).
+     * @return The nearest coordinate (the owner is the measurement index and the index is the coordinate index), or null if none.
+     */
+    public PointGrid.Entry nearest(MyPoint2D p, IntPredicate accept, double maxDistance) {
+        return grid.nearest(p.getX(),p.getY(),accept,maxDistance);
+    }
+
+    /** Finds the coordinate of a single measurement nearest a point.
+     * @param p The point in sample image pixel coordinates.
+     * @param measurementIndex The index of the measurement in the measurement list.
+     * @param maxDistance Only coordinates within this distance are considered (may be infinite).
+     * @return The nearest coordinate (the index is the coordinate index), or null if none.
+     */
+    public PointGrid.Entry nearest(MyPoint2D p, int measurementIndex, double maxDistance) {
+        if (measurementIndex<0) { return null; }
+        return grid.nearest(p.getX(),p.getY(),measurementIndex,maxDistance);
+    }
+
+}
@@ -23,6 +23,8 @@ public class InteractionManager {
     public void keyType(char c) { mouseManager.keyType(c); }
     public boolean measuringZoomBox() { return mouseManager.measuringZoomBox(); }
     public boolean shouldPaintMeasurement(Measurement m) { return mouseManager.shouldPaintMeasurement(m); }
+    public MyPoint2D previewPoint(Measurement m) { return mouseManager.previewPoint(m); }
+    public boolean isActiveMeasurement(Measurement m) { return mouseManager.isActive(m); }
     public void startMeasuring(Measurement m, int i, int mode) { mouseManager.startMeasuring(m,i,mode); }
     public boolean isMeasuring() { return mouseManager.isMeasuring(); }
     
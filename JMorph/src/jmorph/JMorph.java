@@ -1,15 +1,21 @@
 package jmorph;
 
+import dialogs.Dialogs;
 import fileio.PreviousSession;
 import geometry.MyPoint2D;
 import gui.JFrameExit;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.nio.file.Paths;
+import java.util.List;
+import jmorph.diagnostics.Timings;
 import jmorph.filters.SessionFilter;
+import jmorph.images.DisplayImage;
+import jmorph.images.ImageCache;
 import jmorph.measurements.Measurement;
 import jmorph.menutasks.ChangeCalibrationDistanceMenuTask;
 import jmorph.menutasks.ChangeSampleMenuTask;
@@ -28,7 +34,7 @@ public final class JMorph extends JFrameExit {
     private final ViewManager viewManager; // the GUI components
     private final InteractionManager interactionManager; // manages user interaction with the GUI
     
-    // File reading/loading options:
+    // File reading/loading options (presets for the image cache budget):
     public static final int READ_AND_STORE_ALL=0, READ_AND_STORE_AS=1, READ_AND_STORE_ONE=2;
     private int readAndStore = READ_AND_STORE_ALL;
     
@@ -51,6 +57,8 @@ public final class JMorph extends JFrameExit {
         fileIOManager.readPreviousSessionFile();
         // Display the about information:
         about();
+        // Make the timing counters available to JMX clients such as jconsole:
+        Timings.registerMBeans();
         // Make required objects:
         modelManager = new ModelManager();
         interactionManager = new InteractionManager(this);
@@ -102,6 +110,10 @@ public final class JMorph extends JFrameExit {
     
     // -------------------- Getters: --------------------
     
+    public ImageCache getImageCache() {
+        return Sample.getImageCache();
+    }
+    
     public boolean getReadAll() {
         return ( readAndStore == READ_AND_STORE_ALL );
     }
@@ -130,16 +142,37 @@ public final class JMorph extends JFrameExit {
     
     public void readAndStoreAll() {
         readAndStore = READ_AND_STORE_ALL;
+        getImageCache().setBudget(ImageCache.DEFAULT_BUDGET);
         checkClickableItemsEnabled();
     }
     public void readAndStoreAs()  {
         readAndStore = READ_AND_STORE_AS;
+        getImageCache().setBudget(ImageCache.DEFAULT_BUDGET);
         checkClickableItemsEnabled();
     }
     public void readAndStoreOne() {
         readAndStore = READ_AND_STORE_ONE;
+        getImageCache().setBudget(ImageCache.NO_BUDGET);
+        checkClickableItemsEnabled();
+    }
+    public void setImageCacheBudget(long b) {
+        // A custom budget reads images as needed unless all images are read at once:
+        if ( readAndStore == READ_AND_STORE_ONE ) { readAndStore = READ_AND_STORE_AS; }
+        getImageCache().setBudget(b);
         checkClickableItemsEnabled();
     }
+    public void imageCacheStatistics() {
+        Dialogs.inform(this,getImageCache().statisticsString(),"Image Cache Statistics");
+    }
+    public void displayStatistics() {
+        Dialogs.inform(this,viewManager.displayStatisticsString(),"Display Statistics");
+    }
+    public void timingStatistics() {
+        Dialogs.informScroll(this,Timings.statisticsString(),"Timing Statistics");
+    }
+    public void resetTimingStatistics() {
+        Timings.resetAll();
+    }
             
     // (below are all methods that start some sort of interaction with the SampleImagePanel)
     
@@ -202,12 +235,16 @@ public final class JMorph extends JFrameExit {
     public void selectAllOrder(String title){ interactionManager.selectAllOrder(title); }
     public boolean measuringZoomBox() { return interactionManager.measuringZoomBox(); }
     public boolean shouldPaintMeasurement(Measurement m) { return interactionManager.shouldPaintMeasurement(m); }
+    public MyPoint2D previewPoint(Measurement m) { return interactionManager.previewPoint(m); }
+    public boolean isActiveMeasurement(Measurement m) { return interactionManager.isActiveMeasurement(m); }
     public void startMeasuring(Measurement m, int i, int mode) { interactionManager.startMeasuring(m,i,mode); }
     public boolean isMeasuring() { return interactionManager.isMeasuring(); }
     
     // Wrappers for the ViewManager class:
     public void drawCurrentSample(boolean measuring) { viewManager.drawCurrentSample(measuring); }
+    public void drawActiveMeasurement(boolean measuring) { viewManager.drawActiveMeasurement(measuring); }
     public void redraw() { viewManager.redraw(); }
+    public void redrawActive() { viewManager.redrawActive(); }
     public void calculateTightFitTransform() { viewManager.calculateTightFitTransform(); }
     public void setSampleImagePanelCursor(Cursor cursor) { viewManager.setCursor(cursor); }
     public void requestFocusInSampleImagePanel() { viewManager.requestFocusInSampleImagePanel(); }
@@ -222,6 +259,8 @@ public final class JMorph extends JFrameExit {
     public boolean getDisplayFFTCoefficients(){ return viewManager.getDisplayFFTCoefficients(); }
     public boolean getDisplayInfoPanel() { return viewManager.getDisplayInfoPanel(); }
     public boolean getDisplayMeasurements() { return viewManager.getDisplayMeasurements(); }
+    public boolean getAdaptiveQuality() { return viewManager.getAdaptiveQuality(); }
+    public int getIdleDelay() { return viewManager.getIdleDelay(); }
     public int getLineWidth() { return viewManager.getLineWidth(); }
     public int getPointWidth() { return viewManager.getPointWidth(); }
     public void selectCalibrationColor() { viewManager.selectCalibrationColor(); }
@@ -230,9 +269,12 @@ public final class JMorph extends JFrameExit {
     public void setDisplayFFTCoefficients(boolean b) { viewManager.setDisplayFFTCoefficients(b); }
     public void setDisplayInfoPanel(boolean b) { viewManager.setDisplayInfoPanel(b); }
     public void setDisplayMeasurements(boolean b) { viewManager.setDisplayMeasurements(b); }
+    public void setAdaptiveQuality(boolean b) { viewManager.setAdaptiveQuality(b); }
+    public void setIdleDelay(int ms) { viewManager.setIdleDelay(ms); }
     public void toggleFFTCoefficients() { viewManager.toggleFFTCoefficients(); }
     public void toggleInformationPanel() { viewManager.toggleInformationPanel(); }
     public void toggleMeasurements() { viewManager.toggleMeasurements(); }
+    public void toggleAdaptiveQuality() { viewManager.toggleAdaptiveQuality(); }
     
     // Wrappers for the ViewManager and ModelManager classes:
     public void setCalibrationColor(Color col, boolean loading) {
@@ -290,7 +332,7 @@ public final class JMorph extends JFrameExit {
     public void clearSampleVector() { modelManager.clearSampleVector(); }
     public void clearSampleVectorFrom(int n) { modelManager.clearSampleVectorFrom(n); }
     public void clearSampleVectorTo(int n) { modelManager.clearSampleVectorTo(n); }
-    public boolean exportCSV(File file) { return modelManager.exportCSV(file); }
+    public boolean exportCSV(File file, boolean shapes) { return modelManager.exportCSV(file,shapes); }
     public double getCalibrationDistance() { return modelManager.getCalibrationDistance(); }
     public String getCalibrationDistanceString() { return modelManager.getCalibrationDistanceString(); }
     public int getCurrentSampleIndex() { return modelManager.getCurrentSampleIndex(); }
@@ -299,6 +341,8 @@ public final class JMorph extends JFrameExit {
     public Sample getSample(int i) { return modelManager.getSample(i); }
     public BufferedImage getCurrentSampleImage() { return modelManager.getCurrentSampleImage(); }
     public boolean hasSamples() { return modelManager.hasSamples(); }
+    public List<DisplayImage> getCurrentSampleDisplayImages(int subsampling, Rectangle region) { return modelManager.getCurrentSampleDisplayImages(subsampling,region); }
+    public Dimension getCurrentSampleImageSize() { return modelManager.getCurrentSampleImageSize(); }
     public boolean currentSampleImageExists() { return modelManager.currentSampleImageExists(); }
     public boolean currentSampleIsCalibrated() { return modelManager.currentSampleIsCalibrated(); }
     public boolean getCalibrationMarked() { return modelManager.getCalibrationMarked(); }
@@ -313,7 +357,7 @@ public final class JMorph extends JFrameExit {
     public void resetSampleVectorIDs() { modelManager.resetSampleVectorIDs(); }
     public String[] sampleVectorNameList() { return modelManager.sampleVectorNameList(); }
     public void setCalibrationDistance(double d, boolean doAll) { modelManager.setCalibrationDistance(d,doAll); }
-    public void setCurrentSampleIndex(int i) { modelManager.setCurrentSampleIndex(i,getReadOne()); }
+    public void setCurrentSampleIndex(int i) { modelManager.setCurrentSampleIndex(i); }
     public void splitCurrentSample(int n) { modelManager.splitCurrentSample(n); }
     public Measurement getMeasurement(int i) { return modelManager.getMeasurement(i); }
     public boolean hasMeasurements() { return modelManager.hasMeasurements(); }
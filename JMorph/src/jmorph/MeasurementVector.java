@@ -11,6 +11,13 @@ import java.util.*;
 import jmorph.measurements.*;
 
 /** A vector of measurements for use in JMorph and associated methods.
+ * A vector created using sharedCopy initially refers to the measurement objects in the original
+ * vector (the measurement definitions) instead of copying them. A measurement is only copied into
+ * the new vector when it is about to be changed, which must be done using getForEditing.
+ * A shared vector is kept index-aligned with the vector it was created from: measurements are only
+ * added to the end of both (see addShared) and removed from both at the same index
+ * (see ModelManager.removeMeasurement), and the shared vectors are replaced using sharedCopy whenever
+ * the original vector is read from a file. The sharing checks rely on this.
  * @author Peter Lelievre
  */
 public class MeasurementVector {
@@ -19,6 +26,7 @@ public class MeasurementVector {
 
     // Favour composition over inheritence!
     private ArrayList<Measurement> vector = new ArrayList<>();
+    private MeasurementVector definitions = null; // the vector that shared measurements belong to (null if none are shared)
 
     // ------------------ Constructor ------------------
 
@@ -45,6 +53,40 @@ public class MeasurementVector {
 
     }
 
+    /** Deep copies the object except that any measurements shared with another vector are not copied.
+     * @return A new object copied from this one.
+     */
+    @SuppressWarnings("AccessingNonPublicFieldOfAnotherObject")
+    public MeasurementVector deepCopyUnshared() {
+
+        // Create a new object:
+        MeasurementVector out = new MeasurementVector();
+        out.definitions = this.definitions;
+
+        // Deep copy over the measurement objects that are not shared:
+        for ( int i=0 ; i<this.size() ; i++ ) {
+            Measurement m = this.get(i);
+            if (!isShared(i)) { m = m.deepCopy(); }
+            out.add(m);
+        }
+
+        // Return the new object:
+        return out;
+
+    }
+
+    /** Creates a new vector that shares all the measurement objects in this vector.
+     * The measurement objects are copied into the new vector when required by the getForEditing method.
+     * @return A new object that shares the measurements in this one.
+     */
+    @SuppressWarnings("AccessingNonPublicFieldOfAnotherObject")
+    public MeasurementVector sharedCopy() {
+        MeasurementVector out = new MeasurementVector();
+        out.definitions = this;
+        out.vector.addAll(this.vector);
+        return out;
+    }
+
     // -------------------- Getters --------------------
 
     /** Getter for a measurement in the list.
@@ -55,6 +97,30 @@ public class MeasurementVector {
         return vector.get(i);
     }
 
+    /** Getter for a measurement in the list that is about to be changed (e.g. measured).
+     * If the measurement is shared with another vector then it is first replaced by a copy.
+     * @param i The index of the measurement.
+     * @return The specified measurement, which is not shared with any other vector.
+     */
+    public Measurement getForEditing(int i) {
+        if (isShared(i)) {
+            vector.set(i,vector.get(i).deepCopy());
+        }
+        return vector.get(i);
+    }
+
+    /** Checks if a measurement in the list is shared with another vector.
+     * This relies on the vectors being index-aligned (see the class documentation),
+     * so a shared measurement is the object at the same index in the vector this one was created from.
+     * @param i The index of the measurement.
+     * @return True if the measurement is shared.
+     */
+    public boolean isShared(int i) {
+        if (definitions==null) { return false; }
+        if (i>=definitions.size()) { return false; }
+        return ( vector.get(i) == definitions.get(i) );
+    }
+
     // -------------------- Static Methods --------------------
 
     /** Supplies the available measurement types in a String array.
@@ -232,6 +298,29 @@ public class MeasurementVector {
 
     }
 
+    /** Replaces a measurement in the list with the one it was copied from so that it is shared again,
+     * e.g. when a change to a measurement that was shared is abandoned.
+     * This relies on the vectors being index-aligned (see the class documentation).
+     * @param i The index of the measurement.
+     */
+    public void share(int i) {
+        if (definitions==null) { return; }
+        if (i>=definitions.size()) { return; }
+        vector.set(i,definitions.get(i));
+    }
+
+    /** Adds a measurement to the end of the list that is shared with the vector this one was created from.
+     * If this vector was not created using sharedCopy then a copy of the measurement is added instead.
+     * @param m The measurement to add, which should be the last measurement in the vector this one was created from.
+     */
+    public void addShared(Measurement m) {
+        if (definitions==null) {
+            add(m.deepCopy());
+        } else {
+            add(m);
+        }
+    }
+
     /** Returns an array of strings containing the names and type descriptions of the measurements.
      * Each array element is a string of the form "name (type)".
      * @return 
@@ -408,9 +497,10 @@ public class MeasurementVector {
 
     /** Returns a text string with the measurement names typeset within it,
      * separated by commas and with "Sample," at the start and no newline character(s).
+     * @param shapes Set to true to add the shape descriptor columns after those of each area, spline and outline measurement.
      * @return 
      */
-    public String headerForExportCSV() {
+    public String headerForExportCSV(boolean shapes) {
 
         if (size()==0) { return null; }
 
@@ -424,6 +514,9 @@ public class MeasurementVector {
 
             // Add the name of the measurement to the output, separating the names by commas:
             t = t + "," + m.nameForExportCSV();
+            if ( shapes && m instanceof AreaMeasurement ) {
+                t = t + "," + ((AreaMeasurement)m).shapeNameForExportCSV();
+            }
 
         }
         
@@ -435,9 +528,10 @@ public class MeasurementVector {
     /** Returns a text string with the measurement information typeset within it, separated by commas.
      * @param factor A factor for calibrating the measurements.
      * @param trans A transform for calibrating the measurements.
+     * @param shapes Set to true to add the shape descriptors after the values of each area, spline and outline measurement.
      * @return The text string for writing to a CSV file.
      */
-    public String writeMeasurementsCSV(double factor, AffineTransform trans) {
+    public String writeMeasurementsCSV(double factor, AffineTransform trans, boolean shapes) {
 
         if (size()==0) { return null; }
 
@@ -458,6 +552,9 @@ public class MeasurementVector {
             } else {
                 t += sfe;
             }
+            if ( shapes && m instanceof AreaMeasurement ) {
+                t += "," + ((AreaMeasurement)m).calculateShapeStringForExportCSV(factor);
+            }
 
             // Don't bother the the final comma on the last measurement:
             if ( i < size()-1 ) {
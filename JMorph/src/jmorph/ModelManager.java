@@ -1,12 +1,19 @@
 package jmorph;
 
 import dialogs.Dialogs;
-import gui.HasImage;
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.Dimension;
 import java.awt.Frame;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import jmorph.diagnostics.ExportEvent;
+import jmorph.diagnostics.Timings;
+import jmorph.images.DisplayImage;
+import jmorph.images.ImagePrefetcher;
 import jmorph.measurements.Measurement;
 import jmorph.measurements.OutlineMeasurement;
 import jmorph.measurements.SplineMeasurement;
@@ -27,6 +34,7 @@ public class ModelManager {
     // Main model components:
     private SampleVector sampleVector = new SampleVector(); // holds the samples (image files, measurements, etc.)
     private MeasurementVector measurementVector = new MeasurementVector(); // holds the measurements that the user is working with
+    private final ImagePrefetcher imagePrefetcher = new ImagePrefetcher(Sample.getImageCache()); // reads neighbouring sample images in the background
     
     // Getters that should be used sparingly by the controller:
     public void setSampleList(SampleVector s) { sampleVector = s; }
@@ -144,25 +152,40 @@ public class ModelManager {
         return Dialogs.selection(con,prompt,title,names,0);
     }
     
-    public void setCurrentSampleIndex(int i, boolean clearImage) {
-        // We may need to clear the current sample image before we change the current sample:
-        if (clearImage) {
-            // Check if the sample image for the old (existing) and new (after execution) current samples are different:
-            HasImage oldHasImage = sampleVector.getCurrentSample().getHasImage();
-            HasImage newHasImage = sampleVector.get(i).getHasImage();
-            if ( oldHasImage != newHasImage ) { // they are different
-                // Clear the image of the old current sample:
-                oldHasImage.clearImage();
-            }
-        }
-        // Set the current sample index:
+    public void setCurrentSampleIndex(int i) {
+        // Set the current sample index (the image cache takes care of releasing the old sample image):
         sampleVector.setCurrentSampleIndex(i);
+        Sample s = sampleVector.getCurrentSample();
+        if (s==null) { return; }
+        Sample.getImageCache().setCurrent(s.getFile());
+        // Start reading the neighbouring sample images in the background:
+        prefetchImages(i);
+    }
+    
+    /** Prefetches the images for the samples around a sample.
+     * The following samples are given priority over the preceding ones.
+     * @param i The index of the sample.
+     */
+    private void prefetchImages(int i) {
+        int n = sampleVector.size();
+        ArrayList<File> files = new ArrayList<>();
+        for ( int j=1 ; j<=imagePrefetcher.getNext() ; j++ ) {
+            if ( i+j>=n ) { break; }
+            File f = sampleVector.get(i+j).getFile();
+            if (!files.contains(f)) { files.add(f); }
+        }
+        for ( int j=1 ; j<=imagePrefetcher.getPrevious() ; j++ ) {
+            if ( i-j<0 ) { break; }
+            File f = sampleVector.get(i-j).getFile();
+            if (!files.contains(f)) { files.add(f); }
+        }
+        imagePrefetcher.prefetch(files);
     }
     
     // Wrappers for the SampleVector and MeasurementVector classes:
     public void addNewMeasurement(String typeString, String name) {
-        measurementVector.addNew(typeString,name);
-        sampleVector.addNewMeasurement(typeString,name);
+        if (!measurementVector.addNew(typeString,name)) { return; }
+        sampleVector.addNewMeasurement(measurementVector.get(measurementVector.size()-1));
     }
     public void markMeasurements(boolean b) {
         measurementVector.markMeasurements(b);
@@ -173,6 +196,7 @@ public class ModelManager {
         sampleVector.markMeasurement(i,b);
     }
     public void removeMeasurement(int i) {
+        // Remove from the sample measurement lists at the same index to keep them aligned for sharing:
         measurementVector.remove(i);
         sampleVector.removeMeasurement(i);
     }
@@ -191,11 +215,27 @@ public class ModelManager {
     
     // Wrappers for the SampleVector class:
     public void addSamplesFromFiles(Frame con, boolean readNow, String title, File[] files) { sampleVector.addSamplesFromFiles(con,readNow,title,files); }
-    public void clearSampleVector() { sampleVector.clear(); }
+    public void clearSampleVector() {
+        imagePrefetcher.cancel();
+        sampleVector.clear();
+    }
     public void clearSampleVectorFrom(int n) { sampleVector.clearFrom(n); }
     public void clearSampleVectorTo(int n) { sampleVector.clearTo(n); }
-    public boolean exportCSV(File file) { return sampleVector.exportCSV(file,measurementVector.headerForExportCSV()); }
-    public boolean exportOutlines(int index, File dir) { return sampleVector.exportOutlines(index,dir); }
+    public boolean exportCSV(File file, boolean shapes) {
+        long t0 = System.nanoTime();
+        ExportEvent event = new ExportEvent();
+        event.begin();
+        boolean ok = sampleVector.exportCSV(file,measurementVector.headerForExportCSV(shapes),shapes);
+        Timings.EXPORT_CSV.record(t0);
+        event.report("CSV",file,null,null,ok);
+        return ok;
+    }
+    public boolean exportOutlines(int index, File dir) {
+        long t0 = System.nanoTime();
+        boolean ok = sampleVector.exportOutlines(index,dir);
+        Timings.EXPORT_OUTLINES.record(t0);
+        return ok;
+    }
     public double getCalibrationDistance() { return getCurrentSample().getCalibrationDistance(); }
     public String getCalibrationDistanceString() { return getCurrentSample().calibrationDistanceString(); }
     public int getCurrentSampleIndex() { return sampleVector.getCurrentIndex(); }
@@ -209,7 +249,27 @@ public class ModelManager {
         return s.getImage();
     }
     public boolean hasSamples() { return ( numberOfSamples() != 0 ); }
-    public boolean currentSampleImageExists() { return ( getCurrentSampleImage() != null ); }
+    public List<DisplayImage> getCurrentSampleDisplayImages(int subsampling, Rectangle region) {
+        // Check there is a current sample:
+        Sample s = getCurrentSample();
+        if (s==null) { return new ArrayList<>(); } // no samples loaded or no current sample
+        // Get the image renditions:
+        return s.getDisplayImages(subsampling,region);
+    }
+    public Dimension getCurrentSampleImageSize() {
+        // Check there is a current sample:
+        Sample s = getCurrentSample();
+        if (s==null) { return null; } // no samples loaded or no current sample
+        // Get the image size:
+        return s.getImageSize();
+    }
+    public boolean currentSampleImageExists() {
+        // Check there is a current sample:
+        Sample s = getCurrentSample();
+        if (s==null) { return false; } // no samples loaded or no current sample
+        // Check the image can be read (without reading it at full resolution):
+        return s.imageExists();
+    }
     public boolean currentSampleIsCalibrated() { return ( getCurrentSample().isCalibrated() ); }
     public boolean getCalibrationMarked() { return sampleVector.getCalibrationMarked(); }
     public boolean getOriginMarked() { return sampleVector.getOriginMarked(); }
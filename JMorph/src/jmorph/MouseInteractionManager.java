@@ -4,6 +4,7 @@ import dialogs.Dialogs;
 import geometry.MyPoint2D;
 import geometry.MyPoint2DVector;
 import java.awt.Cursor;
+import jmorph.geometry.PointGrid;
 import jmorph.measurements.CalibrationMeasurement;
 import jmorph.measurements.Measurement;
 import jmorph.measurements.OriginMeasurement;
@@ -26,10 +27,17 @@ public final class MouseInteractionManager {
     public static final int CALIBRATION_INDEX = -2; /** specifies the Calibration measurement for a sample */
     public static final int ORIGIN_INDEX = -1; /** specifies the Origin measurement for a sample */
     
+    // Used with MOVE_COORDINATE_MODE to move whichever measurement coordinate is nearest the first click:
+    public static final int NEAREST_INDEX = -4; /** specifies the measurement with the coordinate nearest the first click */
+    
+    // Measurements that can take more coordinates than this are previewed while measuring rather than rebuilt on every mouse move:
+    private static final int PREVIEW_MIN_COORDINATES = 3;
+    
     private JMorph controller;
     private int measureMode = DUMMY_MODE_VALUE; // one of the measurement modes defined above
     private int measurementIndex = ZOOM_INDEX; // index of measurement being measured
     private Measurement measurement = null; // pointer to measurement object being measured
+    private Measurement sharedMeasurement = null; // the measurement object shared with other samples before it was changed (null if not shared)
     private MyPoint2DVector clickPoints = null; // a vector of clicked points
     private MyPoint2D currentPoint = null; // current cursor position
     private boolean clickPointEnabled = false; // set to true when user is measuring
@@ -43,8 +51,8 @@ public final class MouseInteractionManager {
     public boolean isMeasuring() { return clickPointEnabled; }
 
     /** Gets a bunch of user clicked points for use by a particular measurement.
-     * @param m The measurement to which the clicked points will apply.
-     * @param i The index of the measurement within its measurement list.
+     * @param m The measurement to which the clicked points will apply (null if i is NEAREST_INDEX).
+     * @param i The index of the measurement within its measurement list, or one of the special index values in this class.
      * @param mode One of the static measurement mode values in this class.
      */
     public void startMeasuring(Measurement m, int i, int mode) {
@@ -77,6 +85,12 @@ public final class MouseInteractionManager {
                     return;
                 }
                 break;
+            case NEAREST_INDEX:
+                if ( measureMode!=MOVE_COORDINATE_MODE ) {
+                    Dialogs.codeError(controller,"Nearest coordinate requested outside move coordinate mode in SampleImagePanel.startMeasuring");
+                    return;
+                }
+                break;
             default:
                 if ( (measurement instanceof ZoomMeasurement) ) {
                     Dialogs.codeError(controller,"Inconsistent zoom measurement encountered in SampleImagePanel.startMeasuring");
@@ -102,9 +116,12 @@ public final class MouseInteractionManager {
             response = InteractionDialogs.INSTRUCTIONS_SKIP_OPTION;
         } else {
             // Display the instructions:
-            String title = m.instructionTitle();
+            String title = ( m==null ? "Move the Nearest Coordinate" : m.instructionTitle() );
             String prompt;
-            if ( measureMode == MOVE_COORDINATE_MODE ) {
+            if ( measureMode == MOVE_COORDINATE_MODE && m==null ) {
+                prompt = "Fully click (button up, then down) on any measurement coordinate to move," + System.lineSeparator()
+                        + "then fully click where you want it moved to.";
+            } else if ( measureMode == MOVE_COORDINATE_MODE ) {
                 prompt = "Fully click (button up, then down) on the coordinate to move," + System.lineSeparator()
                         + "then fully click where you want it moved to.";
             } else {
@@ -135,15 +152,22 @@ public final class MouseInteractionManager {
         clickPoints = new MyPoint2DVector();
         moveCoordinateIndex = -1;
 
-        // Store the original measurement coordinates so we can go back if required:
-        originalCoordinates = measurement.getCoordinates().deepCopy();
+        // Note if the measurement is shared with other samples (it is only copied once it is changed):
+        sharedMeasurement = null;
+        if ( measurementIndex>=0 && controller.getCurrentSample().getMeasurementList().isShared(measurementIndex) ) {
+            sharedMeasurement = measurement;
+        }
+
+        // Store the original measurement coordinates so we can go back if required
+        // (when moving the nearest coordinate this is done once the measurement is known):
+        originalCoordinates = ( measurement==null ? null : measurement.getCoordinates().deepCopy() );
 
         // Disable the JMorph menu:
         //controller.disableClickableItems();
 
         // Clear the measurement and redraw the sample information, if necessary:
         if ( measureMode != MOVE_COORDINATE_MODE ) {
-            measurement.clear();
+            clearMeasurement();
             controller.drawCurrentSample(true);
         }
 
@@ -159,6 +183,9 @@ public final class MouseInteractionManager {
         // Disable the JMorph menu and tool bars:
         controller.checkClickableItemsEnabled();
 
+        // Repaint everything once so later changes only need to repaint the region the measurement covers:
+        controller.redraw();
+
     }
 
     /** Stops measuring and completes the current measurement. */
@@ -181,7 +208,7 @@ public final class MouseInteractionManager {
         if ( measureMode == MOVE_COORDINATE_MODE ) {
             if ( clickPoints.size() < 2 ) {
                 // Reset the original measurement coordinates and repaint:
-                measurement.setCoordinates(originalCoordinates);
+                if (measurement!=null) { restoreMeasurement(); }
                 controller.redraw();
                 // Display error dialog and return:
                 Dialogs.error(controller,
@@ -194,7 +221,7 @@ public final class MouseInteractionManager {
         } else {
             if ( clickPoints.size() < measurement.minNumberOfCoordinates() ) {
                 // Clear the measurement points and repaint:
-                measurement.clear();
+                clearMeasurement();
                 controller.redraw();
                 // Display error dialog and return:
                 Dialogs.error(controller,
@@ -209,7 +236,7 @@ public final class MouseInteractionManager {
         // Check that the points are good enough:
         if ( measureMode!=MOVE_COORDINATE_MODE && !measurement.checkCoordinates(clickPoints) ) {
             // Clear the measurement points and repaint:
-            measurement.clear();
+            clearMeasurement();
             controller.redraw();
             // Display error dialog and return:
             Dialogs.error(controller,
@@ -226,7 +253,7 @@ public final class MouseInteractionManager {
             if (controller.getDoCalibrationDistanceAuto()) {
                 if (!controller.changeCalibrationDistance()) {
                     // User cancelled so clear the measurement points and repaint:
-                    measurement.clear();
+                    clearMeasurement();
                     controller.redraw();
                     return;
                 }
@@ -237,7 +264,7 @@ public final class MouseInteractionManager {
         // Replace the measurement object coordinates with the clicked points:
         // (if moving a single coordinate point then this will already have been done by the mouse click moonitor)
         if ( measureMode != MOVE_COORDINATE_MODE ) {
-            measurement.setCoordinates(clickPoints.deepCopy());
+            measurementForEditing().setCoordinates(clickPoints.deepCopy());
         }
 
         // Redraw the sample information so that the measurement panel is altered:
@@ -256,6 +283,7 @@ public final class MouseInteractionManager {
     /** Cleans up some temporary working objects. */
     private void cleanUp() {
         measurement = null;
+        sharedMeasurement = null;
         clickPoints = null;
         currentPoint = null;
         originalCoordinates = null;
@@ -386,17 +414,22 @@ public final class MouseInteractionManager {
         if ( clickPointEnabled ) {
             // Store the clicked point:
             currentPoint = p;
-            // Add new clicked point to local record:
-            clickPoints.add(currentPoint);
             // If moving a point and it's the first mouse click then need to find the closest point:
             if ( measureMode==MOVE_COORDINATE_MODE && moveCoordinateIndex<0 ) {
-                // Find the closest measurement coordinate point to the clicked point:
-                moveCoordinateIndex = measurement.getCoordinates().findClosest(currentPoint);
+                if (!findCoordinateToMove()) { return; } // wait for a click that selects a coordinate
+            }
+            // Add new clicked point to local record:
+            clickPoints.add(currentPoint);
+            if (usePreview()) {
+                // Rebuild the measurement from the clicked points only (the cursor position is painted as a preview):
+                measurementForEditing().setCoordinates(clickPoints.deepCopy());
+                controller.drawActiveMeasurement(clickPointEnabled);
+            } else {
+                // Combine the clickPoints and the current point into a new vector object:
+                MyPoint2DVector tempPoints = makeTempPoints();
+                // Replace the measurement object coordinates with those coordinates:
+                measurementForEditing().setCoordinates(tempPoints);
             }
-            // Combine the clickPoints and the current point into a new vector object:
-            MyPoint2DVector tempPoints = makeTempPoints();
-            // Replace the measurement object coordinates with those coordinates:
-            measurement.setCoordinates(tempPoints);
             // Check if we have enough points to stop measuring:
             if ( measureMode == MOVE_COORDINATE_MODE ) {
                 if ( clickPoints.size() >= 2 ) {
@@ -413,14 +446,18 @@ public final class MouseInteractionManager {
     public void mouseMove(MyPoint2D p) { // p should be in image coordinates
         // Store the current cursor location:
         currentPoint = p;
-        if ( clickPointEnabled ) {
-            // Combine the clickPoints and the current point into a new vector object:
-            MyPoint2DVector tempPoints = makeTempPoints();
-            // Replace the measurement object coordinates with those coordinates:
-            measurement.setCoordinates(tempPoints);
-            // Repaint:
-            controller.drawCurrentSample(clickPointEnabled);
-            controller.redraw();
+        if ( clickPointEnabled && measurement!=null ) {
+            if (usePreview()) {
+                // The measurement is unchanged so only the preview needs repainting:
+                controller.redrawActive();
+            } else {
+                // Combine the clickPoints and the current point into a new vector object:
+                MyPoint2DVector tempPoints = makeTempPoints();
+                // Replace the measurement object coordinates with those coordinates:
+                measurementForEditing().setCoordinates(tempPoints);
+                // Repaint only the part of the panel covered by the measurement:
+                controller.drawActiveMeasurement(clickPointEnabled);
+            }
             // Update the cursor location bar:
             controller.updateCursorBar(currentPoint, (measurement instanceof OriginMeasurement));
         } else {
@@ -428,6 +465,82 @@ public final class MouseInteractionManager {
         }
     }
 
+    /** Finds the measurement coordinate nearest the current point to move, using the spatial index of the current sample.
+     * When moving the nearest coordinate of any measurement this also selects the measurement.
+     * @return False if no coordinate could be found.
+     */
+    private boolean findCoordinateToMove() {
+        if (measurementIndex<0 && measurementIndex!=NEAREST_INDEX) {
+            // The special measurements are not indexed but only have a few coordinates:
+            moveCoordinateIndex = measurement.getCoordinates().findClosest(currentPoint);
+            return ( moveCoordinateIndex>=0 );
+        }
+        CoordinateIndex index = controller.getCurrentSample().getCoordinateIndex();
+        PointGrid.Entry e;
+        if (measurementIndex==NEAREST_INDEX) {
+            // Only consider the measurements that are displayed:
+            if (!controller.getDisplayMeasurements()) { return false; }
+            MeasurementVector mList = controller.getCurrentSample().getMeasurementList();
+            e = index.nearest(currentPoint, (int i) -> mList.get(i).getMarked() ,Double.POSITIVE_INFINITY);
+        } else {
+            e = index.nearest(currentPoint,measurementIndex,Double.POSITIVE_INFINITY);
+        }
+        if (e==null) { return false; }
+        if (measurementIndex==NEAREST_INDEX) {
+            // Store the measurement and its original coordinates (it has coordinates so is not shared with other samples):
+            measurementIndex = e.getOwner();
+            measurement = controller.getCurrentSample().getMeasurementList().get(measurementIndex);
+            originalCoordinates = measurement.getCoordinates().deepCopy();
+            // The measurement moves from the cached overlay to being painted live:
+            controller.redraw();
+        }
+        moveCoordinateIndex = e.getIndex();
+        return true;
+    }
+
+    /** Returns the measurement being measured, first replacing it by a copy in the measurement list
+     * of the current sample if it is still shared with other samples.
+     * This must be used whenever the measurement is changed.
+     * @return The measurement being measured, which is not shared with any other samples.
+     */
+    private Measurement measurementForEditing() {
+        if ( sharedMeasurement!=null && measurement==sharedMeasurement ) {
+            measurement = controller.getCurrentSample().getMeasurementList().getForEditing(measurementIndex);
+        }
+        return measurement;
+    }
+
+    /** Clears the measurement being measured. A measurement that was shared with other samples
+     * before measuring started is shared again instead, so no copy is left behind.
+     */
+    private void clearMeasurement() {
+        if (sharedMeasurement==null) {
+            measurement.clear();
+        } else if (measurement!=sharedMeasurement) {
+            controller.getCurrentSample().getMeasurementList().share(measurementIndex);
+            measurement = sharedMeasurement;
+        }
+    }
+
+    /** Puts back the coordinates the measurement being moved had before measuring started. */
+    private void restoreMeasurement() {
+        if (sharedMeasurement==null) {
+            measurement.setCoordinates(originalCoordinates);
+        } else {
+            clearMeasurement(); // a shared measurement has no coordinates
+        }
+    }
+
+    /** Returns true if the measurement being measured should be previewed, with the clicked points
+     * fixed and only the segment to the cursor position painted on mouse moves.
+     * Measurements with only a few coordinates are cheap to rebuild and some (e.g. the zoom box)
+     * depend on all their coordinates, so they are rebuilt on every mouse move instead.
+     */
+    private boolean usePreview() {
+        return ( measureMode!=MOVE_COORDINATE_MODE && measurement!=null
+                && measurement.maxNumberOfCoordinates()>PREVIEW_MIN_COORDINATES );
+    }
+
     /** A utility method for the mouse move and click methods.
      * Fills the temporary working point vectors as required by the measurement mode.
      */
@@ -465,6 +578,21 @@ public final class MouseInteractionManager {
     public boolean shouldPaintMeasurement(Measurement m) {
         return ( clickPointEnabled && currentPoint!=null && measureMode!=MOVE_COORDINATE_MODE && m==measurement );
     }
+    /** Returns true if a measurement is currently being measured (or having a coordinate moved).
+     * @param m The measurement being painted.
+     * @return True if the measurement is being measured.
+     */
+    public boolean isActive(Measurement m) {
+        return ( clickPointEnabled && m==measurement );
+    }
+    /** Returns the cursor position to paint as a preview for a measurement, or null if there is none.
+     * @param m The measurement being painted.
+     * @return The cursor position in sample image pixel coordinates, or null.
+     */
+    public MyPoint2D previewPoint(Measurement m) {
+        if ( !clickPointEnabled || m!=measurement || !usePreview() ) { return null; }
+        return currentPoint;
+    }
     public boolean measuringZoomBox() {
         if ( clickPointEnabled && measurement!=null ) {
             return (measurement instanceof ZoomMeasurement);
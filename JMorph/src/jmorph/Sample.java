@@ -5,10 +5,20 @@ import geometry.MyPoint2D;
 import geometry.MyPoint2DVector;
 import gui.HasImage;
 import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.geom.*;
 import java.awt.image.BufferedImage;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import jmorph.diagnostics.EventContext;
+import jmorph.images.DiskImageCache;
+import jmorph.images.DisplayImage;
+import jmorph.images.ImageCache;
+import jmorph.images.ImageInfo;
+import jmorph.images.ImagePyramid;
 import jmorph.measurements.CalibrationMeasurement;
 import jmorph.measurements.Measurement;
 import jmorph.measurements.OriginMeasurement;
@@ -21,20 +31,30 @@ public final class Sample {
 
     // ------------------ Properties -------------------
 
+    private static final ImageCache imageCache = new ImageCache(DiskImageCache.createDefault()); // the decoded images for all samples
+
     private HasImage hasImage = null; // the image and associated file
+    private ImageInfo imageInfo = null; // the image file header information (null if not read yet or unreadable)
+    private boolean imageInfoRead = false; // set to true once the image file header has been read (or failed to read)
     private ZoomMeasurement zoom = null; // the zoom information
     private CalibrationMeasurement calibration = null; // the calibration information
     private OriginMeasurement origin = null; // the origin
     private double calibrationDistance = Measurement.NULL_CALIBRATION_DISTANCE; // the user-inputted calibration length
     private MeasurementVector measurementList = null; // the list of measurements for this sample
+    private CoordinateIndex coordinateIndex = null; // the spatial index of the measurement coordinates (created when first required, not copied)
     private int id = 0; // this is used to distinguish between samples if a multi-sample image is split
+    private AffineTransform calibrationTransform = null; // the last calibration transform calculated
+    private long calibrationTransformVersion = -1; // the calibration version the transform was calculated for
+    private long calibrationTransformOriginVersion = -1; // the origin version the transform was calculated for
+    private double calibrationTransformDistance = Measurement.NULL_CALIBRATION_DISTANCE; // the calibration distance the transform was calculated for
 
     // ------------------ Constructors -------------------
 
     public Sample() {} // Should only be used by deep copy method.
     
     public Sample(File f, boolean readNow) {
-        hasImage = new HasImage(f,readNow);
+        hasImage = new HasImage(f,false); // the image is stored in the image cache instead
+        if (readNow) { imageCache.preload(f); }
         initialize();
     }
     
@@ -62,11 +82,13 @@ public final class Sample {
         } else {
             copy.hasImage = this.hasImage; // shallow copy
         }
+        copy.imageInfo = this.imageInfo; // immutable
+        copy.imageInfoRead = this.imageInfoRead;
         copy.zoom = this.zoom.deepCopy();
         copy.calibration = this.calibration.deepCopy();
         copy.origin = this.origin.deepCopy();
         copy.calibrationDistance = this.calibrationDistance;
-        copy.measurementList = this.measurementList.deepCopy();
+        copy.measurementList = this.measurementList.deepCopyUnshared();
         copy.id = this.id;
         return copy;
     }
@@ -86,9 +108,68 @@ public final class Sample {
     }
     
     /** Returns the image associated with the file or null if an error occurs.
+     * The image is obtained from the image cache, which reads the file if required.
      * @return  */
     public BufferedImage getImage() {
-        return hasImage.getImage();
+        return imageCache.get(hasImage.getFile());
+    }
+
+    /** Returns the renditions of the image required to display a region with at least some resolution.
+     * Very large images are displayed using tiles from an image pyramid, others using a single rendition.
+     * @param subsampling The largest acceptable number of full-resolution pixels per decoded pixel (a power of two).
+     * @param region The region required in full-resolution pixel coordinates (null for the whole image).
+     * @return The renditions (an empty list if an error occurs).
+     */
+    public List<DisplayImage> getDisplayImages(int subsampling, Rectangle region) {
+        // The renditions returned are kept in the cache until the next call (other renditions may be evicted):
+        imageCache.beginDisplay();
+        try {
+            File file = hasImage.getFile();
+            Dimension d = getImageSize();
+            if ( d!=null && ImagePyramid.isLarge(d) ) {
+                return ImagePyramid.getTiles(imageCache,file,subsampling,region);
+            }
+            ArrayList<DisplayImage> out = new ArrayList<>();
+            DisplayImage di = imageCache.getDisplay(file,subsampling,region);
+            if (di!=null) { out.add(di); }
+            return out;
+        } finally {
+            imageCache.endDisplay();
+        }
+    }
+
+    /** Returns true if the image can be read, which is checked by reading only the file header
+     * (unless an earlier attempt to decode the pixels has failed).
+     * @return  */
+    public boolean imageExists() {
+        if (getImageInfo()==null) { return false; }
+        return !imageCache.hasFailed(hasImage.getFile());
+    }
+
+    /** Returns the image file header information (dimensions and orientation) or null if an error occurs.
+     * The header is read the first time this is called and the result is kept with the sample.
+     * @return  */
+    public ImageInfo getImageInfo() {
+        if (!imageInfoRead) {
+            imageInfo = imageCache.getInfo(hasImage.getFile());
+            imageInfoRead = true;
+        }
+        return imageInfo;
+    }
+
+    /** Returns the full-resolution dimensions of the image or null if an error occurs.
+     * Only the file header is read.
+     * @return  */
+    public Dimension getImageSize() {
+        ImageInfo info = getImageInfo();
+        if (info==null) { return null; }
+        return info.getSize();
+    }
+
+    /** Returns the cache that holds the decoded images for all samples.
+     * @return  */
+    public static ImageCache getImageCache() {
+        return imageCache;
     }
 
     ///** Returns the tried state for the sample image.
@@ -101,6 +182,15 @@ public final class Sample {
      * @return  */
     public MeasurementVector getMeasurementList() { return measurementList; }
 
+    /** Getter for the spatial index of the measurement coordinates, which is first brought up to date
+     * with any changes to the measurement list.
+     * @return  */
+    public CoordinateIndex getCoordinateIndex() {
+        if (coordinateIndex==null) { coordinateIndex = new CoordinateIndex(); }
+        coordinateIndex.refresh(measurementList);
+        return coordinateIndex;
+    }
+
     /** Getter for the calibration distance entered by the user (in real-space units).
      * @return  */
     public double getCalibrationDistance() { return calibrationDistance; }
@@ -247,6 +337,30 @@ public final class Sample {
         return hasImage.compareFile(file);
     }
 
+    /** Returns true if all the measured coordinates (including the zoom box, calibration and origin)
+     * lie inside the image, allowing a pixel to spare. Only the image file header is read.
+     * @return False if a coordinate lies outside the image or the image file header can't be read.
+     */
+    public boolean coordinatesInsideImage() {
+        Dimension d = getImageSize();
+        if (d==null) { return false; }
+        ArrayList<Measurement> list = new ArrayList<>();
+        list.add(zoom);
+        list.add(calibration);
+        list.add(origin);
+        for ( int i=0 ; i<measurementList.size() ; i++ ) {
+            list.add(measurementList.get(i));
+        }
+        for (Measurement m : list) {
+            if (!m.hasCoordinates()) { continue; }
+            MyPoint2DVector coords = m.getCoordinates();
+            if ( coords.minX()<-1.0 || coords.minY()<-1.0 || coords.maxX()>d.width+1.0 || coords.maxY()>d.height+1.0 ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /** Returns the short name of the sample (the file name minus path and extension, plus any id>0).
      * @return  */
     public String shortName() {
@@ -342,12 +456,21 @@ public final class Sample {
      * This transforms from sample image pixel coordinates to real-space measurements.
      * The factor returned from method calibrationFactor is used as the scaling
      * and the origin point is used for translation.
+     * The transform is only recalculated if the calibration, origin or calibration
+     * distance have changed since the last call, so the returned object should not be modified.
      * @return trans The affine transform, or null if the sample has not been
      * calibrated or the origin has not been specified.
      */
     public AffineTransform calibrationTransform() {
         // Check that both the calibration factor and the origin have been defined:
         if ( !isCalibrated() || !hasOrigin()) { return null; }
+        // Check for a previously calculated transform:
+        if ( calibrationTransform!=null
+                && calibrationTransformVersion==calibration.getVersion()
+                && calibrationTransformOriginVersion==origin.getVersion()
+                && calibrationTransformDistance==calibrationDistance ) {
+            return calibrationTransform;
+        }
         // Get the origin and calibration factor:
         MyPoint2D p0 = getOriginPoint();
         double factor = calibrationFactor();
@@ -360,17 +483,29 @@ public final class Sample {
         trans.scale(factor,factor);
         // Subtract origin (which is in sample image pixel coordinates):
         trans.translate(-p0.getX(),-p0.getY());
+        // Store the transform and the information it was calculated from:
+        calibrationTransform = trans;
+        calibrationTransformVersion = calibration.getVersion();
+        calibrationTransformOriginVersion = origin.getVersion();
+        calibrationTransformDistance = calibrationDistance;
         // Return the transform
         return trans;
     }
     
     /** Returns a CSV text string with the measurement information typeset within it and no newline character(s).
+     * @param shapes Set to true to add the shape descriptors of the area, spline and outline measurements.
      * @return  */
-    public String writeMeasurementsCSV() {
+    public String writeMeasurementsCSV(boolean shapes) {
 
         // Write the measurements in the measurement list:
         AffineTransform trans = calibrationTransform();
-        String t = measurementList.writeMeasurementsCSV(calibrationFactor(),trans);
+        String t;
+        String previous = EventContext.setSample(longName());
+        try {
+            t = measurementList.writeMeasurementsCSV(calibrationFactor(),trans,shapes);
+        } finally {
+            EventContext.setSample(previous);
+        }
         if (t==null) { return null; }
 
         // Add sample name at start of the string and return:
@@ -379,6 +514,21 @@ public final class Sample {
 
     }
 
+    /** Returns the file the sample outline is exported to.
+     * @param path Path name for saving the outline file to.
+     * @param index Index of the outline (area, spline or outline measurement) in the measurement list.
+     * @return The file called [sample]_[measurement].txt in the path.
+     */
+    public File outlineFile(File path, int index) {
+        String fileName = path.getAbsolutePath()
+                + File.separator
+                + hasImage.getName()
+                + "_"
+                + measurementList.get(index).getName()
+                + ".txt";
+        return new File(fileName);
+    }
+
     /** Exports the sample outline to a file, if it has been measured.
      * The file name is called [sample]_[measurement].txt" where [sample] is the
      * original name of the sample image file (minus extension) and
@@ -396,15 +546,9 @@ public final class Sample {
         //String title = "Export Sample Outlines";
 
         // Set the name of the file:
-        String fileName = path.getAbsolutePath()
-                + File.separator
-                + hasImage.getName()
-                + "_"
-                + measurementList.get(index).getName()
-                + ".txt";
+        File f = outlineFile(path,index);
 
         // Open the file for writing:
-        File f = new File(fileName);
         BufferedWriter writer = FileUtils.openForWriting(f);
         if (writer==null) { return false; }
 
@@ -10,6 +10,10 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -18,6 +22,9 @@ import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JProgressBar;
 import javax.swing.SwingWorker;
+import jmorph.diagnostics.ExportEvent;
+import jmorph.images.ImageCache;
+import jmorph.measurements.Measurement;
 
 /** A list of samples on which to take morphometric measurements.
  * @author Peter Lelievre
@@ -27,6 +34,7 @@ public class SampleVector {
     // ------------------ Properties -------------------
 
     private int currentIndex = 0; // the current sample being viewed
+    private static final int DECODED_SIZE_FACTOR = 10; // rough ratio of decoded raster size to compressed file size, used to limit concurrent decoding
     
     // Components used for temporary tasks:
     private boolean userCancelled;
@@ -34,6 +42,9 @@ public class SampleVector {
     
     // Favour composition over inheritence!
     private final ArrayList<Sample> vector = new ArrayList<>();
+    
+    // Index for quick lookup by image file (kept in step with the vector):
+    private final HashMap<File,HasImage> hasImageIndex = new HashMap<>(); // the image object shared by the samples with each file
 
     // ------------------ Constructor ------------------
 
@@ -58,8 +69,8 @@ public class SampleVector {
             // Get the ith sample:
             Sample s = get(i);
 
-            // Replace the measurement list with a deep copy:
-            s.setMeasurementList(mList.deepCopy());
+            // Replace the measurement list with one that shares the measurements until they are measured:
+            s.setMeasurementList(mList.sharedCopy());
 
         }
 
@@ -237,22 +248,23 @@ public class SampleVector {
     /** Clears all samples from the list. */
     public void clear() {
         vector.clear();
+        hasImageIndex.clear();
     }
 
     /** Removes all samples from the list at and beyond the specified index so that the resulting length is n.
      * @param n */
     public void clearFrom(int n) {
-        while (vector.size()>n) {
-            vector.remove(vector.size()-1);
-        }
+        if (vector.size()<=n) { return; }
+        vector.subList(Math.max(0,n),vector.size()).clear();
+        rebuildIndex();
     }
 
     /** Removes the first n samples from the list.
      * @param n */
     public void clearTo(int n) {
-        for ( int i=0 ; i<n ; i++ ) {
-            vector.remove(0);
-        }
+        if (n<=0) { return; }
+        vector.subList(0,Math.min(n,vector.size())).clear();
+        rebuildIndex();
     }
 
     /** Removes specified samples from the list.
@@ -261,17 +273,21 @@ public class SampleVector {
      */
     public void removeSamples(int[] selection) {
 
-        // Sort the selection:
-        Arrays.sort(selection); // increasing order
+        // Flag the samples to remove:
+        int n = size();
+        boolean[] remove = new boolean[n];
+        for (int i : selection) {
+            if ( i>=0 && i<n ) { remove[i] = true; } // out of range indices are ignored
+        }
 
-        // Loop over each selection, from highest index to lowest:
-        for ( int i=selection.length-1 ; i>=0 ; i-- ) {
-            try {
-                vector.remove(selection[i]);
-            } catch ( ArrayIndexOutOfBoundsException e ) {
-                // just ignore the error
-            }
+        // Keep the other samples, in order, in a single pass:
+        ArrayList<Sample> kept = new ArrayList<>(n);
+        for ( int i=0 ; i<n ; i++ ) {
+            if (!remove[i]) { kept.add(vector.get(i)); }
         }
+        vector.clear();
+        vector.addAll(kept);
+        rebuildIndex();
         
         // Reset the IDs:
         resetIDs();
@@ -290,14 +306,14 @@ public class SampleVector {
     }
 
     /** Adds a measurement to the measurement list in each sample.
-     * @param typeString The type of new measurement.
-     * @param name A name for the new measurement.
+     * @param m The new measurement, which should have just been added to the end of the measurement list
+     * that the sample measurement lists were created from.
      */
-    public void addNewMeasurement(String typeString, String name) {
+    public void addNewMeasurement(Measurement m) {
         // Loop over each sample:
         for ( int i=0 ; i<size() ; i++ ) {
             // Add the measurement to the ith sample:
-            get(i).getMeasurementList().addNew(typeString,name);
+            get(i).getMeasurementList().addShared(m);
         }
     }
     
@@ -314,7 +330,7 @@ public class SampleVector {
         // Copy n-1 times:
         for (int i=1 ; i<n ; i++) {
             Sample newSample = currentSample.deepCopy(false); // deep copy current sample (except for HasImage object)
-            vector.add(currentIndex+i,newSample); // add new sample to the list
+            vector.add(currentIndex+i,newSample); // add new sample to the list (it shares the image object already indexed)
         }
         
         // Reset the IDs:
@@ -390,20 +406,53 @@ public class SampleVector {
     }
     
     private void readFiles(File[] files, boolean readNow) {
+        // Read the image files now if required:
+        if (readNow) {
+            readFilesTask(files,null,null);
+            return;
+        }
         // Loop over the files:
         for (File file : files) {
             // Process the current file:
-            readFile(file,readNow);
+            readFile(file,false);
         }
     }
     
+    /** Reads the image files on a pool of threads and adds the samples in the original order.
+     * The status label and progress bar may be null if no progress dialog is shown.
+     */
     private void readFilesTask(File[] files, JLabel statusLabel, JProgressBar progressBar) {
-        // Loop over the files:
+        
+        // Decode the images into the image cache on a pool of threads:
+        final ImageCache cache = Sample.getImageCache();
+        ExecutorService pool = Executors.newFixedThreadPool(numberOfDecodeThreads(files,cache.getBudget()));
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for (File file : files) {
+            futures.add( pool.submit( () -> { cache.preload(file); } ) );
+        }
+        pool.shutdown(); // the threads end once the submitted tasks are done
+        
+        // Loop over the files in order, waiting for each to be decoded:
         for (int i=0 ; i<files.length ; i++ ) {
-            // Process the current file:
-            readFile(files[i],true); // read the image file now
+            // Check if the user cancelled:
+            if (userCancelled) {
+                for (Future<?> future : futures) { future.cancel(false); }
+                return;
+            }
+            // Wait for the image to be decoded (a failed read is dealt with when the image is requested):
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                userCancelled = true;
+                continue;
+            } catch (ExecutionException e) {
+                // Nothing to do here.
+            }
+            // Process the current file (the image is already in the cache unless the budget was exceeded):
+            readFile(files[i],false);
             // Check if progress bar still exists:
-            if (progressDialog==null) {
+            if ( statusLabel==null || progressDialog==null ) {
                 continue;
             } else {
                 if (!progressDialog.isDisplayable()) {
@@ -415,6 +464,24 @@ public class SampleVector {
             statusLabel.setText(message);
             progressBar.setValue(i+1);
         }
+        
+    }
+    
+    /** Determines how many images to decode at once.
+     * This is limited by the number of processors and by the image cache budget,
+     * using a rough estimate of the decoded size of the largest file.
+     */
+    private static int numberOfDecodeThreads(File[] files, long budget) {
+        int n = Math.min( Runtime.getRuntime().availableProcessors() , files.length );
+        long largest = 0;
+        for (File file : files) {
+            largest = Math.max( largest , file.length() );
+        }
+        long estimate = DECODED_SIZE_FACTOR*largest;
+        if (estimate>0) {
+            n = (int)Math.min( n , budget/estimate );
+        }
+        return Math.max(1,n);
     }
     private class CancelListener implements ActionListener {
         @Override
@@ -438,6 +505,7 @@ public class SampleVector {
         }
         // Add the new sample object to the vector of samples:
         vector.add(s);
+        addToIndex(s);
     }
     
     /** Searches for a sample with the current file and returns the HasImage object if found, null otherwise.
@@ -445,24 +513,29 @@ public class SampleVector {
      * @return 
      */
     private HasImage findFile(File file) {
-        // Loop over each sample:
-        for ( int i=0 ; i<size() ; i++ ) {
-            Sample s = get(i);
-            // Compare supplied file against that for current sample:
-            if ( s.compareFile(file) ) {
-                return s.getHasImage();
-            }
+        return hasImageIndex.get(file);
+    }
+    
+    /** Adds a sample to the file index unless an earlier sample has the same file. */
+    private void addToIndex(Sample s) {
+        hasImageIndex.putIfAbsent(s.getFile(),s.getHasImage());
+    }
+    
+    /** Rebuilds the file index after samples are removed (a file may no longer belong to any sample). */
+    private void rebuildIndex() {
+        hasImageIndex.clear();
+        for (Sample s : vector) {
+            addToIndex(s);
         }
-        // If not found then return null:
-        return null;
     }
     
     /** Exports the sample measurements to a comma-separated-variable text file.
      * @param file The file to write to.
      * @param header
+     * @param shapes Set to true to add the shape descriptors of the area, spline and outline measurements.
      * @return True if file written successfully, false otherwise.
      */
-    public boolean exportCSV(File file, String header) {
+    public boolean exportCSV(File file, String header, boolean shapes) {
 
         // Check that samples exist:
         if (size()==0) { return false; }
@@ -481,7 +554,7 @@ public class SampleVector {
                 // Get the ith sample:
                 Sample s = get(i);
                 // Write the ith sample to the file:
-                textLine = s.writeMeasurementsCSV();
+                textLine = s.writeMeasurementsCSV(shapes);
                 if (textLine==null) {
                     // Close the file and return false:
                     FileUtils.close(writer);
@@ -520,12 +593,21 @@ public class SampleVector {
         Boolean ok = true;
         for ( int i=0 ; i<size() ; i++ ) {
             // Write the sample outline file if possible:
-            ok = ( ok && get(i).exportOutline(path,index) );
+            ok = ( ok && exportOutline(get(i),index,path) );
         }
         return ok;
 
     }
 
+    /** Exports the outline of one sample, recording a flight recorder export event. */
+    private boolean exportOutline(Sample s, int index, File path) {
+        ExportEvent event = new ExportEvent();
+        event.begin();
+        boolean ok = s.exportOutline(path,index);
+        event.report("outline",s.outlineFile(path,index),s.longName(),s.getMeasurementList().get(index).getName(),ok);
+        return ok;
+    }
+
     /** Marks all measurements in the measurement lists of every sample.
      * @param mark The value to mark all the measurements with.
      */
@@ -603,41 +685,28 @@ public class SampleVector {
     /** Resets the IDs in the samples, e.g. if a sample is removed or added.
      */
     public void resetIDs() {
-        // Create working objects:
+        // Create working objects (for each file, the number of samples and the number of IDs assigned so far):
         int n = size();
-        ArrayList<File> files = new ArrayList<>();
-        int[] counts1 = new int[n];
-        int[] counts2 = new int[n];
-        Arrays.fill(counts1,0); // initialization before summation
-        Arrays.fill(counts2,0); // initialization before summation
-        // Loop over each sample:
+        HashMap<File,int[]> counts = new HashMap<>();
+        // Loop over each sample and count the samples with each file:
         for (int i=0 ; i<n ; i++) {
-            Sample s = get(i);
-            // Get the image file:
-            File f = s.getFile();
-            // Find the file in the list:
-            int j = files.indexOf(f);
-            if (j>=0) { // file is already in the list
-                // Increment the first counter:
-                counts1[j]++;
-            } else { // name not in the list yet
-                // Add the file to the list and increment the first counter:
-                files.add(f);
-                counts1[files.size()-1] = 1;
+            File f = get(i).getFile();
+            int[] c = counts.get(f);
+            if (c==null) { // file not counted yet
+                c = new int[2];
+                counts.put(f,c);
             }
+            c[0]++;
         }
         // Loop over each sample again:
         for (int i=0 ; i<n ; i++) {
             Sample s = get(i);
-            // Get the image file:
-            File f = s.getFile();
-            // Find the file in the list:
-            int j = files.indexOf(f);
+            int[] c = counts.get(s.getFile());
             // Check the first counter:
-            if (counts1[j]>1) { // the file is duplicated
+            if (c[0]>1) { // the file is duplicated
                 // Increment the second counter and set the ID to that count:
-                counts2[j]++;
-                s.setID(counts2[j]);
+                c[1]++;
+                s.setID(c[1]);
             } else { // the file is not duplicated
                 // Set the ID to zero:
                 s.setID(0);
@@ -38,6 +38,7 @@ public class SessionLoader {
     public static class LoadSessionReturnObject {
         public int version = 0;
         public String message = null; // set to non-null if there is a problem
+        public String warning = null; // set to non-null if the session loaded but some samples don't match their images
         public LoadSessionReturnObject(int v, String s) {
             version = v;
             message = s;
@@ -242,6 +243,12 @@ public class SessionLoader {
                     }
                     if (!ok) {break;}
 
+                    // Unmeasured measurements are left shared with the other samples:
+                    if ( j>=0 ) {
+                        if (n==0) { continue; }
+                        m = mList.getForEditing(j);
+                    }
+
                     // Set the coordinates into the current measurement:
                     m.setCoordinates(coords); // don't need to deep copy because coords is set to a new object above
 
@@ -321,6 +328,9 @@ public class SessionLoader {
         // Check for a problem:
         if (!ok) { return new LoadSessionReturnObject(0,message); }
         
+        // Check the measurements still fit on the sample images (this only reads the image file headers):
+        String warning = validateSamples(newSampleList);
+        
         // Reset the JMorph sample list and measurement list:
         controller.setSampleList(newSampleList);
         controller.setMeasurementList(newMeasurementList);
@@ -344,8 +354,40 @@ public class SessionLoader {
         }
         
         // Return successfully:
-        return new LoadSessionReturnObject(loadVersion,null);
+        LoadSessionReturnObject out = new LoadSessionReturnObject(loadVersion,null);
+        out.warning = warning;
+        return out;
 
     }
+    
+    /** Checks that the sample images can be read and contain the measurement coordinates.
+     * @param sampleList
+     * @return A description of any problem samples or null if there are none.
+     */
+    private static String validateSamples(SampleVector sampleList) {
+        final int maxListed = 10; // the most samples to list in the description
+        int nBad = 0;
+        String s = "";
+        for ( int i=0 ; i<sampleList.size() ; i++ ) {
+            Sample sample = sampleList.get(i);
+            String problem;
+            if (sample.getImageInfo()==null) {
+                problem = "image file could not be read";
+            } else if (!sample.coordinatesInsideImage()) {
+                problem = "measurements lie outside the image";
+            } else {
+                continue;
+            }
+            nBad++;
+            if (nBad<=maxListed) {
+                s = s + System.lineSeparator() + (i+1) + ": " + sample.shortName() + " (" + problem + ")";
+            }
+        }
+        if (nBad==0) { return null; }
+        if (nBad>maxListed) {
+            s = s + System.lineSeparator() + "... and " + (nBad-maxListed) + " more.";
+        }
+        return nBad + " of the samples do not match their images (the image files may have been moved or changed since the session was saved):" + s;
+    }
 
 }
@@ -8,6 +8,7 @@ import java.awt.Cursor;
 import java.awt.GridLayout;
 import javax.swing.BorderFactory;
 import javax.swing.JPanel;
+import jmorph.diagnostics.EventContext;
 import jmorph.gui.ButtonBar;
 import jmorph.gui.CursorTextBar;
 import jmorph.gui.MenuBar;
@@ -96,18 +97,34 @@ public class ViewManager {
 
     /** Draws the current sample (and associated measurements), making sure any measurement calculations have been performed.
      * @param measuring */
-    public void drawCurrentSample(boolean measuring) {
+    public void drawCurrentSample(boolean measuring) { drawCurrentSample(measuring,true); }
+
+    /** Draws the current sample after a change to the measurement being measured only,
+     * repainting just the part of the sample image panel that the measurement covers.
+     * @param measuring */
+    public void drawActiveMeasurement(boolean measuring) { drawCurrentSample(measuring,false); }
+
+    private void drawCurrentSample(boolean measuring, boolean whole) {
         // Tell the measurement list of the current sample to make sure
         // any measurement calculations have been performed as required before painting.
         if (controller.hasSamples()) {
             Sample s = controller.getCurrentSample();
             if (controller.hasMeasurements()) {
                 MeasurementVector m = s.getMeasurementList();
-                m.runBeforePainting(measuring);
+                String previous = EventContext.setSample(s.longName());
+                try {
+                    m.runBeforePainting(measuring);
+                } finally {
+                    EventContext.setSample(previous);
+                }
             }
         }
         // Display the sample image in the sample image panel:
-        imagePanel.repaint();
+        if (whole) {
+            imagePanel.repaint();
+        } else {
+            imagePanel.repaintActive();
+        }
         // Display the status and measurement information:
         updateSampleBar();
         updateInfoPanel();
@@ -117,6 +134,8 @@ public class ViewManager {
     
     // Wrappers for the SampleImagePanel class:
     public void redraw() { imagePanel.repaint(); }
+    public void redrawActive() { imagePanel.repaintActive(); }
+    public String displayStatisticsString() { return imagePanel.getRenderScheduler().statisticsString(); }
     public void calculateTightFitTransform() { imagePanel.calculateTightFitTransform(); }
     public void setCursor(Cursor cursor) { imagePanel.setCursor(cursor); }
     public void requestFocusInSampleImagePanel() { imagePanel.requestFocusInWindow(); }
@@ -156,6 +175,8 @@ public class ViewManager {
     public boolean getDisplayFFTCoefficients(){ return paintingOptions.getDisplayFFTCoefficients(); }
     public boolean getDisplayInfoPanel() { return paintingOptions.getDisplayInfoPanel(); }
     public boolean getDisplayMeasurements() { return paintingOptions.getDisplayMeasurements(); }
+    public boolean getAdaptiveQuality() { return paintingOptions.getAdaptiveQuality(); }
+    public int getIdleDelay() { return paintingOptions.getIdleDelay(); }
     public int getLineWidth() { return paintingOptions.getLineWidth(); }
     public int getPointWidth() { return paintingOptions.getPointWidth(); }
     public void selectCalibrationColor() { paintingOptions.selectCalibrationColor(); }
@@ -165,10 +186,13 @@ public class ViewManager {
     public void setDisplayFFTCoefficients(boolean b) { paintingOptions.setDisplayFFTCoefficients(b); }
     public void setDisplayInfoPanel(boolean b) { paintingOptions.setDisplayInfoPanel(b); }
     public void setDisplayMeasurements(boolean b) { paintingOptions.setDisplayMeasurements(b); }
+    public void setAdaptiveQuality(boolean b) { paintingOptions.setAdaptiveQuality(b); }
+    public void setIdleDelay(int ms) { paintingOptions.setIdleDelay(ms); }
     public void setLineWidth(int w) { paintingOptions.setLineWidth(w); }
     public void setPointWidth(int w) { paintingOptions.setPointWidth(w); }
     public void toggleFFTCoefficients() { paintingOptions.toggleFFTCoefficients(); }
     public void toggleInformationPanel() { paintingOptions.toggleInformationPanel(); }
     public void toggleMeasurements() { paintingOptions.toggleMeasurements(); }
+    public void toggleAdaptiveQuality() { paintingOptions.toggleAdaptiveQuality(); }
     
 }
@@ -0,0 +1,36 @@
+package jmorph.diagnostics;
+
+/** Remembers the name of the sample each thread is working on so that flight recorder events
+ * raised deep inside the calculations (e.g. by an outline measurement, which doesn't know its sample)
+ * can say which sample they belong to.
+ * @author Peter Lelievre
+ */
+public final class EventContext {
+
+    private static final ThreadLocal<String> sample = new ThreadLocal<>(); // the name of the sample each thread is working on
+
+    private EventContext() {} // prevents instantiation
+
+    /** Sets the name of the sample the current thread is working on. Callers should put the
+     * previous name back in a finally block once they are done so that the name never outlives the work:
+     * <pre>String previous = EventContext.setSample(name);
+     * try { ... } finally { EventContext.setSample(previous); }</pre>
+     * @param name The sample name (may be null).
+     * @return The previous sample name (may be null).
+     */
+    public static String setSample(String name) {
+        String previous = sample.get();
+        if (name==null) {
+            sample.remove();
+        } else {
+            sample.set(name);
+        }
+        return previous;
+    }
+
+    /** Returns the name of the sample the current thread is working on.
+     * @return The sample name, or null if not set.
+     */
+    public static String getSample() { return sample.get(); }
+
+}
@@ -0,0 +1,60 @@
+package jmorph.diagnostics;
+
+import java.io.File;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A flight recorder event for writing an export file: the CSV file of all measurements
+ * or the outline file of one sample.
+ * @author Peter Lelievre
+ */
+@Name("jmorph.Export")
+@Label("Export")
+@Category({"JMorph","Files"})
+@Description("Writing a CSV file of the sample measurements or an outline file for one sample")
+public final class ExportEvent extends jdk.jfr.Event {
+
+    @Label("Format")
+    String format;
+
+    @Label("File")
+    String file;
+
+    @Label("File Size")
+    @DataAmount(DataAmount.BYTES)
+    long bytes;
+
+    @Label("Sample")
+    @Description("The sample exported (null if all samples were exported)")
+    String sample;
+
+    @Label("Measurement")
+    @Description("The measurement exported (null if all measurements were exported)")
+    String measurement;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /** Ends the event and commits it if it is being recorded (the fields are only filled in that case).
+     * @param fmt The export format ("CSV" or "outline").
+     * @param f The file written (may be null if unknown).
+     * @param sampleName The sample exported (null for all samples).
+     * @param measurementName The measurement exported (null for all measurements).
+     * @param ok True if the file was written successfully.
+     */
+    public void report(String fmt, File f, String sampleName, String measurementName, boolean ok) {
+        end();
+        if (!shouldCommit()) { return; }
+        format = fmt;
+        file = ( f==null ? null : f.getPath() );
+        bytes = ( f==null ? 0 : f.length() );
+        sample = sampleName;
+        measurement = measurementName;
+        succeeded = ok;
+        commit();
+    }
+
+}
@@ -0,0 +1,58 @@
+package jmorph.diagnostics;
+
+import java.awt.Rectangle;
+import java.io.File;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A flight recorder event for decoding a sample image file (or a region of it).
+ * @author Peter Lelievre
+ */
+@Name("jmorph.ImageDecode")
+@Label("Image Decode")
+@Category({"JMorph","Images"})
+@Description("Decoding a sample image file, or a region of it, with source subsampling")
+public final class ImageDecodeEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    String file;
+
+    @Label("File Size")
+    @DataAmount(DataAmount.BYTES)
+    long bytes;
+
+    @Label("Region")
+    @Description("The region decoded in full-resolution pixels as x,y,width,height")
+    String region;
+
+    @Label("Subsampling")
+    int subsampling;
+
+    @Label("Decoded Pixels")
+    long pixels;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /** Ends the event and commits it if it is being recorded (the fields are only filled in that case).
+     * @param f The image file.
+     * @param r The region requested (null for the whole image).
+     * @param s The subsampling.
+     * @param decodedPixels The number of pixels decoded (0 if the decode failed).
+     */
+    public void report(File f, Rectangle r, int s, long decodedPixels) {
+        end();
+        if (!shouldCommit()) { return; }
+        file = f.getPath();
+        bytes = f.length();
+        region = ( r==null ? "all" : r.x + "," + r.y + "," + r.width + "," + r.height );
+        subsampling = s;
+        pixels = decodedPixels;
+        succeeded = ( decodedPixels>0 );
+        commit();
+    }
+
+}
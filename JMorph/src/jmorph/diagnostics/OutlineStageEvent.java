@@ -0,0 +1,80 @@
+package jmorph.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A flight recorder event for one stage of the outline analysis of a measurement
+ * (interpolation, resampling, Fourier analysis or reconstruction).
+ * @author Peter Lelievre
+ */
+@Name("jmorph.OutlineStage")
+@Label("Outline Stage")
+@Category({"JMorph","Outlines"})
+@Description("One stage of the outline analysis of a spline or outline measurement")
+public final class OutlineStageEvent extends jdk.jfr.Event {
+
+    @Label("Sample")
+    String sample;
+
+    @Label("Measurement")
+    String measurement;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Method")
+    @Description("The Fourier outline analysis method")
+    String method;
+
+    @Label("Points")
+    @Description("The number of outline points produced by the stage")
+    int points;
+
+    @Label("NFFT")
+    @Description("The length of the Fourier transform used or produced by the stage (0 for stages without one)")
+    int nfft;
+
+    private final transient TimingCounter counter; // the counter the time taken by the stage is added to
+    private final transient String stageName; // the name of the stage
+    private final transient long startNanos; // the value of System.nanoTime() when the stage started
+
+    private OutlineStageEvent(TimingCounter counter, String stageName) {
+        this.counter = counter;
+        this.stageName = stageName;
+        this.startNanos = System.nanoTime();
+    }
+
+    /** Starts timing a stage. Every call should be followed by a call to finish in a finally block.
+     * @param counter The counter the time taken by the stage is added to.
+     * @param stageName The name of the stage.
+     * @return The started event.
+     */
+    public static OutlineStageEvent start(TimingCounter counter, String stageName) {
+        OutlineStageEvent event = new OutlineStageEvent(counter,stageName);
+        event.begin();
+        return event;
+    }
+
+    /** Adds the time taken by the stage to its counter, then ends the event and commits it if it is
+     * being recorded (the fields are only filled in that case). The sample name is taken from the EventContext.
+     * @param measurementName The name of the measurement.
+     * @param methodName The Fourier outline analysis method (may be null).
+     * @param nPoints The number of outline points produced.
+     * @param nFFT The length of the Fourier transform used or produced (0 if none).
+     */
+    public void finish(String measurementName, String methodName, int nPoints, int nFFT) {
+        counter.record(startNanos);
+        end();
+        if (!shouldCommit()) { return; }
+        sample = EventContext.getSample();
+        measurement = measurementName;
+        stage = stageName;
+        method = methodName;
+        points = nPoints;
+        nfft = nFFT;
+        commit();
+    }
+
+}
@@ -0,0 +1,52 @@
+package jmorph.diagnostics;
+
+import java.io.File;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A flight recorder event for loading or saving a session file.
+ * @author Peter Lelievre
+ */
+@Name("jmorph.Session")
+@Label("Session Load/Save")
+@Category({"JMorph","Files"})
+@Description("Loading or saving a JMorph session file")
+public final class SessionEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("File")
+    String file;
+
+    @Label("File Size")
+    @DataAmount(DataAmount.BYTES)
+    long bytes;
+
+    @Label("Samples")
+    int samples;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /** Ends the event and commits it if it is being recorded (the fields are only filled in that case).
+     * @param op The operation ("load" or "save").
+     * @param f The session file.
+     * @param nSamples The number of samples in the session afterwards.
+     * @param ok True if the operation succeeded.
+     */
+    public void report(String op, File f, int nSamples, boolean ok) {
+        end();
+        if (!shouldCommit()) { return; }
+        operation = op;
+        file = ( f==null ? null : f.getPath() );
+        bytes = ( f==null ? 0 : f.length() );
+        samples = nSamples;
+        succeeded = ok;
+        commit();
+    }
+
+}
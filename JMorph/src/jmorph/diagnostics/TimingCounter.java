@@ -0,0 +1,122 @@
+package jmorph.diagnostics;
+
+import java.util.Arrays;
+
+/** Accumulates the number of times an operation was performed, the total and longest time spent
+ * and a histogram of the times. Recording a time costs a few arithmetic operations so counters
+ * can be left on permanently. The histogram bins double in width: the first holds times under
+ * one millisecond, the next times from one to two milliseconds, and so on, with the last bin
+ * holding everything longer.
+ * @author Peter Lelievre
+ */
+public final class TimingCounter implements TimingCounterMBean {
+
+    // ------------------ Properties -------------------
+
+    /** The number of histogram bins. */
+    public static final int HISTOGRAM_BINS = 16;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final String name; // the name of the timed operation
+    private long count = 0; // the number of times the operation was timed
+    private long totalNanos = 0; // the total time spent in the operation
+    private long maxNanos = 0; // the longest time spent in the operation
+    private final long[] histogram = new long[HISTOGRAM_BINS]; // the number of times falling in each bin
+
+    // ------------------ Constructor -------------------
+
+    /**
+     * @param name The name of the timed operation.
+     */
+    public TimingCounter(String name) {
+        this.name = name;
+    }
+
+    // -------------------- Getters -------------------
+
+    @Override
+    public String getName() { return name; }
+    @Override
+    public synchronized long getCount() { return count; }
+    @Override
+    public synchronized double getTotalMillis() { return toMillis(totalNanos); }
+    @Override
+    public synchronized double getMeanMillis() { return ( count==0 ? 0.0 : toMillis(totalNanos)/count ); }
+    @Override
+    public synchronized double getMaxMillis() { return toMillis(maxNanos); }
+    @Override
+    public synchronized long[] getHistogram() { return histogram.clone(); }
+
+    @Override
+    public String[] getHistogramLabels() {
+        String[] labels = new String[HISTOGRAM_BINS];
+        labels[0] = "<1 ms";
+        for ( int i=1 ; i<HISTOGRAM_BINS-1 ; i++ ) {
+            labels[i] = (1L<<(i-1)) + "-" + (1L<<i) + " ms";
+        }
+        labels[HISTOGRAM_BINS-1] = ">=" + (1L<<(HISTOGRAM_BINS-2)) + " ms";
+        return labels;
+    }
+
+    // -------------------- Public Methods -------------------
+
+    /** Records the time since an operation started.
+     * @param startNanos The value of System.nanoTime() when the operation started.
+     */
+    public void record(long startNanos) {
+        add( System.nanoTime() - startNanos );
+    }
+
+    /** Records the time spent in an operation.
+     * @param nanos The time in nanoseconds.
+     */
+    public synchronized void add(long nanos) {
+        if (nanos<0) { nanos = 0; }
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos,nanos);
+        histogram[bin(nanos)]++;
+    }
+
+    @Override
+    public synchronized void reset() {
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        Arrays.fill(histogram,0);
+    }
+
+    /** Returns a single line summarising the counter.
+     * @return The count, total, mean and longest time and the non-empty histogram bins.
+     */
+    @Override
+    public synchronized String toString() {
+        String s = String.format("%s: %d, total %.1f ms, mean %.2f ms, max %.1f ms",
+                name,count,getTotalMillis(),getMeanMillis(),getMaxMillis());
+        if (count==0) { return s; }
+        String[] labels = getHistogramLabels();
+        String h = "";
+        for ( int i=0 ; i<HISTOGRAM_BINS ; i++ ) {
+            if (histogram[i]==0) { continue; }
+            if (!h.isEmpty()) { h += ", "; }
+            h += labels[i] + " x" + histogram[i];
+        }
+        return s + " [" + h + "]";
+    }
+
+    // -------------------- Private Methods -------------------
+
+    private static double toMillis(long nanos) {
+        return nanos / (double)NANOS_PER_MILLI;
+    }
+
+    /** Returns the histogram bin for a time: bin i>0 holds times from 2^(i-1) to 2^i milliseconds. */
+    private static int bin(long nanos) {
+        long ms = nanos / NANOS_PER_MILLI;
+        if (ms==0) { return 0; }
+        int i = 64 - Long.numberOfLeadingZeros(ms); // 1 for 1 ms, 2 for 2-3 ms, 3 for 4-7 ms, ...
+        return Math.min(i,HISTOGRAM_BINS-1);
+    }
+
+}
@@ -0,0 +1,32 @@
+package jmorph.diagnostics;
+
+/** The management interface of a timing counter, through which it can be read (e.g. in jconsole) using JMX.
+ * @author Peter Lelievre
+ */
+public interface TimingCounterMBean {
+
+    /** Returns the name of the timed operation. */
+    public String getName();
+
+    /** Returns the number of times the operation was timed. */
+    public long getCount();
+
+    /** Returns the total time spent in the operation in milliseconds. */
+    public double getTotalMillis();
+
+    /** Returns the mean time spent in the operation in milliseconds. */
+    public double getMeanMillis();
+
+    /** Returns the longest time spent in the operation in milliseconds. */
+    public double getMaxMillis();
+
+    /** Returns the number of times falling in each histogram bin (see getHistogramLabels). */
+    public long[] getHistogram();
+
+    /** Returns a label describing the range of times in each histogram bin. */
+    public String[] getHistogramLabels();
+
+    /** Sets all counts and times back to zero. */
+    public void reset();
+
+}
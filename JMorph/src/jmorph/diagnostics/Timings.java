@@ -0,0 +1,116 @@
+package jmorph.diagnostics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/** The timing counters for the operations that take the most time: image loading and decoding,
+ * the outline analysis stages, painting and exporting. Counters are created once and kept for the
+ * life of the application. Once registerMBeans has been called every counter (including any created
+ * later) is also available through JMX under the domain "jmorph" (e.g. for inspection in jconsole).
+ * @author Peter Lelievre
+ */
+public final class Timings {
+
+    // ------------------ Properties -------------------
+
+    /** The JMX domain the counters are registered under. */
+    public static final String DOMAIN = "jmorph";
+
+    private static final LinkedHashMap<String,TimingCounter> counters = new LinkedHashMap<>(); // all counters in order of creation
+    private static boolean registered = false; // set to true once the counters should be registered with JMX
+
+    public static final TimingCounter IMAGE_LOAD = get("Image load"); /** Obtaining an image rendition that was not cached in memory (from the disk cache or by decoding). */
+    public static final TimingCounter IMAGE_DECODE = get("Image decode"); /** Decoding an image file. */
+    public static final TimingCounter SPLINE_INTERPOLATION = get("Spline interpolation"); /** Interpolating a spline or outline at equally spaced points. */
+    public static final TimingCounter OUTLINE_RESAMPLING = get("Outline resampling"); /** Resampling an outline for Fourier analysis. */
+    public static final TimingCounter OUTLINE_FFT = get("Outline FFT (radius vs theta)"); /** Calculating the radius vs theta Fourier coefficients. */
+    public static final TimingCounter OUTLINE_HANGLE = get("Outline HAngle (tangent vs arc length)"); /** Calculating the tangent vs arc length Fourier coefficients. */
+    public static final TimingCounter OUTLINE_IFFT = get("Outline inverse FFT (radius vs theta)"); /** Reconstructing an outline from radius vs theta coefficients. */
+    public static final TimingCounter OUTLINE_HCURVE = get("Outline HCurve (tangent vs arc length)"); /** Reconstructing an outline from tangent vs arc length coefficients. */
+    public static final TimingCounter FRAME_PAINT = get("Frame paint"); /** Painting the whole sample image panel. */
+    public static final TimingCounter EXPORT_CSV = get("CSV export"); /** Exporting the measurements to a CSV file. */
+    public static final TimingCounter EXPORT_OUTLINES = get("Outline export"); /** Exporting the outlines to text files. */
+
+    private Timings() {} // prevents instantiation
+
+    // -------------------- Public Methods -------------------
+
+    /** Returns the counter with some name, creating it if required.
+     * @param name The name of the timed operation.
+     * @return The counter.
+     */
+    public static synchronized TimingCounter get(String name) {
+        TimingCounter c = counters.get(name);
+        if (c==null) {
+            c = new TimingCounter(name);
+            counters.put(name,c);
+            if (registered) { register(c); }
+        }
+        return c;
+    }
+
+    /** Returns the counter for running the calculations required before painting a type of measurement.
+     * @param type The measurement type string.
+     * @return The counter.
+     */
+    public static TimingCounter prepare(String type) { return get("Prepare " + type); }
+
+    /** Returns the counter for painting a type of measurement.
+     * @param type The measurement type string.
+     * @return The counter.
+     */
+    public static TimingCounter paint(String type) { return get("Paint " + type); }
+
+    /** Returns all the counters in order of creation.
+     * @return A new list of the counters.
+     */
+    public static synchronized List<TimingCounter> all() {
+        return new ArrayList<>(counters.values());
+    }
+
+    /** Sets all counts and times back to zero. */
+    public static void resetAll() {
+        for (TimingCounter c : all()) { c.reset(); }
+    }
+
+    /** Returns a string describing all the counters, one per line, leaving out any that were never used.
+     * @return The string.
+     */
+    public static String statisticsString() {
+        String s = "";
+        for (TimingCounter c : all()) {
+            if (c.getCount()==0) { continue; }
+            if (!s.isEmpty()) { s += System.lineSeparator(); }
+            s += c.toString();
+        }
+        if (s.isEmpty()) { s = "Nothing has been timed yet."; }
+        return s;
+    }
+
+    /** Registers all the counters with the platform MBean server, along with any created later.
+     * Registration problems are ignored because the counters are only for diagnostics.
+     */
+    public static synchronized void registerMBeans() {
+        if (registered) { return; }
+        registered = true;
+        for (TimingCounter c : counters.values()) { register(c); }
+    }
+
+    // -------------------- Private Methods -------------------
+
+    private static void register(TimingCounter c) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":type=Timing,name=" + ObjectName.quote(c.getName()));
+            if (!server.isRegistered(name)) { server.registerMBean(c,name); }
+        } catch (JMException | SecurityException e) {
+            // ignore: the counter is still available in the diagnostics dialog
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package jmorph.geometry;
+
+import geometry.MyPoint2D;
+import geometry.MyPoint2DVector;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.util.HashSet;
+
+/** Static methods for painting dense geometry with no more detail than the screen can show.
+ * Polylines are simplified to within a fraction of a screen pixel and point markers
+ * that would land on top of an already painted marker are skipped.
+ * @author Peter Lelievre
+ */
+public final class LevelOfDetail {
+
+    /** The largest distance in screen pixels that a simplified polyline may stray from the original. */
+    public static final double TOLERANCE_PIXELS = 0.5;
+
+    private LevelOfDetail() {} // prevents instantiation
+
+    /** Returns the zoom level for a scaling: scalings between successive powers of two share a level.
+     * @param scaling The number of screen pixels per image pixel.
+     * @return The zoom level.
+     */
+    public static int zoomLevel(double scaling) {
+        return (int)Math.floor( Math.log(scaling)/Math.log(2.0) );
+    }
+
+    /** Returns the simplification tolerance in image pixels for a zoom level.
+     * The tolerance is calculated for the largest scaling in the level so it holds for all scalings in the level.
+     * @param level The zoom level.
+     * @return The tolerance in image pixels.
+     */
+    public static double tolerance(int level) {
+        return TOLERANCE_PIXELS / Math.pow(2.0,level+1);
+    }
+
+    /** Paints points as circles in the same way as PaintingUtils.paintPoints but skips
+     * any point that falls in the same screen cell (half the circle width) as a point already painted.
+     * @param g2 A Graphics2D object to paint with.
+     * @param trans An AffineTransform to use while painting.
+     * @param points The points to paint.
+     * @param width The width of the circles.
+     * @param filled Set to true to paint filled circles.
+     */
+    public static void paintPoints(Graphics2D g2, AffineTransform trans, MyPoint2DVector points, int width, boolean filled) {
+        if (points==null) { return; }
+        Culler culler = new Culler(width);
+        double[] p = new double[2];
+        for ( int i=0 ; i<points.size() ; i++ ) {
+            MyPoint2D q = points.get(i);
+            p[0] = q.getX();
+            p[1] = q.getY();
+            trans.transform(p,0,p,0,1);
+            if (culler.skip(p[0],p[1])) { continue; }
+            paintPoint(g2,p[0],p[1],width,filled);
+        }
+    }
+
+    /** Paints a circle centred on a point in panel coordinates, in the same way as PaintingUtils.paintPoint. */
+    static void paintPoint(Graphics2D g2, double px, double py, int width, boolean filled) {
+        int x = (int)px - width/2;
+        int y = (int)py - width/2;
+        if (filled) {
+            g2.fillOval(x,y,width,width);
+        } else {
+            g2.drawOval(x,y,width,width);
+        }
+    }
+
+    // -------------------- Culler -------------------
+
+    /** Keeps track of the screen cells that already hold a painted point marker. */
+    static final class Culler {
+        private final double cell; // the cell size in screen pixels
+        private final HashSet<Long> occupied = new HashSet<>(); // the cells holding a marker
+        Culler(int width) {
+            cell = Math.max(1.0,0.5*width);
+        }
+        /** Returns true if a marker is already painted in the cell holding a point, otherwise marks the cell as occupied. */
+        boolean skip(double x, double y) {
+            long i = (long)Math.floor(x/cell);
+            long j = (long)Math.floor(y/cell);
+            return !occupied.add( (i<<32) ^ (j & 0xFFFFFFFFL) );
+        }
+    }
+
+    // -------------------- Cache -------------------
+
+    /** Holds a simplified copy of a polygon for the most recent zoom level.
+     * The copy is recalculated if the polygon object or the zoom level changes.
+     */
+    public static final class Cache {
+        private PackedPolygon source = null; // the polygon that was simplified
+        private int level = Integer.MIN_VALUE; // the zoom level it was simplified for
+        private PackedPolygon simplified = null; // the simplified polygon
+        /** Returns a simplified copy of a polygon for painting at some scaling.
+         * @param poly The polygon (should not be changed after it is passed in).
+         * @param scaling The number of screen pixels per image pixel.
+         * @return The simplified polygon (null if poly is null).
+         */
+        public PackedPolygon get(PackedPolygon poly, double scaling) {
+            if (poly==null) { return null; }
+            int lev = zoomLevel(scaling);
+            if ( poly!=source || lev!=level ) {
+                simplified = poly.simplify(tolerance(lev));
+                source = poly;
+                level = lev;
+            }
+            return simplified;
+        }
+    }
+
+}
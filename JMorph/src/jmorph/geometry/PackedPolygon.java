@@ -0,0 +1,312 @@
+package jmorph.geometry;
+
+import geometry.MyPoint2D;
+import geometry.MyPoint2DVector;
+import geometry.MyPolygon;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/** A polygon with its coordinates stored in parallel arrays of doubles.
+ * This provides the same calculations as the MyPolygon class but avoids
+ * creating an object for every coordinate point.
+ * The polygon is implicitly closed (the last point connects to the first).
+ * @author Peter Lelievre
+ */
+public class PackedPolygon {
+
+    // -------------------- Properties -------------------
+
+    private static final int DEFAULT_CAPACITY = 16; // initial length of the coordinate arrays
+
+    private double[] xs; // the x coordinates (only the first n are used)
+    private double[] ys; // the y coordinates (only the first n are used)
+    private int n = 0; // the number of points in the polygon
+
+    // ------------------- Constructors ------------------
+
+    public PackedPolygon() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The number of points to allocate space for.
+     */
+    public PackedPolygon(int capacity) {
+        capacity = Math.max(1,capacity);
+        xs = new double[capacity];
+        ys = new double[capacity];
+    }
+
+    /** Copies the coordinates in a MyPoint2DVector object.
+     * @param v The coordinates to copy.
+     */
+    public PackedPolygon(MyPoint2DVector v) {
+        this(v.size());
+        for ( int i=0 ; i<v.size() ; i++ ) {
+            MyPoint2D p = v.get(i);
+            add(p.getX(),p.getY());
+        }
+    }
+
+    // -------------------- Deep Copy -------------------
+
+    /** Deep copies the object.
+     * @return A new object copied from this one.
+     */
+    public PackedPolygon deepCopy() {
+        PackedPolygon out = new PackedPolygon(n);
+        System.arraycopy(xs,0,out.xs,0,n);
+        System.arraycopy(ys,0,out.ys,0,n);
+        out.n = n;
+        return out;
+    }
+
+    // -------------------- Getters -------------------
+
+    /** Returns the number of points in the polygon.
+     * @return The number of points in the polygon.
+     */
+    public int size() { return n; }
+
+    /** Returns the x coordinate of a point.
+     * @param i The index of the point.
+     * @return The x coordinate of the point.
+     */
+    public double getX(int i) { return xs[i]; }
+
+    /** Returns the y coordinate of a point.
+     * @param i The index of the point.
+     * @return The y coordinate of the point.
+     */
+    public double getY(int i) { return ys[i]; }
+
+    /** Returns a new MyPoint2D object holding the coordinates of a point.
+     * @param i The index of the point.
+     * @return A new point object.
+     */
+    public MyPoint2D get(int i) { return new MyPoint2D(xs[i],ys[i]); }
+
+    // -------------------- Public Methods -------------------
+
+    /** Adds a point to the end of the polygon.
+     * @param x The x coordinate of the point.
+     * @param y The y coordinate of the point.
+     */
+    public void add(double x, double y) {
+        if (n==xs.length) {
+            int len = 2*n;
+            xs = Arrays.copyOf(xs,len);
+            ys = Arrays.copyOf(ys,len);
+        }
+        xs[n] = x;
+        ys[n] = y;
+        n++;
+    }
+
+    /** Adds a point to the end of the polygon.
+     * @param p The point to add (only the coordinates are stored).
+     */
+    public void add(MyPoint2D p) {
+        add(p.getX(),p.getY());
+    }
+
+    /** Removes all points from the polygon. */
+    public void clear() {
+        n = 0;
+    }
+
+    /** Calculates the signed area of the polygon.
+     * @return The signed area, which is negative if the points are ordered clockwise.
+     */
+    public double signedArea() {
+        double a = 0.0;
+        for ( int i=0 ; i<n ; i++ ) {
+            int j = ( i+1==n ? 0 : i+1 );
+            a += xs[i]*ys[j] - ys[i]*xs[j];
+        }
+        return 0.5*a;
+    }
+
+    /** Calculates the area of the polygon.
+     * @return The (positive) area of the polygon.
+     */
+    public double area() {
+        return Math.abs(signedArea());
+    }
+
+    /** Returns true if the points in the polygon are ordered clockwise.
+     * @return True if the signed area of the polygon is negative.
+     */
+    public boolean isClockwise() {
+        return ( signedArea() < 0.0 );
+    }
+
+    /** Calculates the centroid (centre of mass) of the polygon.
+     * @return A new point holding the centroid.
+     */
+    public MyPoint2D com() {
+        double cx = 0.0;
+        double cy = 0.0;
+        double a = 0.0;
+        for ( int i=0 ; i<n ; i++ ) {
+            int j = ( i+1==n ? 0 : i+1 );
+            double d = xs[i]*ys[j] - ys[i]*xs[j];
+            a += d;
+            cx += ( xs[i] + xs[j] )*d;
+            cy += ( ys[i] + ys[j] )*d;
+        }
+        a *= 3.0; // 6 times the signed area
+        return new MyPoint2D( cx/a , cy/a );
+    }
+
+    /** Calculates the perimeter of the polygon.
+     * @return The length of the closed polygon.
+     */
+    public double length() {
+        double len = 0.0;
+        for ( int i=0 ; i<n ; i++ ) {
+            int j = ( i+1==n ? 0 : i+1 );
+            len += Math.hypot( xs[j]-xs[i] , ys[j]-ys[i] );
+        }
+        return len;
+    }
+
+    /** Calculates the bounding box of the polygon.
+     * @return A new rectangle, or null if the polygon has no points.
+     */
+    public Rectangle2D bounds() {
+        if (n==0) { return null; }
+        double x1 = xs[0], x2 = xs[0];
+        double y1 = ys[0], y2 = ys[0];
+        for ( int i=1 ; i<n ; i++ ) {
+            x1 = Math.min(x1,xs[i]);
+            x2 = Math.max(x2,xs[i]);
+            y1 = Math.min(y1,ys[i]);
+            y2 = Math.max(y2,ys[i]);
+        }
+        return new Rectangle2D.Double(x1,y1,x2-x1,y2-y1);
+    }
+
+    /** Transforms all the points in the polygon.
+     * @param trans The transform to apply.
+     */
+    public void transform(AffineTransform trans) {
+        double m00 = trans.getScaleX();
+        double m01 = trans.getShearX();
+        double m02 = trans.getTranslateX();
+        double m10 = trans.getShearY();
+        double m11 = trans.getScaleY();
+        double m12 = trans.getTranslateY();
+        for ( int i=0 ; i<n ; i++ ) {
+            double x = xs[i];
+            double y = ys[i];
+            xs[i] = m00*x + m01*y + m02;
+            ys[i] = m10*x + m11*y + m12;
+        }
+    }
+
+    /** Adds the points in the polygon to a general path object.
+     * The first point is added using path.moveTo() and the subsequent points are added using path.lineTo().
+     * The path is not closed.
+     * @param path The path to add the points to.
+     */
+    public void addToPath(GeneralPath path) {
+        if (n==0) { return; }
+        path.moveTo(xs[0],ys[0]);
+        for ( int i=1 ; i<n ; i++ ) {
+            path.lineTo(xs[i],ys[i]);
+        }
+    }
+
+    /** Paints the points in the polygon as circles, in the same way as PaintingUtils.paintPoints.
+     * Points that fall on top of a circle already painted are skipped (see LevelOfDetail.paintPoints).
+     * @param g2 A Graphics2D object to paint with.
+     * @param trans An AffineTransform to use while painting.
+     * @param width The width of the circles.
+     * @param filled Set to true to paint filled circles.
+     */
+    public void paintPoints(Graphics2D g2, AffineTransform trans, int width, boolean filled) {
+        LevelOfDetail.Culler culler = new LevelOfDetail.Culler(width);
+        double[] p = new double[2];
+        for ( int i=0 ; i<n ; i++ ) {
+            p[0] = xs[i];
+            p[1] = ys[i];
+            trans.transform(p,0,p,0,1);
+            if (culler.skip(p[0],p[1])) { continue; }
+            LevelOfDetail.paintPoint(g2,p[0],p[1],width,filled);
+        }
+    }
+
+    /** Simplifies the polygon using the Douglas-Peucker algorithm.
+     * The first and last points are always kept and no removed point lies further than the tolerance
+     * from the simplified polyline joining them.
+     * @param tolerance The largest allowed distance between a removed point and the simplified polyline.
+     * @return A new simplified polygon.
+     */
+    public PackedPolygon simplify(double tolerance) {
+        if ( n<3 || !(tolerance>0.0) ) { return deepCopy(); }
+        double tol2 = tolerance*tolerance;
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n-1] = true;
+        int m = 2; // the number of points kept
+        // Use an explicit stack of (start,end) index pairs rather than recursion to handle long polylines:
+        int[] stack = new int[2*n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n-1;
+        while (top>0) {
+            int j = stack[--top];
+            int i = stack[--top];
+            if (j-i<2) { continue; }
+            double ax = xs[i];
+            double ay = ys[i];
+            double dx = xs[j] - ax;
+            double dy = ys[j] - ay;
+            double len2 = dx*dx + dy*dy;
+            double dmax = -1.0;
+            int kmax = -1;
+            for ( int k=i+1 ; k<j ; k++ ) {
+                double px = xs[k] - ax;
+                double py = ys[k] - ay;
+                // Squared distance from point k to the segment from point i to point j:
+                double t = ( len2==0.0 ? 0.0 : Math.max(0.0,Math.min(1.0,(px*dx+py*dy)/len2)) );
+                double ex = px - t*dx;
+                double ey = py - t*dy;
+                double d = ex*ex + ey*ey;
+                if (d>dmax) {
+                    dmax = d;
+                    kmax = k;
+                }
+            }
+            if (dmax>tol2) {
+                keep[kmax] = true;
+                m++;
+                stack[top++] = i;
+                stack[top++] = kmax;
+                stack[top++] = kmax;
+                stack[top++] = j;
+            }
+        }
+        PackedPolygon out = new PackedPolygon(m);
+        for ( int i=0 ; i<n ; i++ ) {
+            if (keep[i]) { out.add(xs[i],ys[i]); }
+        }
+        return out;
+    }
+
+    /** Copies the points into a MyPolygon object.
+     * @return A new MyPolygon object.
+     */
+    public MyPolygon toMyPolygon() {
+        MyPolygon out = new MyPolygon();
+        for ( int i=0 ; i<n ; i++ ) {
+            out.add( new MyPoint2D(xs[i],ys[i]) );
+        }
+        return out;
+    }
+
+}
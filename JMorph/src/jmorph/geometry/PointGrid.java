@@ -0,0 +1,201 @@
+package jmorph.geometry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/** A uniform grid of square cells holding points, for finding the point nearest some location
+ * without checking every point. Each point belongs to an owner (e.g. a measurement) and has an
+ * index within that owner; all the points of an owner can be removed together so the grid can be
+ * updated one owner at a time. Only cells holding points are stored.
+ * @author Peter Lelievre
+ */
+public final class PointGrid {
+
+    // -------------------- Properties -------------------
+
+    private final double cellSize; // the width of the cells
+    private final HashMap<Long,ArrayList<Entry>> cells = new HashMap<>(); // the points in each occupied cell
+    private final HashMap<Integer,HashSet<Long>> ownerCells = new HashMap<>(); // the cells holding points for each owner
+    private int size = 0; // the number of points in the grid
+    private int minI = Integer.MAX_VALUE, maxI = Integer.MIN_VALUE; // the range of occupied cell columns (not reduced by removals)
+    private int minJ = Integer.MAX_VALUE, maxJ = Integer.MIN_VALUE; // the range of occupied cell rows (not reduced by removals)
+
+    // ------------------- Constructor ------------------
+
+    /**
+     * @param cellSize The width of the cells, which should be similar to the typical distance searched.
+     */
+    public PointGrid(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    // -------------------- Getters -------------------
+
+    /** Returns the number of points in the grid.
+     * @return The number of points in the grid.
+     */
+    public int size() { return size; }
+
+    // -------------------- Public Methods -------------------
+
+    /** Adds a point to the grid.
+     * @param owner The owner of the point.
+     * @param index The index of the point within its owner.
+     * @param x The x coordinate of the point.
+     * @param y The y coordinate of the point.
+     */
+    public void add(int owner, int index, double x, double y) {
+        int i = cell(x);
+        int j = cell(y);
+        long key = key(i,j);
+        cells.computeIfAbsent(key, k -> new ArrayList<>()).add(new Entry(owner,index,x,y));
+        ownerCells.computeIfAbsent(owner, k -> new HashSet<>()).add(key);
+        minI = Math.min(minI,i);
+        maxI = Math.max(maxI,i);
+        minJ = Math.min(minJ,j);
+        maxJ = Math.max(maxJ,j);
+        size++;
+    }
+
+    /** Removes all the points belonging to an owner.
+     * @param owner The owner of the points.
+     */
+    public void removeOwner(int owner) {
+        HashSet<Long> keys = ownerCells.remove(owner);
+        if (keys==null) { return; }
+        for (Long key : keys) {
+            ArrayList<Entry> list = cells.get(key);
+            int n = list.size();
+            list.removeIf( e -> e.owner==owner );
+            size -= n - list.size();
+            if (list.isEmpty()) { cells.remove(key); }
+        }
+    }
+
+    /** Removes all points from the grid. */
+    public void clear() {
+        cells.clear();
+        ownerCells.clear();
+        size = 0;
+        minI = minJ = Integer.MAX_VALUE;
+        maxI = maxJ = Integer.MIN_VALUE;
+    }
+
+    /** Finds the point nearest a location, searching outwards from the cell holding the location
+     * so only the cells near the location are checked.
+     * @param x The x coordinate of the location.
+     * @param y The y coordinate of the location.
+     * @param owner Only points belonging to this owner are considered (use a negative value to consider all owners).
+     * @param maxDistance Only points within this distance are considered (may be infinite).
+     * @return The nearest point, or null if there are none within the distance.
+     */
+    public Entry nearest(double x, double y, int owner, double maxDistance) {
+        return nearest( x , y , ( owner<0 ? null : (int o) -> o==owner ) , maxDistance );
+    }
+
+    /** Finds the point nearest a location, considering only the points whose owners are accepted by a filter.
+     * @param x The x coordinate of the location.
+     * @param y The y coordinate of the location.
+     * @param accept Returns true for the owners to consider (null to consider all owners).
+     * @param maxDistance Only points within this distance are considered (may be infinite).
+     * @return The nearest point, or null if there are none within the distance.
+     */
+    public Entry nearest(double x, double y, IntPredicate accept, double maxDistance) {
+        if (size==0) { return null; }
+        int ci = cell(x);
+        int cj = cell(y);
+        // Rings further out than this can't hold any points:
+        long rMax = Math.max( Math.max( (long)ci-minI , (long)maxI-ci ) , Math.max( (long)cj-minJ , (long)maxJ-cj ) );
+        if (maxDistance<Double.POSITIVE_INFINITY) {
+            rMax = Math.min( rMax , (long)Math.ceil(maxDistance/cellSize) + 1 );
+        }
+        if (rMax<0) { return null; }
+        Search s = new Search(x,y,accept,maxDistance);
+        long visited = 0;
+        for ( long r=0 ; r<=rMax ; r++ ) {
+            // All points in ring r are at least (r-1) cell widths away:
+            double dmin = (r-1)*cellSize;
+            if ( r>1 && dmin*dmin>s.bestD2 ) { break; }
+            // If the rings cover more cells than are occupied then it is quicker to check all of them:
+            visited += ( r==0 ? 1 : 8*r );
+            if (visited>cells.size()) {
+                for (ArrayList<Entry> list : cells.values()) { s.check(list); }
+                return s.best;
+            }
+            for ( long i=ci-r ; i<=ci+r ; i++ ) {
+                if ( i==ci-r || i==ci+r ) {
+                    // Check the whole column:
+                    for ( long j=cj-r ; j<=cj+r ; j++ ) { s.check(cells.get(key(i,j))); }
+                } else {
+                    // Check the top and bottom of the column:
+                    s.check(cells.get(key(i,cj-r)));
+                    s.check(cells.get(key(i,cj+r)));
+                }
+            }
+        }
+        return s.best;
+    }
+
+    // -------------------- Private Methods -------------------
+
+    private int cell(double v) {
+        return (int)Math.floor(v/cellSize);
+    }
+
+    private static long key(long i, long j) {
+        return (i<<32) ^ (j & 0xFFFFFFFFL);
+    }
+
+    // -------------------- Entry -------------------
+
+    /** A point held in the grid. */
+    public static final class Entry {
+        private final int owner; // the owner of the point
+        private final int index; // the index of the point within its owner
+        private final double x, y; // the point coordinates
+        private Entry(int owner, int index, double x, double y) {
+            this.owner = owner;
+            this.index = index;
+            this.x = x;
+            this.y = y;
+        }
+        public int getOwner() { return owner; }
+        public int getIndex() { return index; }
+        public double getX() { return x; }
+        public double getY() { return y; }
+    }
+
+    // -------------------- Search -------------------
+
+    /** Keeps track of the nearest point found so far during a search. */
+    private static final class Search {
+        private final double x, y; // the location searched around
+        private final IntPredicate accept; // returns true for the owners to consider (null for all)
+        private Entry best = null; // the nearest point found so far
+        private double bestD2; // the squared distance to that point (or the squared maximum distance)
+        private Search(double x, double y, IntPredicate accept, double maxDistance) {
+            this.x = x;
+            this.y = y;
+            this.accept = accept;
+            bestD2 = maxDistance*maxDistance;
+        }
+        private void check(List<Entry> list) {
+            if (list==null) { return; }
+            for (Entry e : list) {
+                if ( accept!=null && !accept.test(e.owner) ) { continue; }
+                double dx = e.x - x;
+                double dy = e.y - y;
+                double d2 = dx*dx + dy*dy;
+                // Ties are broken by the lowest owner then the lowest index so the result doesn't depend on the search order:
+                if ( d2<bestD2 || ( d2==bestD2 && best!=null && ( e.owner<best.owner || ( e.owner==best.owner && e.index<best.index ) ) ) ) {
+                    best = e;
+                    bestD2 = d2;
+                }
+            }
+        }
+    }
+
+}
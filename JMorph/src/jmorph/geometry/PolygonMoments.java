@@ -0,0 +1,187 @@
+package jmorph.geometry;
+
+import geometry.MyPoint2D;
+
+/** The area moments (zeroth, first and second) of a polygon and some shape descriptors derived from them.
+ * The moments are calculated in a single pass over the polygon edges using Green's theorem.
+ * They can also be constructed from area integrals calculated elsewhere (e.g. over a spline curve).
+ * The second moments are central (about the centroid) and normalized by the area,
+ * so they are the variances and covariance of the polygon's area.
+ * @author Peter Lelievre
+ */
+public final class PolygonMoments {
+
+    // -------------------- Properties -------------------
+
+    private double signedArea = 0.0; // the signed area (negative if the polygon is clockwise)
+    private double xc = 0.0; // the centroid x coordinate
+    private double yc = 0.0; // the centroid y coordinate
+    private double sxx = 0.0; // the central second moment in x normalized by the area
+    private double syy = 0.0; // the central second moment in y normalized by the area
+    private double sxy = 0.0; // the central cross moment normalized by the area
+
+    // ------------------- Constructor ------------------
+
+    /** Calculates the moments of a polygon.
+     * @param poly The polygon (implicitly closed).
+     */
+    public PolygonMoments(PackedPolygon poly) {
+
+        // Check for a degenerate polygon:
+        int n = poly.size();
+        if (n==0) { return; }
+
+        // Work relative to the first point to reduce round-off error:
+        double x0 = poly.getX(0);
+        double y0 = poly.getY(0);
+
+        // Sum the contributions from each edge:
+        double a=0.0, ax=0.0, ay=0.0, axx=0.0, ayy=0.0, axy=0.0;
+        double x1,y1,x2,y2,c;
+        x2 = 0.0;
+        y2 = 0.0;
+        for ( int i=0 ; i<n ; i++ ) {
+            x1 = x2;
+            y1 = y2;
+            int j = ( i+1==n ? 0 : i+1 );
+            x2 = poly.getX(j) - x0;
+            y2 = poly.getY(j) - y0;
+            c = x1*y2 - x2*y1;
+            a += c;
+            ax += ( x1 + x2 )*c;
+            ay += ( y1 + y2 )*c;
+            axx += ( x1*x1 + x1*x2 + x2*x2 )*c;
+            ayy += ( y1*y1 + y1*y2 + y2*y2 )*c;
+            axy += ( x1*y2 + 2.0*x1*y1 + 2.0*x2*y2 + x2*y1 )*c;
+        }
+
+        // Convert the sums to area integrals:
+        set( x0, y0, 0.5*a, ax/6.0, ay/6.0, axx/12.0, ayy/12.0, axy/24.0 );
+
+    }
+
+    /** Sets the moments from signed area integrals calculated relative to some origin.
+     * Each integral should be negative if the boundary is clockwise.
+     * @param x0 The x coordinate of the origin.
+     * @param y0 The y coordinate of the origin.
+     * @param a The signed area.
+     * @param ax The integral of x over the area.
+     * @param ay The integral of y over the area.
+     * @param axx The integral of x*x over the area.
+     * @param ayy The integral of y*y over the area.
+     * @param axy The integral of x*y over the area.
+     */
+    public PolygonMoments(double x0, double y0, double a, double ax, double ay, double axx, double ayy, double axy) {
+        set(x0,y0,a,ax,ay,axx,ayy,axy);
+    }
+
+    // -------------------- Getters -------------------
+
+    /** Returns the signed area.
+     * @return The signed area, which is negative if the polygon is clockwise.
+     */
+    public double getSignedArea() { return signedArea; }
+
+    /** Returns the area.
+     * @return The (positive) area.
+     */
+    public double getArea() { return Math.abs(signedArea); }
+
+    /** Returns true if the polygon is clockwise.
+     * @return True if the signed area is negative.
+     */
+    public boolean isClockwise() { return ( signedArea < 0.0 ); }
+
+    /** Returns the centroid x coordinate.
+     * @return The centroid x coordinate.
+     */
+    public double getCentroidX() { return xc; }
+
+    /** Returns the centroid y coordinate.
+     * @return The centroid y coordinate.
+     */
+    public double getCentroidY() { return yc; }
+
+    /** Returns a new point holding the centroid.
+     * @return A new point holding the centroid.
+     */
+    public MyPoint2D getCentroid() { return new MyPoint2D(xc,yc); }
+
+    // -------------------- Shape Descriptors -------------------
+
+    /** Returns the length of the major axis of the ellipse with the same second moments.
+     * @return The major axis length (in the polygon coordinate units).
+     */
+    public double majorAxis() {
+        return 4.0*Math.sqrt( Math.max( 0.0 , largerEigenvalue() ) );
+    }
+
+    /** Returns the length of the minor axis of the ellipse with the same second moments.
+     * @return The minor axis length (in the polygon coordinate units).
+     */
+    public double minorAxis() {
+        return 4.0*Math.sqrt( Math.max( 0.0 , smallerEigenvalue() ) );
+    }
+
+    /** Returns the orientation of the major axis.
+     * @return The angle from the positive x axis to the major axis, in radians on [-pi/2,pi/2].
+     */
+    public double orientation() {
+        return 0.5*Math.atan2( 2.0*sxy , sxx-syy );
+    }
+
+    /** Returns the eccentricity of the ellipse with the same second moments.
+     * @return The eccentricity (0 for a circle, approaching 1 for a line).
+     */
+    public double eccentricity() {
+        double l1 = largerEigenvalue();
+        if (l1<=0.0) { return 0.0; }
+        double l2 = Math.max( 0.0 , smallerEigenvalue() );
+        return Math.sqrt( 1.0 - l2/l1 );
+    }
+
+    /** Returns the radius of gyration about the centroid.
+     * @return The radius of gyration (in the polygon coordinate units).
+     */
+    public double radiusOfGyration() {
+        return Math.sqrt( Math.max( 0.0 , sxx+syy ) );
+    }
+
+    // -------------------- Private Methods -------------------
+
+    private void set(double x0, double y0, double a, double ax, double ay, double axx, double ayy, double axy) {
+
+        // Check for zero area:
+        signedArea = a;
+        if (a==0.0) {
+            xc = x0;
+            yc = y0;
+            return;
+        }
+
+        // Calculate the centroid (relative to the origin):
+        double cx = ax / a;
+        double cy = ay / a;
+        xc = x0 + cx;
+        yc = y0 + cy;
+
+        // Calculate the central second moments normalized by the area:
+        sxx = axx / a - cx*cx;
+        syy = ayy / a - cy*cy;
+        sxy = axy / a - cx*cy;
+
+    }
+
+    private double largerEigenvalue() {
+        return 0.5*( sxx + syy ) + eigenvalueHalfDifference();
+    }
+
+    private double smallerEigenvalue() {
+        return 0.5*( sxx + syy ) - eigenvalueHalfDifference();
+    }
+
+    private double eigenvalueHalfDifference() {
+        return Math.hypot( 0.5*( sxx - syy ) , sxy );
+    }
+
+}
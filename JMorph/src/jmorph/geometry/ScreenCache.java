@@ -0,0 +1,140 @@
+package jmorph.geometry;
+
+import geometry.MyPoint2D;
+import geometry.MyPoint2DVector;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+
+/** Holds a path and a set of points already transformed to panel coordinates, so that repeated
+ * painting doesn't rebuild and transform them every time. The cache is keyed by the identity of the
+ * object the geometry was built from, a version number, the transform, the scaling and one flag
+ * (e.g. whether the path is closed); the update method reports when any of these has changed.
+ * @author Peter Lelievre
+ */
+public final class ScreenCache {
+
+    // -------------------- Properties -------------------
+
+    private Object source = null; // the object the geometry was built from (compared by identity)
+    private long version = -1; // the version of that object
+    private final AffineTransform trans = new AffineTransform(); // the transform to panel coordinates
+    private double scal = Double.NaN; // the scaling involved in the transform
+    private boolean flag = false; // any other setting the geometry depends on
+    private boolean valid = false; // set to true once a key has been stored
+    private Path2D path = null; // the path in panel coordinates
+    private double[] points = new double[0]; // the points in panel coordinates, packed as (x,y) pairs
+    private int n = 0; // the number of points
+    private int[] culled = new int[0]; // the indices of the points left after culling overlapping markers
+    private int nCulled = 0; // the number of points left after culling
+    private int culledWidth = -1; // the marker width the culling was performed for
+
+    // -------------------- Getters -------------------
+
+    /** Returns the cached path in panel coordinates.
+     * @return The path, or null if none has been set since the last change.
+     */
+    public Path2D getPath() { return path; }
+
+    // -------------------- Public Methods -------------------
+
+    /** Checks the key for the cached geometry and, if anything has changed, stores the new key and empties the cache.
+     * @param newSource The object the geometry is built from (compared by identity).
+     * @param newVersion The version of that object.
+     * @param newTrans The transform to panel coordinates (compared by value).
+     * @param newScal The scaling involved in the transform.
+     * @param newFlag Any other setting the geometry depends on.
+     * @return True if the cache was emptied and the geometry must be set again.
+     */
+    public boolean update(Object newSource, long newVersion, AffineTransform newTrans, double newScal, boolean newFlag) {
+        if ( valid && source==newSource && version==newVersion && scal==newScal && flag==newFlag && trans.equals(newTrans) ) {
+            return false;
+        }
+        source = newSource;
+        version = newVersion;
+        trans.setTransform(newTrans);
+        scal = newScal;
+        flag = newFlag;
+        valid = true;
+        path = null;
+        n = 0;
+        culledWidth = -1;
+        return true;
+    }
+
+    /** Transforms a path to panel coordinates and stores it.
+     * @param p The path in sample image pixel coordinates (it is transformed in place).
+     * @return The stored path.
+     */
+    public Path2D setPath(GeneralPath p) {
+        p.transform(trans);
+        path = p;
+        return p;
+    }
+
+    /** Transforms points to panel coordinates and stores them.
+     * @param v The points in sample image pixel coordinates (may be null).
+     */
+    public void setPoints(MyPoint2DVector v) {
+        int m = ( v==null ? 0 : v.size() );
+        ensureCapacity(m);
+        for ( int i=0 ; i<m ; i++ ) {
+            MyPoint2D p = v.get(i);
+            points[2*i] = p.getX();
+            points[2*i+1] = p.getY();
+        }
+        setPoints(m);
+    }
+
+    /** Transforms the points in a polygon to panel coordinates and stores them.
+     * @param poly The polygon in sample image pixel coordinates (may be null).
+     */
+    public void setPoints(PackedPolygon poly) {
+        int m = ( poly==null ? 0 : poly.size() );
+        ensureCapacity(m);
+        for ( int i=0 ; i<m ; i++ ) {
+            points[2*i] = poly.getX(i);
+            points[2*i+1] = poly.getY(i);
+        }
+        setPoints(m);
+    }
+
+    /** Paints the cached points as circles, skipping any that would land on top of one already painted
+     * (see LevelOfDetail.paintPoints). The points left after culling are remembered for the next time.
+     * @param g2 A Graphics2D object to paint with.
+     * @param width The width of the circles.
+     * @param filled Set to true to paint filled circles.
+     */
+    public void paintPoints(Graphics2D g2, int width, boolean filled) {
+        if (width!=culledWidth) { cull(width); }
+        for ( int k=0 ; k<nCulled ; k++ ) {
+            int i = culled[k];
+            LevelOfDetail.paintPoint(g2,points[2*i],points[2*i+1],width,filled);
+        }
+    }
+
+    // -------------------- Private Methods -------------------
+
+    private void ensureCapacity(int m) {
+        if (points.length<2*m) { points = new double[2*m]; }
+    }
+
+    private void setPoints(int m) {
+        trans.transform(points,0,points,0,m);
+        n = m;
+        culledWidth = -1;
+    }
+
+    private void cull(int width) {
+        if (culled.length<n) { culled = Arrays.copyOf(culled,n); }
+        LevelOfDetail.Culler culler = new LevelOfDetail.Culler(width);
+        nCulled = 0;
+        for ( int i=0 ; i<n ; i++ ) {
+            if (!culler.skip(points[2*i],points[2*i+1])) { culled[nCulled++] = i; }
+        }
+        culledWidth = width;
+    }
+
+}
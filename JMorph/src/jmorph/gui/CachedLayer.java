@@ -0,0 +1,96 @@
+package jmorph.gui;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.VolatileImage;
+import java.util.function.Consumer;
+
+/** A translucent image the size of a panel holding graphics that are expensive to paint but seldom change.
+ * The graphics are only repainted into the image when the caller says they have changed, the layer
+ * has been invalidated or the image contents are lost; otherwise the image is simply copied to the panel.
+ * The image has one pixel per device pixel (e.g. twice the panel size on a display scaled by 200%)
+ * so the cached graphics are as sharp as graphics painted directly.
+ * @author Peter Lelievre
+ */
+public final class CachedLayer {
+
+    // ------------------ Properties -------------------
+
+    private VolatileImage image = null; // the cached graphics
+    private boolean stale = true; // set to true if the graphics must be repainted into the image
+    private double scaleX = 1.0, scaleY = 1.0; // the device pixels per panel pixel the graphics were painted for
+    private long repaints = 0; // the number of times the graphics were repainted into the image
+
+    // -------------------- Getters -------------------
+
+    public long getRepaints() { return repaints; }
+
+    // -------------------- Public Methods -------------------
+
+    /** Paints the layer, first repainting the graphics into it if required.
+     * @param g2 The graphics context of the panel.
+     * @param gc The graphics configuration of the panel.
+     * @param w The panel width (in panel pixels, before any display scaling).
+     * @param h The panel height (in panel pixels, before any display scaling).
+     * @param changed Set to true if the graphics have changed since they were last painted into the layer.
+     * @param painter Paints the graphics into the (cleared) layer in panel coordinates.
+     */
+    public void paint(Graphics2D g2, GraphicsConfiguration gc, int w, int h, boolean changed, Consumer<Graphics2D> painter) {
+        boolean repaint = ( image==null || stale || changed );
+        // Size the image in device pixels using the display scaling of the screen:
+        AffineTransform device = gc.getDefaultTransform();
+        double sx = device.getScaleX();
+        double sy = device.getScaleY();
+        int dw = (int)Math.ceil(w*sx);
+        int dh = (int)Math.ceil(h*sy);
+        if ( sx!=scaleX || sy!=scaleY ) {
+            scaleX = sx;
+            scaleY = sy;
+            repaint = true;
+        }
+        // The contents of a VolatileImage can be lost at any time so loop until it is copied successfully:
+        do {
+            if ( image==null || image.getWidth()!=dw || image.getHeight()!=dh ) {
+                create(gc,dw,dh);
+                repaint = true;
+            }
+            int valid = image.validate(gc);
+            if (valid==VolatileImage.IMAGE_INCOMPATIBLE) {
+                create(gc,dw,dh);
+                repaint = true;
+            } else if (valid==VolatileImage.IMAGE_RESTORED) {
+                repaint = true;
+            }
+            if (repaint) {
+                Graphics2D lg = image.createGraphics();
+                lg.setClip(0,0,dw,dh);
+                lg.setComposite(AlphaComposite.Clear);
+                lg.fillRect(0,0,dw,dh);
+                lg.setComposite(AlphaComposite.SrcOver);
+                lg.scale(sx,sy); // paint in panel coordinates
+                painter.accept(lg);
+                lg.dispose();
+                stale = false;
+                repaints++;
+                repaint = false;
+            }
+            g2.drawImage(image,0,0,w,h,null); // one image pixel per device pixel
+        } while (image.contentsLost());
+    }
+
+    /** Forces the graphics to be repainted next time. */
+    public void invalidate() {
+        stale = true;
+    }
+
+    // -------------------- Private Methods -------------------
+
+    private void create(GraphicsConfiguration gc, int w, int h) {
+        if (image!=null) { image.flush(); }
+        image = gc.createCompatibleVolatileImage(w,h,Transparency.TRANSLUCENT);
+    }
+
+}
@@ -25,15 +25,16 @@ public final class MenuBar extends JMenuBar {
             miAllMeasurements, miAllSamples,
             miCalibrate, miOrigin,
             miZoom, miPointWidth, miLineWidth, miCalibrationColor, miRedraw,
-            miToggleMeasurements, miToggleInformationPanel, miToggleFFTCoefficients,
-            miReadAndStoreAll, miReadAndStoreAs, miReadAndStoreOne;
+            miToggleMeasurements, miToggleInformationPanel, miToggleFFTCoefficients, miToggleAdaptiveQuality,
+            miReadAndStoreAll, miReadAndStoreAs, miReadAndStoreOne, miImageCacheStatistics, miDisplayStatistics,
+            miTimingStatistics, miResetTimingStatistics;
     private MenuTaskMenuItem miLoadSession, miSaveSession, miLoadMeasurements, miSaveMeasurements, miLoadImages, miExport, miOutlines,
             miSplitSample, miChooseSample, miFirst, miPrevious, miNext, miLast, miRemoveSamples,
-            miNewMeasurement, miRemoveMeasurement, miMoveCoordinate, miAllOrder, 
+            miNewMeasurement, miRemoveMeasurement, miMoveCoordinate, miMoveNearestCoordinate, miAllOrder, 
             miClearCalibration, miCalibrationDistance, miCalibrationDistanceAll,
             miChooseMeasurement, miChooseAllMeasurements, miClearZoom,
             miResamplingPower, miHighestFFTCoefficient, miNormalizationIndex, miOutlineSpline, miFourierAnalysisMethod,
-            miMeasurementColor;
+            miMeasurementColor, miImageCacheBudget;
     private final ArrayList<MenuTaskMenuItem> menuTaskMenuItems = new ArrayList<>();
     private final ArrayList<JMenuItem> jMenuItems = new ArrayList<>();
 
@@ -81,6 +82,7 @@ public final class MenuBar extends JMenuBar {
         miNewMeasurement = makeMenuTaskMenuItem(new DefineMeasurementMenuTask(controller),listener);
         miRemoveMeasurement = makeMenuTaskMenuItem(new RemoveMeasurementMenuTask(controller),listener);
         miMoveCoordinate = makeMenuTaskMenuItem(new MoveMeasurementCoordinateMenuTask(controller),listener);
+        miMoveNearestCoordinate = makeMenuTaskMenuItem(new MoveNearestCoordinateMenuTask(controller),listener);
 
         // Build the calibration menu items:
         miAllOrder = makeMenuTaskMenuItem(new ChangeAllOrderMenuTask(controller),listener);
@@ -107,12 +109,18 @@ public final class MenuBar extends JMenuBar {
         miToggleMeasurements = makeMenuItem("Show/hide measurements","Toggle plotting of the measurement overlays",listener);
         miToggleInformationPanel = makeMenuItem("Show/hide information panel","Show or hide the information panel on the right",listener);
         miToggleFFTCoefficients = makeMenuItem("Show/hide FFT coefficients","Toggle printing of the FFT coefficiens in the information panel",listener);
+        miToggleAdaptiveQuality = makeMenuItem("Fast/full quality while moving","Toggle painting quickly (lower quality) while measuring with the mouse moving and in full quality once it stops",listener);
         miRedraw = makeMenuItem("Redraw current sample","Update the plotting of the current sample (in case something has gone wrong with the GUI)",listener);
         
         // Build the advanced menu items:
         miReadAndStoreAll = makeMenuItem("all at once","Read all images as soon as available and store all in memory.",listener);
         miReadAndStoreAs  = makeMenuItem("as encountered","Read images as needed and store all in memory.",listener);
         miReadAndStoreOne = makeMenuItem("never store","Read images as needed but never store in memory.",listener);
+        miImageCacheBudget = makeMenuTaskMenuItem(new ChangeImageCacheBudgetMenuTask(controller),listener);
+        miImageCacheStatistics = makeMenuItem("Image memory statistics","Display the memory used by stored images and the cache hit, miss and eviction counts.",listener);
+        miDisplayStatistics = makeMenuItem("Display statistics","Display the numbers of frames drawn and mouse moves skipped and the time spent painting.",listener);
+        miTimingStatistics = makeMenuItem("Timing statistics","Display the time spent loading images, analysing outlines, painting and exporting.",listener);
+        miResetTimingStatistics = makeMenuItem("Reset timing statistics","Set all the timing counts and times back to zero.",listener);
  
     }
     private MenuTaskMenuItem makeMenuTaskMenuItem(MenuTask task, ActionListener listener) {
@@ -170,6 +178,7 @@ public final class MenuBar extends JMenuBar {
         measureMenu.add(miNewMeasurement);
         measureMenu.add(miRemoveMeasurement);
         measureMenu.add(miMoveCoordinate);
+        measureMenu.add(miMoveNearestCoordinate);
 
         // Build the calibration menu:
         JMenu calibrationMenu = new JMenu("Calibration");
@@ -202,6 +211,7 @@ public final class MenuBar extends JMenuBar {
         displayMenu.add(miToggleMeasurements);
         displayMenu.add(miToggleInformationPanel);
         displayMenu.add(miToggleFFTCoefficients);
+        displayMenu.add(miToggleAdaptiveQuality);
         displayMenu.add(miRedraw);
         
         // Build the advanced menu:
@@ -212,6 +222,11 @@ public final class MenuBar extends JMenuBar {
         readAndStoreMenu.add(miReadAndStoreAll);
         readAndStoreMenu.add(miReadAndStoreAs);
         readAndStoreMenu.add(miReadAndStoreOne);
+        readAndStoreMenu.add(miImageCacheBudget);
+        advancedMenu.add(miImageCacheStatistics);
+        advancedMenu.add(miDisplayStatistics);
+        advancedMenu.add(miTimingStatistics);
+        advancedMenu.add(miResetTimingStatistics);
         
     }
 
@@ -233,6 +248,7 @@ public final class MenuBar extends JMenuBar {
             else if (src == miToggleInformationPanel) { controller.toggleInformationPanel(); }
             else if (src == miRedraw) { controller.drawCurrentSample(false); }
             else if (src == miToggleFFTCoefficients) { controller.toggleFFTCoefficients(); }
+            else if (src == miToggleAdaptiveQuality) { controller.toggleAdaptiveQuality(); }
             else if (src == miZoom) { controller.measureZoom(); }
             else if (src == miPointWidth) { controller.selectPointWidth(); }
             else if (src == miLineWidth) { controller.selectLineWidth(); }
@@ -244,6 +260,10 @@ public final class MenuBar extends JMenuBar {
             else if (src == miReadAndStoreAll) { controller.readAndStoreAll(); }
             else if (src == miReadAndStoreAs ) { controller.readAndStoreAs(); }
             else if (src == miReadAndStoreOne) { controller.readAndStoreOne(); }
+            else if (src == miImageCacheStatistics) { controller.imageCacheStatistics(); }
+            else if (src == miDisplayStatistics) { controller.displayStatistics(); }
+            else if (src == miTimingStatistics) { controller.timingStatistics(); }
+            else if (src == miResetTimingStatistics) { controller.resetTimingStatistics(); }
         }
     }
 
@@ -284,9 +304,14 @@ public final class MenuBar extends JMenuBar {
         miRedraw.setEnabled(true);
         miToggleInformationPanel.setEnabled(true);
         miToggleFFTCoefficients.setEnabled(true);
+        miToggleAdaptiveQuality.setEnabled(true);
         miPointWidth.setEnabled(true);
         miLineWidth.setEnabled(true);
         miCalibrationColor.setEnabled(true);
+        miImageCacheStatistics.setEnabled(true);
+        miDisplayStatistics.setEnabled(true);
+        miTimingStatistics.setEnabled(true);
+        miResetTimingStatistics.setEnabled(true);
         
         // Some items are only available there are samples and an image exists for the current sample:
         miCalibrate.setEnabled(imageExists);
@@ -316,6 +341,11 @@ public final class MenuBar extends JMenuBar {
         } else {
             miToggleFFTCoefficients.setText("Show FFT coefficients");
         }
+        if (controller.getAdaptiveQuality()) {
+            miToggleAdaptiveQuality.setText("Full quality while moving");
+        } else {
+            miToggleAdaptiveQuality.setText("Fast quality while moving");
+        }
         
         // These things can only have one selection amongst themselves:
         if (controller.getReadAll()) {
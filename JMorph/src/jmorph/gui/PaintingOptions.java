@@ -8,11 +8,16 @@ import gui.CommonPaintingOptions;
  */
 public final class PaintingOptions extends CommonPaintingOptions {
     
+    /** The default time in milliseconds after the last mouse move before repainting in high quality. */
+    public static final int DEFAULT_IDLE_DELAY = 250;
+    
     private JMorph controller;
     
     private boolean displayMeasurements = true; // whether or not to display the selected measurements in the sample image panel
     private boolean displayFFTCoefficients = false; // whether or not to write the FFT coefficients in the information panel
     private boolean displayInfoPanel = true; // whether or not to display the measurement information panel
+    private boolean adaptiveQuality = true; // whether or not to paint quickly (nearest neighbour images, no antialiasing) while the mouse is moving during measuring
+    private int idleDelay = DEFAULT_IDLE_DELAY; // the time in milliseconds after the last mouse move before repainting in high quality
     
     public PaintingOptions(JMorph con) {
         super(con);
@@ -22,9 +27,13 @@ public final class PaintingOptions extends CommonPaintingOptions {
     public boolean getDisplayMeasurements() { return displayMeasurements; }
     public boolean getDisplayFFTCoefficients(){ return displayFFTCoefficients; }
     public boolean getDisplayInfoPanel() { return displayInfoPanel; }
+    public boolean getAdaptiveQuality() { return adaptiveQuality; }
+    public int getIdleDelay() { return idleDelay; }
     
     public void setDisplayMeasurements(boolean b) { displayMeasurements=b; }
     public void setDisplayFFTCoefficients(boolean b) { displayFFTCoefficients = b; }
+    public void setAdaptiveQuality(boolean b) { adaptiveQuality = b; }
+    public void setIdleDelay(int ms) { idleDelay = Math.max(0,ms); }
     public void setDisplayInfoPanel(boolean b) {
         displayInfoPanel = b;
         if (displayInfoPanel) {
@@ -46,6 +55,11 @@ public final class PaintingOptions extends CommonPaintingOptions {
         controller.checkClickableItemsEnabled();
         controller.drawCurrentSample(false);
     }
+    public void toggleAdaptiveQuality() {
+        adaptiveQuality = !adaptiveQuality;
+        controller.checkClickableItemsEnabled();
+        controller.drawCurrentSample(false);
+    }
     public void toggleInformationPanel() {
         boolean b = !displayInfoPanel;
         setDisplayInfoPanel(b);
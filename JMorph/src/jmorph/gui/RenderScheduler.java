@@ -0,0 +1,134 @@
+package jmorph.gui;
+
+import geometry.MyPoint2D;
+import java.awt.DisplayMode;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.util.function.Consumer;
+import javax.swing.Timer;
+
+/** Coalesces cursor positions from mouse move events so that they are handled no faster than the display can show them.
+ * Only the latest position is kept: a position that arrives while another is waiting replaces it (the older one is skipped).
+ * A waiting position is handled as soon as possible if a frame interval has passed since the last one was handled,
+ * otherwise when the interval is up. All methods should be called on the event dispatch thread.
+ * The scheduler also keeps counts of the frames drawn and skipped and of the time spent painting.
+ * @author Peter Lelievre
+ */
+public final class RenderScheduler {
+
+    // ------------------ Properties -------------------
+
+    /** Refresh rate to assume if the display doesn't report one. */
+    public static final int DEFAULT_REFRESH_RATE = 60;
+
+    private final Consumer<MyPoint2D> handler; // handles the cursor positions
+    private final Timer timer; // fires when the next position can be handled
+    private final long frameInterval; // the minimum time between handled positions in nanoseconds
+    private MyPoint2D pending = null; // the latest cursor position not yet handled
+    private long lastHandled = 0; // the time the last position was handled in nanoseconds
+    private long framesHandled = 0; // the number of cursor positions handled
+    private long framesSkipped = 0; // the number of cursor positions replaced by later ones before being handled
+    private long framesDrawn = 0; // the number of times the panel was painted
+    private long paintNanos = 0; // the total time spent painting
+    private long maxPaintNanos = 0; // the longest time spent painting once
+
+    // ------------------ Constructor -------------------
+
+    /**
+     * @param handler Handles the cursor positions (on the event dispatch thread).
+     */
+    public RenderScheduler(Consumer<MyPoint2D> handler) {
+        this.handler = handler;
+        frameInterval = 1000000000L / refreshRate();
+        timer = new Timer( (int)Math.max(1,frameInterval/1000000L) , (e) -> flush() );
+        timer.setRepeats(false);
+    }
+
+    // -------------------- Getters -------------------
+
+    public long getFramesHandled() { return framesHandled; }
+    public long getFramesSkipped() { return framesSkipped; }
+    public long getFramesDrawn() { return framesDrawn; }
+    public long getPaintNanos() { return paintNanos; }
+    public long getMaxPaintNanos() { return maxPaintNanos; }
+
+    // -------------------- Public Methods -------------------
+
+    /** Submits a new cursor position, replacing any position still waiting to be handled.
+     * @param p The cursor position.
+     */
+    public void submit(MyPoint2D p) {
+        if (pending!=null) { framesSkipped++; }
+        pending = p;
+        if (timer.isRunning()) { return; } // the waiting position will be handled when the timer fires
+        long wait = frameInterval - (System.nanoTime()-lastHandled);
+        if (wait<=0) {
+            // Let any other queued mouse events replace this position first:
+            timer.setInitialDelay(0);
+        } else {
+            timer.setInitialDelay( (int)Math.max(1,wait/1000000L) );
+        }
+        timer.restart();
+    }
+
+    /** Handles any waiting cursor position immediately, e.g. before a mouse click is handled. */
+    public void flush() {
+        timer.stop();
+        if (pending==null) { return; }
+        MyPoint2D p = pending;
+        pending = null;
+        lastHandled = System.nanoTime();
+        framesHandled++;
+        handler.accept(p);
+    }
+
+    /** Discards any waiting cursor position. */
+    public void cancel() {
+        timer.stop();
+        pending = null;
+    }
+
+    /** Records the time taken to paint the panel.
+     * @param nanos The paint time in nanoseconds.
+     */
+    public void recordPaint(long nanos) {
+        framesDrawn++;
+        paintNanos += nanos;
+        maxPaintNanos = Math.max(maxPaintNanos,nanos);
+    }
+
+    /** Resets the counters. */
+    public void resetCounters() {
+        framesHandled = 0;
+        framesSkipped = 0;
+        framesDrawn = 0;
+        paintNanos = 0;
+        maxPaintNanos = 0;
+    }
+
+    /** Provides a description of the counters for display purposes.
+     * @return A multi-line description.
+     */
+    public String statisticsString() {
+        double mean = ( framesDrawn==0 ? 0.0 : paintNanos/1.0e6/framesDrawn );
+        return "Frame interval: " + String.format("%.1f ms",frameInterval/1.0e6) + System.lineSeparator()
+                + "Cursor positions handled: " + framesHandled + System.lineSeparator()
+                + "Cursor positions skipped: " + framesSkipped + System.lineSeparator()
+                + "Frames drawn: " + framesDrawn + System.lineSeparator()
+                + "Total paint time: " + String.format("%.1f ms",paintNanos/1.0e6) + System.lineSeparator()
+                + "Mean paint time: " + String.format("%.2f ms",mean) + System.lineSeparator()
+                + "Longest paint time: " + String.format("%.2f ms",maxPaintNanos/1.0e6);
+    }
+
+    // -------------------- Private Methods -------------------
+
+    /** Returns the refresh rate of the default screen in Hz. */
+    private static int refreshRate() {
+        if (GraphicsEnvironment.isHeadless()) { return DEFAULT_REFRESH_RATE; }
+        GraphicsDevice device = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+        int rate = device.getDisplayMode().getRefreshRate();
+        if ( rate==DisplayMode.REFRESH_RATE_UNKNOWN || rate<=0 ) { return DEFAULT_REFRESH_RATE; }
+        return rate;
+    }
+
+}
@@ -4,13 +4,26 @@ import geometry.MyPoint2D;
 import gui.ImagePanel;
 import java.awt.*;
 import java.awt.event.*;
-import java.awt.image.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import javax.swing.Timer;
 import jmorph.JMorph;
 import jmorph.MeasurementVector;
 import jmorph.MouseInteractionManager;
 import jmorph.Sample;
+import jmorph.diagnostics.EventContext;
+import jmorph.diagnostics.TimingCounter;
+import jmorph.diagnostics.Timings;
+import jmorph.geometry.PointGrid;
+import jmorph.images.DisplayImage;
+import jmorph.images.ImageDecoder;
 import jmorph.measurements.Measurement;
 import jmorph.measurements.ZoomMeasurement;
+import paint.PaintingUtils;
 
 /** A panel for drawing a sample image and measurement overlays.
  * Modelled on Class "RasterPanel" from the book "Java programming for spatial sciences" by Jo Wood.
@@ -19,9 +32,34 @@ import jmorph.measurements.ZoomMeasurement;
 public final class SampleImagePanel extends ImagePanel {
     private static final long serialVersionUID = 1L;
 
+    private static final int HOVER_RADIUS = 8; // measurement coordinates within this many panel pixels of the cursor are highlighted
+
     // ------------------- Properties ------------------
 
     private final JMorph controller;
+    private Rectangle visibleRegion = null; // the region of the image visible in the panel when zoomed, or null if not zoomed
+    private int fitPanelWidth = -1, fitPanelHeight = -1; // the panel size the tight fit transform was calculated for
+    private int fitImageWidth = -1, fitImageHeight = -1; // the image size the tight fit transform was calculated for
+    private transient Measurement fitZoom = null; // the zoom box the tight fit transform was calculated for (null if not zoomed)
+    private long fitZoomVersion = -1; // the version of that zoom box
+    private final transient CachedLayer imageLayer = new CachedLayer(); // the sample image scaled to fit the panel
+    private final transient CachedLayer overlayLayer = new CachedLayer(); // the measurements that are not being measured
+    private AffineTransform imageLayerTransform = null; // the image to panel transform the image layer was painted with
+    private final transient ArrayList<DisplayImage> imageLayerSources = new ArrayList<>(); // the renditions painted into the image layer
+    private final transient OverlayKey overlayKey = new OverlayKey(); // describes the measurements painted into the overlay layer
+    private transient BasicStroke overlayStroke = null; // the stroke for painting overlays (replaced only when the line width changes)
+    private final transient RenderScheduler scheduler; // coalesces mouse moves and counts frames
+    private transient MyPoint2D hoverPoint = null; // the cursor position in sample image pixel coordinates (null if outside the panel)
+    private transient PointGrid.Entry hover = null; // the measurement coordinate highlighted under the cursor (null if none)
+    private Rectangle activeBounds = null; // the panel region covered by the measurement being measured and its preview when last painted
+    private Rectangle hoverBounds = null; // the panel region covered by the highlight ring when last painted
+    private final Timer idleTimer; // fires once the mouse has stopped moving for a while
+    private boolean fast = false; // set to true while the mouse is moving during measuring to paint quickly at lower quality
+    private Rectangle fastRegion = null; // the panel region painted at lower quality since the mouse stopped (null if none)
+    private boolean imageLayerFast = false; // set to true if the image layer was last repainted at lower quality
+    private boolean overlayLayerFast = false; // set to true if the overlay layer was last repainted at lower quality
+    private final transient HashMap<String,TimingCounter> prepareCounters = new HashMap<>(); // the timing counters for preparing each type of measurement
+    private final transient HashMap<String,TimingCounter> paintCounters = new HashMap<>(); // the timing counters for painting each type of measurement
 
     // ------------------ Constructor ------------------
 
@@ -31,6 +69,13 @@ public final class SampleImagePanel extends ImagePanel {
     public SampleImagePanel(JMorph con) {
         super();
         controller = con;
+        idleTimer = new Timer( PaintingOptions.DEFAULT_IDLE_DELAY , (e) -> endInteraction() );
+        idleTimer.setRepeats(false);
+        scheduler = new RenderScheduler( (MyPoint2D p) -> {
+            beginInteraction();
+            controller.mouseMove(p);
+            updateHover(p);
+        });
         // Set mouse and keyboard listeners:
         addMouseListener(new MouseClickMonitor()); // listens for mouse clicks
         addMouseMotionListener(new MouseMoveMonitor()); // listens for mouse motion
@@ -45,35 +90,171 @@ public final class SampleImagePanel extends ImagePanel {
      */
     @Override
     public void paintComponent(Graphics g) {
+        long t0 = System.nanoTime();
+        if (fast) {
+            Rectangle clip = g.getClipBounds();
+            if (clip==null) { clip = new Rectangle(0,0,getWidth(),getHeight()); }
+            fastRegion = ( fastRegion==null ? clip : fastRegion.union(clip) );
+        }
+        String previous = EventContext.setSample( controller.hasSamples() ? controller.getCurrentSample().longName() : null );
+        try {
+            paintSample(g);
+        } finally {
+            EventContext.setSample(previous);
+        }
+        long dt = System.nanoTime() - t0;
+        scheduler.recordPaint(dt);
+        Timings.FRAME_PAINT.add(dt);
+    }
+
+    // -------------------- Public Methods --------------------
+
+    /** Returns the scheduler that coalesces mouse moves and counts the frames drawn.
+     * @return  */
+    public RenderScheduler getRenderScheduler() { return scheduler; }
+
+    /** Repaints only the part of the panel affected by a change to the measurement being measured
+     * (or its preview), i.e. the region it covered when last painted together with the region it covers now.
+     * Nothing else may have changed: use repaint() otherwise.
+     */
+    public void repaintActive() {
+        if (imageToPanel==null || !controller.hasSamples()) {
+            repaint();
+            return;
+        }
+        Measurement m = activeMeasurement(controller.getCurrentSample());
+        Rectangle r = ( m==null ? null : screenBounds(m,controller.previewPoint(m)) );
+        repaintRegion(activeBounds,r);
+    }
+
+    /** Calculates the transformations required to maintain the sample image aspect ratio
+     * and fit tightly within this panel, keeping zoom box information in mind.
+     * Nothing is recalculated unless the panel size, image size or zoom box has changed.
+     * The transforms are replaced rather than modified when recalculated, so they can be used
+     * in cache keys without copying. */
+    public void calculateTightFitTransform() {
+
+        // Get the current sample image size (this doesn't require the image to be decoded):
+        Dimension imageSize = controller.getCurrentSampleImageSize();
+
+        // If no sample image exists then return:
+        if (imageSize==null) {
+            imageToPanel = null;
+            panelToImage = null;
+            fitPanelWidth = -1;
+            return;
+        }
+
+        // Width and height of panel in pixels:
+        double panelWidth  = this.getWidth();
+        double panelHeight = this.getHeight();
+
+        // May have to apply zoom box:
+        ZoomMeasurement zoom = controller.getCurrentSample().getZoom();
+        double imageWidth;
+        double imageHeight;
+        double imageOriginX;
+        double imageOriginY;
+        boolean doZoom;
+        if (!zoom.isMeasured()) {
+            doZoom = false;
+        } else {
+            // Don't zoom if we are currently measuring the zoom box:
+            doZoom = !controller.measuringZoomBox();
+        }
+
+        // Check if anything has changed since the transforms were last calculated:
+        Measurement fz = ( doZoom ? zoom : null );
+        long fzVersion = ( doZoom ? zoom.getVersion() : -1 );
+        if ( imageToPanel!=null && getWidth()==fitPanelWidth && getHeight()==fitPanelHeight
+                && imageSize.width==fitImageWidth && imageSize.height==fitImageHeight
+                && fz==fitZoom && fzVersion==fitZoomVersion ) {
+            return;
+        }
+        fitPanelWidth = getWidth();
+        fitPanelHeight = getHeight();
+        fitImageWidth = imageSize.width;
+        fitImageHeight = imageSize.height;
+        fitZoom = fz;
+        fitZoomVersion = fzVersion;
+        if (doZoom) {
+            imageWidth  = zoom.getCoordinates().rangeX();
+            imageHeight = zoom.getCoordinates().rangeY();
+            imageOriginX = zoom.getCoordinates().minX();
+            imageOriginY = zoom.getCoordinates().minY();
+        } else {
+            // Width and height of image in pixels:
+            imageWidth  = imageSize.getWidth();
+            imageHeight = imageSize.getHeight();
+            imageOriginX = 0.0;
+            imageOriginY = 0.0;
+        }
+
+        // Calculate scaling:
+        scaling = Math.min( panelWidth/imageWidth , panelHeight/imageHeight );
+        double scaledWidth  = scaling*imageWidth;
+        double scaledHeight = scaling*imageHeight;
+        double scaledOriginX  = scaling*imageOriginX;
+        double scaledOriginY  = scaling*imageOriginY;
+
+        // Determine translation required to centre the image on the panel:
+        double translateX = 0.5*(panelWidth  - scaledWidth ) - scaledOriginX;
+        double translateY = 0.5*(panelHeight - scaledHeight) - scaledOriginY;
+        translation = new MyPoint2D(translateX,translateY);
+        
+        // Create forward and inverse affine transformations:
+        createTightFitTransform();
+        
+        // When zoomed only the part of the image visible in the panel needs to be decoded (with a pixel to spare):
+        if (doZoom) {
+            Rectangle r = panelToImage.createTransformedShape(new Rectangle(0,0,getWidth(),getHeight())).getBounds();
+            r.grow(1,1);
+            visibleRegion = r.intersection(new Rectangle(imageSize));
+        } else {
+            visibleRegion = null;
+        }
+        
+    }
+
+    // -------------------- Private Methods --------------------
+
+    /** Paints the sample image and measurement overlays.
+     * @param g Graphics context in which to draw.
+     */
+    private void paintSample(Graphics g) {
 
         // Paint background:
         super.paintComponent(g);
+        activeBounds = null;
+        hoverBounds = null;
         
         // Return if no samples exist:
         if (!controller.hasSamples()) { return; }
 
-        // Get the current sample image:
-        BufferedImage image = controller.getCurrentSampleImage();
+        // Tightly fit the image inside the panel but maintain aspect ratio:
+        calculateTightFitTransform();
+        if (imageToPanel==null) { return; } // no sample image exists
+        
+        // Get renditions of the visible part of the current sample image with just enough resolution for the current scaling
+        // (very large images are split into tiles so only the visible tiles are decoded):
+        List<DisplayImage> images = controller.getCurrentSampleDisplayImages(ImageDecoder.subsamplingFor(scaling),visibleRegion);
 
         // Return if no sample image exists:
-        if (image==null) { return; }
+        if (images.isEmpty()) { return; }
         
         // Get the current sample:
         Sample sample = controller.getCurrentSample();
 
-        // Tightly fit the image inside the panel but maintain aspect ratio:
-        calculateTightFitTransform();
-        tightFitImage(g,image);
-
-        // Use Java2D graphics for overlays:
+        // Paint the image (scaled only when the sample, panel size or zoom has changed):
         Graphics2D g2 = (Graphics2D) g;
-        g2.setRenderingHint(
-                RenderingHints.KEY_ANTIALIASING,
-                RenderingHints.VALUE_ANTIALIAS_ON);
-        g2.setStroke(new BasicStroke(controller.getLineWidth())); // line style
-        
+        paintImageLayer(g2,images);
+
         // Extract the measurement list for the sample:
         MeasurementVector mList = sample.getMeasurementList();
+        
+        // Collect the measurements to paint, keeping any measurement being measured separate:
+        ArrayList<Measurement> statics = new ArrayList<>();
+        Measurement active = null;
 
         // Loop over the sample measurements, and include the zoom box, calibration length and origin:
         for ( int i=MouseInteractionManager.ZOOM_INDEX ; i<mList.size() ; i++ ) {
@@ -102,78 +283,268 @@ public final class SampleImagePanel extends ImagePanel {
             }
 
             // Check the current measurement has coordinates to paint:
-            Boolean measuring = controller.shouldPaintMeasurement(m);
-            if ( m.hasCoordinates() &&
-                    ( ( controller.getDisplayMeasurements() && m.getMarked() )
-                      || measuring
-                    )
-               ) {
-                // Paint the measurement:
-                m.runBeforePainting(measuring);
-                m.paint(g2, imageToPanel, scaling, measuring );
+            if (controller.isActiveMeasurement(m)) {
+                active = m;
+            } else if ( m.hasCoordinates() && controller.getDisplayMeasurements() && m.getMarked() ) {
+                statics.add(m);
             }
 
         }
         
+        // Paint the measurements that aren't changing from a cached overlay:
+        paintOverlayLayer(g2,statics);
+
+        // Highlight the measurement coordinate under the cursor:
+        hover = findHover(hoverPoint);
+        paintHover(g2,mList);
+        if (active==null) { return; }
+        
+        // Paint the measurement being measured on top:
+        setOverlayStyle(g2);
+        Boolean measuring = controller.shouldPaintMeasurement(active);
+        if ( active.hasCoordinates() &&
+                ( ( controller.getDisplayMeasurements() && active.getMarked() )
+                  || measuring
+                )
+           ) {
+            paintMeasurement(g2,active,measuring);
+        }
+
+        // Paint the floating part of the measurement being measured:
+        MyPoint2D p = controller.previewPoint(active);
+        if (p!=null) {
+            active.paintPreview(g2, imageToPanel, p);
+        }
+
+        // Remember where it was painted so the next change only needs to repaint that region:
+        activeBounds = screenBounds(active,p);
+        
     }
 
-    // -------------------- Public Methods --------------------
+    /** Finds the measurement of the sample being measured, if any.
+     * @param sample The current sample.
+     * @return The measurement being measured, or null.
+     */
+    private Measurement activeMeasurement(Sample sample) {
+        if (controller.isActiveMeasurement(sample.getZoom())) { return sample.getZoom(); }
+        if (controller.isActiveMeasurement(sample.getCalibration())) { return sample.getCalibration(); }
+        if (controller.isActiveMeasurement(sample.getOrigin())) { return sample.getOrigin(); }
+        MeasurementVector mList = sample.getMeasurementList();
+        for ( int i=0 ; i<mList.size() ; i++ ) {
+            if (controller.isActiveMeasurement(mList.get(i))) { return mList.get(i); }
+        }
+        return null;
+    }
 
-    /** Calculates the transformations required to maintain the sample image aspect ratio
-     * and fit tightly within this panel, keeping zoom box information in mind. */
-    public void calculateTightFitTransform() {
+    /** Calculates the panel region covered when painting a measurement and its preview.
+     * @param m The measurement.
+     * @param preview The preview cursor position in sample image pixel coordinates (may be null).
+     * @return The region, or null if nothing is painted.
+     */
+    private Rectangle screenBounds(Measurement m, MyPoint2D preview) {
+        Rectangle2D b = m.paintBounds();
+        if (preview!=null) {
+            if (b==null) {
+                b = new Rectangle2D.Double(preview.getX(),preview.getY(),0,0);
+            } else {
+                b.add(preview.getX(),preview.getY());
+            }
+        }
+        if (b==null) { return null; }
+        Rectangle r = imageToPanel.createTransformedShape(b).getBounds();
+        // Allow for the largest point markers (up to twice the point width across) and the line width:
+        int margin = m.getPointWidth() + controller.getLineWidth() + 2;
+        r.grow(margin,margin);
+        return r;
+    }
 
-        // Get the current sample image:
-        BufferedImage image = controller.getCurrentSampleImage();
+    /** Calculates the panel region covered by the highlight ring around a measurement coordinate.
+     * @param e The highlighted coordinate (may be null).
+     * @param mList The measurement list for the current sample.
+     * @return The region, or null if e is null.
+     */
+    private Rectangle hoverBounds(PointGrid.Entry e, MeasurementVector mList) {
+        if ( e==null || imageToPanel==null ) { return null; }
+        double[] p = { e.getX() , e.getY() };
+        imageToPanel.transform(p,0,p,0,1);
+        int half = ( mList.get(e.getOwner()).getPointWidth() + HOVER_RADIUS )/2 + controller.getLineWidth() + 2;
+        return new Rectangle( (int)p[0]-half , (int)p[1]-half , 2*half , 2*half );
+    }
 
-        // If no sample image exists then return:
-        if (image==null) { return; }
+    /** Repaints the union of two panel regions, either of which may be null. */
+    private void repaintRegion(Rectangle r1, Rectangle r2) {
+        if (r1==null && r2==null) { return; }
+        Rectangle r = ( r1==null ? r2 : ( r2==null ? r1 : r1.union(r2) ) );
+        repaint(r);
+    }
 
-        // Width and height of panel in pixels:
-        double panelWidth  = this.getWidth();
-        double panelHeight = this.getHeight();
+    /** Paints the sample image renditions using a cached copy already scaled to the panel.
+     * The copy is repainted only if the renditions or the image to panel transform (which depends on the
+     * panel size and zoom box) have changed.
+     * @param g2 A Graphics2D object to paint with.
+     * @param images The renditions to paint.
+     */
+    private void paintImageLayer(Graphics2D g2, List<DisplayImage> images) {
 
-        // May have to apply zoom box:
-        ZoomMeasurement zoom = controller.getCurrentSample().getZoom();
-        double imageWidth;
-        double imageHeight;
-        double imageOriginX;
-        double imageOriginY;
-        boolean doZoom;
-        if (!zoom.isMeasured()) {
-            doZoom = false;
-        } else {
-            // Don't zoom if we are currently measuring the zoom box:
-            doZoom = !controller.measuringZoomBox();
+        // Check for a panel that isn't displayed yet (paint directly):
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if ( gc==null || getWidth()<=0 || getHeight()<=0 ) {
+            paintImages(g2,images);
+            return;
         }
-        if (doZoom) {
-            imageWidth  = zoom.getCoordinates().rangeX();
-            imageHeight = zoom.getCoordinates().rangeY();
-            imageOriginX = zoom.getCoordinates().minX();
-            imageOriginY = zoom.getCoordinates().minY();
+
+        // The renditions are compared by identity (DisplayImage doesn't override equals):
+        boolean changed = ( !Objects.equals(imageToPanel,imageLayerTransform) || images.size()!=imageLayerSources.size() );
+        for ( int i=0 ; !changed && i<images.size() ; i++ ) {
+            changed = ( images.get(i)!=imageLayerSources.get(i) );
+        }
+        if (changed) {
+            imageLayerTransform = imageToPanel;
+            imageLayerSources.clear();
+            imageLayerSources.addAll(images);
+        }
+        long n = imageLayer.getRepaints();
+        imageLayer.paint(g2,gc,getWidth(),getHeight(),changed, (Graphics2D lg) -> paintImages(lg,images) );
+        if (imageLayer.getRepaints()!=n) { imageLayerFast = fast; }
+
+    }
+
+    private void paintImages(Graphics2D g2, List<DisplayImage> images) {
+        if (fast) {
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g2.setRenderingHint(RenderingHints.KEY_RENDERING,RenderingHints.VALUE_RENDER_SPEED);
         } else {
-            // Width and height of image in pixels:
-            imageWidth  = image.getWidth();
-            imageHeight = image.getHeight();
-            imageOriginX = 0.0;
-            imageOriginY = 0.0;
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g2.setRenderingHint(RenderingHints.KEY_RENDERING,RenderingHints.VALUE_RENDER_QUALITY);
+        }
+        for (DisplayImage image : images) {
+            image.paint(g2,imageToPanel);
         }
+    }
 
-        // Calculate scaling:
-        scaling = Math.min( panelWidth/imageWidth , panelHeight/imageHeight );
-        double scaledWidth  = scaling*imageWidth;
-        double scaledHeight = scaling*imageHeight;
-        double scaledOriginX  = scaling*imageOriginX;
-        double scaledOriginY  = scaling*imageOriginY;
+    /** Paints the measurements that are not being measured using a cached overlay.
+     * The overlay is repainted only if the measurements (their coordinates, settings, colours or widths),
+     * the line width or the image to panel transform have changed.
+     * @param g2 A Graphics2D object to paint with.
+     * @param list The measurements to paint.
+     */
+    private void paintOverlayLayer(Graphics2D g2, List<Measurement> list) {
 
-        // Determine translation required to centre the image on the panel:
-        double translateX = 0.5*(panelWidth  - scaledWidth ) - scaledOriginX;
-        double translateY = 0.5*(panelHeight - scaledHeight) - scaledOriginY;
-        translation = new MyPoint2D(translateX,translateY);
-        
-        // Create forward and inverse affine transformations:
-        createTightFitTransform();
-        
+        // Check for a panel that isn't displayed yet (paint directly):
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if ( gc==null || getWidth()<=0 || getHeight()<=0 ) {
+            paintMeasurements(g2,list);
+            return;
+        }
+
+        // Check everything the painted overlay depends on:
+        boolean changed = overlayKey.update(imageToPanel,controller.getLineWidth(),list);
+        long n = overlayLayer.getRepaints();
+        overlayLayer.paint(g2,gc,getWidth(),getHeight(),changed, (Graphics2D lg) -> paintMeasurements(lg,list) );
+        if (overlayLayer.getRepaints()!=n) { overlayLayerFast = fast; }
+
+    }
+
+    private void paintMeasurements(Graphics2D g2, List<Measurement> list) {
+        setOverlayStyle(g2);
+        for (Measurement m : list) {
+            paintMeasurement(g2,m,false);
+        }
+    }
+
+    /** Runs the calculations required before painting a measurement and paints it, timing each step.
+     * The counters for each type of measurement are looked up in the registry only the first time that type is painted.
+     */
+    private void paintMeasurement(Graphics2D g2, Measurement m, boolean measuring) {
+        String type = m.typeString();
+        TimingCounter prepare = prepareCounters.computeIfAbsent(type,Timings::prepare);
+        TimingCounter paint = paintCounters.computeIfAbsent(type,Timings::paint);
+        long t0 = System.nanoTime();
+        m.runBeforePainting(measuring);
+        long t1 = System.nanoTime();
+        prepare.add(t1-t0);
+        m.paint(g2, imageToPanel, scaling, measuring );
+        paint.record(t1);
+    }
+
+    /** Moves the cursor position used for highlighting and repaints if a different coordinate should be highlighted.
+     * @param p The cursor position in sample image pixel coordinates (null if outside the panel).
+     */
+    private void updateHover(MyPoint2D p) {
+        hoverPoint = p;
+        PointGrid.Entry e = findHover(p);
+        boolean same = ( e==null ? hover==null
+                : ( hover!=null && e.getOwner()==hover.getOwner() && e.getIndex()==hover.getIndex() ) );
+        if (!same) {
+            // Repaint only the old and new highlight rings:
+            hover = e;
+            repaintRegion(hoverBounds, ( e==null ? null : hoverBounds(e,controller.getCurrentSample().getMeasurementList()) ));
+        }
+    }
+
+    /** Finds the measurement coordinate to highlight under the cursor using the spatial index of the current sample.
+     * @param p The cursor position in sample image pixel coordinates (may be null).
+     * @return The nearest coordinate within the hover radius, or null if none (or measuring).
+     */
+    private PointGrid.Entry findHover(MyPoint2D p) {
+        if ( p==null || imageToPanel==null || controller.isMeasuring() || !controller.hasSamples() || !controller.getDisplayMeasurements() ) { return null; }
+        // Only consider the measurements that are displayed:
+        MeasurementVector mList = controller.getCurrentSample().getMeasurementList();
+        return controller.getCurrentSample().getCoordinateIndex().nearest(p, (int i) -> mList.get(i).getMarked() ,HOVER_RADIUS/scaling);
+    }
+
+    /** Paints a ring around the highlighted measurement coordinate.
+     * @param g2 A Graphics2D object to paint with.
+     * @param mList The measurement list for the current sample.
+     */
+    private void paintHover(Graphics2D g2, MeasurementVector mList) {
+        if (hover==null) { return; }
+        Measurement m = mList.get(hover.getOwner());
+        if (!m.getMarked()) { return; } // not displayed
+        setOverlayStyle(g2);
+        g2.setPaint(m.getPrimaryColour());
+        MyPoint2D p = new MyPoint2D(hover.getX(),hover.getY());
+        PaintingUtils.paintPoint(g2,imageToPanel,p,m.getPointWidth()+HOVER_RADIUS,false);
+        hoverBounds = hoverBounds(hover,mList);
+    }
+
+    /** Sets up Java2D graphics for painting overlays (antialiased unless painting quickly while the mouse is moving). */
+    private void setOverlayStyle(Graphics2D g2) {
+        g2.setRenderingHint(
+                RenderingHints.KEY_ANTIALIASING,
+                ( fast ? RenderingHints.VALUE_ANTIALIAS_OFF : RenderingHints.VALUE_ANTIALIAS_ON ));
+        int w = controller.getLineWidth();
+        if ( overlayStroke==null || overlayStroke.getLineWidth()!=w ) {
+            overlayStroke = new BasicStroke(w);
+        }
+        g2.setStroke(overlayStroke); // line style
+    }
+
+    /** Switches to fast painting while the mouse is moving during measuring, dragging a zoom box or moving a coordinate
+     * (if requested) and restarts the idle timer. Just hovering over the image is always painted at full quality.
+     */
+    private void beginInteraction() {
+        if ( !controller.getAdaptiveQuality() || !controller.isMeasuring() ) { return; } // the idle timer ends any fast painting
+        fast = true;
+        idleTimer.setInitialDelay(controller.getIdleDelay());
+        idleTimer.restart();
+    }
+
+    /** Switches back to full quality once the mouse has stopped and repaints only the region painted at lower quality.
+     * A layer repainted at lower quality is repainted in full next time, but only that region needs copying to the screen.
+     */
+    private void endInteraction() {
+        fast = false;
+        if (imageLayerFast) {
+            imageLayer.invalidate();
+            imageLayerFast = false;
+        }
+        if (overlayLayerFast) {
+            overlayLayer.invalidate();
+            overlayLayerFast = false;
+        }
+        if (fastRegion!=null) { repaint(fastRegion); }
+        fastRegion = null;
     }
 
     // -------------------- Monitors --------------------
@@ -184,12 +555,20 @@ public final class SampleImagePanel extends ImagePanel {
         public void mouseClicked (MouseEvent e) {
             requestFocusInWindow(); // this is important to help the keyTyped method fire
             if (panelToImage==null) { return; }
+            // Handle any waiting mouse move first:
+            scheduler.flush();
             // Transform the current cursor location:
             MyPoint2D p = new MyPoint2D(e.getPoint());
             p.transform(panelToImage); // transform from panel to sample image pixel coordinates
             // Tell the controller about the mouse click:
             controller.mouseClick(p);
         }
+        @Override
+        public void mouseExited(MouseEvent e) {
+            // Handle any waiting mouse move first, then stop highlighting:
+            scheduler.flush();
+            updateHover(null);
+        }
     }
 
     /** Listens for mouse movement. */
@@ -201,8 +580,8 @@ public final class SampleImagePanel extends ImagePanel {
             // Transform the current cursor location:
             MyPoint2D p = new MyPoint2D(e.getPoint());
             p.transform(panelToImage); // transform from panel to sample image pixel coordinates
-            // Tell the controller about the mouse move:
-            controller.mouseMove(p);
+            // Tell the controller about the mouse move when the next frame can be drawn (later moves replace this one):
+            scheduler.submit(p);
         }
     }
 
@@ -211,11 +590,72 @@ public final class SampleImagePanel extends ImagePanel {
         @Override
         public void keyTyped(KeyEvent e) {
             if (panelToImage==null) { return; }
+            // Handle any waiting mouse move first:
+            scheduler.flush();
             // Get the character corresponding to the key pressed:
             char c = e.getKeyChar();
             // Tell the controller about the key press:
             controller.keyType(c);
         }
     }
-    
+
+    // -------------------- Overlay Key --------------------
+
+    /** Describes everything the overlay layer depends on. It is updated in place so that
+     * checking it for changes doesn't allocate anything while painting.
+     */
+    private static final class OverlayKey {
+
+        private AffineTransform trans = null; // the image to panel transform
+        private int lineWidth = -1; // the overlay line width
+        private int n = 0; // the number of measurements
+        private Measurement[] measurements = new Measurement[0]; // the measurements (compared by identity)
+        private long[] versions = new long[0]; // their versions
+        private Color[] primaryColours = new Color[0]; // their primary colours
+        private Color[] secondaryColours = new Color[0]; // their secondary colours
+        private int[] lineWidths = new int[0]; // their line widths
+        private int[] pointWidths = new int[0]; // their point widths
+
+        /** Updates the description.
+         * @param t The image to panel transform.
+         * @param lw The overlay line width.
+         * @param list The measurements to paint.
+         * @return True if anything has changed since the last call.
+         */
+        boolean update(AffineTransform t, int lw, List<Measurement> list) {
+            boolean changed = ( !Objects.equals(t,trans) || lw!=lineWidth || list.size()!=n );
+            trans = t;
+            lineWidth = lw;
+            n = list.size();
+            if (measurements.length<n) {
+                measurements = new Measurement[n];
+                versions = new long[n];
+                primaryColours = new Color[n];
+                secondaryColours = new Color[n];
+                lineWidths = new int[n];
+                pointWidths = new int[n];
+                changed = true;
+            }
+            for ( int i=0 ; i<n ; i++ ) {
+                Measurement m = list.get(i);
+                if ( m!=measurements[i] || m.getVersion()!=versions[i]
+                        || !Objects.equals(m.getPrimaryColour(),primaryColours[i])
+                        || !Objects.equals(m.getSecondaryColour(),secondaryColours[i])
+                        || m.getLineWidth()!=lineWidths[i] || m.getPointWidth()!=pointWidths[i] ) {
+                    measurements[i] = m;
+                    versions[i] = m.getVersion();
+                    primaryColours[i] = m.getPrimaryColour();
+                    secondaryColours[i] = m.getSecondaryColour();
+                    lineWidths[i] = m.getLineWidth();
+                    pointWidths[i] = m.getPointWidth();
+                    changed = true;
+                }
+            }
+            // Don't keep measurements that are no longer painted:
+            for ( int i=n ; i<measurements.length && measurements[i]!=null ; i++ ) { measurements[i] = null; }
+            return changed;
+        }
+
+    }
+
 }
@@ -7,6 +7,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import jmorph.MeasurementVector;
 import jmorph.Sample;
+import jmorph.diagnostics.EventContext;
 import jmorph.measurements.Measurement;
 
 /** Panel for providing sample information.
@@ -50,7 +51,7 @@ public final class SampleInfoPanel extends JPanel {
         } else {
             
             // Check for no sample image:
-            if ( sample.getImage() == null ) {
+            if ( !sample.imageExists() ) {
 
                 s = "Failed to read sample file:" + System.lineSeparator() + System.lineSeparator() +
                         sample.fileURIString() + System.lineSeparator() + System.lineSeparator() +
@@ -71,13 +72,18 @@ public final class SampleInfoPanel extends JPanel {
 
                 // Measurement information:
                 MeasurementVector mList = sample.getMeasurementList(); // extracted measurement list
-                for ( int i=0 ; i<mList.size() ; i++ ) {
-                    Measurement m = mList.get(i); // the ith measurement in the measurement list
-                    String sfd = m.calculateStringForDisplay(factor,trans,displayFFTCoefficients);
-                    if (sfd==null) {
-                        sfd = "calculation problem";
+                String previous = EventContext.setSample(sample.longName());
+                try {
+                    for ( int i=0 ; i<mList.size() ; i++ ) {
+                        Measurement m = mList.get(i); // the ith measurement in the measurement list
+                        String sfd = m.calculateStringForDisplay(factor,trans,displayFFTCoefficients);
+                        if (sfd==null) {
+                            sfd = "calculation problem";
+                        }
+                        s = s + System.lineSeparator() + System.lineSeparator() + m.getName() + ": " + sfd;
                     }
-                    s = s + System.lineSeparator() + System.lineSeparator() + m.getName() + ": " + sfd;
+                } finally {
+                    EventContext.setSample(previous);
                 }
 
             }
@@ -1,6 +1,6 @@
 package jmorph.hangle;
 
-import geometry.MyPolygon;
+import jmorph.geometry.PackedPolygon;
 import jmorph.maths.Complex;
 import jmorph.maths.ComplexVector;
 
@@ -23,7 +23,7 @@ public class HAngle {
      * @param ind The INDEX input for the hangle program.
      * @return Holds a possible warning message, outline length and coefficients from the outline analysis.
      */
-    public static Out run( MyPolygon coords, int ind ) {
+    public static Out run( PackedPolygon coords, int ind ) {
 
       String outMessage = null;
 
@@ -70,8 +70,8 @@ public class HAngle {
       int N = 1;
       while (true) {
           if (N>coords.size()) { break; }
-          XVAL[N-1] = coords.get(N-1).getX();
-          YVAL[N-1] = coords.get(N-1).getY();
+          XVAL[N-1] = coords.getX(N-1);
+          YVAL[N-1] = coords.getY(N-1);
           N += 1;
       }
       XVAL[N-1] = XVAL[0];
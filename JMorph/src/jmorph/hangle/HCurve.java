@@ -1,7 +1,6 @@
 package jmorph.hangle;
 
-import geometry.MyPoint2D;
-import geometry.MyPolygon;
+import jmorph.geometry.PackedPolygon;
 import jmorph.maths.Complex;
 import jmorph.maths.ComplexVector;
 
@@ -15,7 +14,7 @@ public class HCurve {
      * @param ncoeff The number of coefficients.
      * @return
      */
-    public static MyPolygon run( ComplexVector coeffs, int ncoeff ) {
+    public static PackedPolygon run( ComplexVector coeffs, int ncoeff ) {
 
       final int NFFT=(int)Math.pow(2,10), NFFTP=NFFT+1, NFFT2=NFFT/2, NFFT2P=NFFT2+1;
 
@@ -216,11 +215,9 @@ public class HCurve {
       }
       Z[NFFTP-1] = Z[0];
 
-      MyPoint2D p;
-      MyPolygon coords = new MyPolygon();
+      PackedPolygon coords = new PackedPolygon(NFFTP);
       for ( I=1 ; I<=NFFTP ; I++ ) {
-        p = new MyPoint2D( Z[I-1].real() , Z[I-1].imag() );
-        coords.add(p);
+        coords.add( Z[I-1].real() , Z[I-1].imag() );
       }
       return coords;
 
@@ -0,0 +1,57 @@
+package jmorph.images;
+
+import java.awt.image.DataBuffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/** An int data buffer with a single bank stored outside the Java heap in a direct (or memory-mapped) buffer.
+ * Large rasters held in such buffers don't add to the heap size or to the work of the garbage collector.
+ * @author Peter Lelievre
+ */
+public final class DirectIntDataBuffer extends DataBuffer {
+
+    // ------------------ Properties -------------------
+
+    /** The largest number of elements that can be stored (the byte size must fit in an int). */
+    public static final int MAX_SIZE = Integer.MAX_VALUE/4;
+
+    private final IntBuffer data; // the elements
+
+    // ------------------ Constructors -------------------
+
+    /** Allocates a new direct buffer.
+     * @param size The number of elements (no more than MAX_SIZE).
+     */
+    public DirectIntDataBuffer(int size) {
+        this( ByteBuffer.allocateDirect(4*size).order(ByteOrder.nativeOrder()).asIntBuffer() );
+    }
+
+    /** Wraps an existing buffer, e.g. a view of a memory-mapped file.
+     * If the buffer is read-only (as for the disk image cache) then setElem throws a ReadOnlyBufferException.
+     * @param data The elements (starting at index zero).
+     */
+    public DirectIntDataBuffer(IntBuffer data) {
+        super(TYPE_INT,data.capacity());
+        this.data = data;
+    }
+
+    // -------------------- Getters -------------------
+
+    /** Returns the underlying buffer (not a copy).
+     * @return  */
+    public IntBuffer getBuffer() { return data; }
+
+    // -------------------- Overridden Methods -------------------
+
+    @Override
+    public int getElem(int bank, int i) {
+        return data.get(i);
+    }
+
+    @Override
+    public void setElem(int bank, int i, int val) {
+        data.put(i,val);
+    }
+
+}
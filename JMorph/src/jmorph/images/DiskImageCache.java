@@ -0,0 +1,341 @@
+package jmorph.images;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** A persistent cache of reduced-resolution image renditions in a local directory.
+ * Entries are keyed by the image file path, length and modification time (so an edited image
+ * is never matched) together with the subsampling and region of the rendition.
+ * Each entry is a small header followed by the raw pixels as ints, so the pixels can be
+ * read straight from a memory-mapped buffer without any decoding. Large entries are not
+ * copied at all: the image uses the mapped file as its raster (see OffHeapImages).
+ * The total size of the directory is capped by removing the least recently used entries.
+ * Writes happen on a background thread; any failure simply leaves the entry out of the cache.
+ * Nothing is created on disk (and no thread is started) until the first entry is written.
+ * @author Peter Lelievre
+ */
+public final class DiskImageCache {
+
+    // ------------------ Properties -------------------
+
+    /** Default maximum number of bytes stored on disk. */
+    public static final long DEFAULT_BUDGET = 1024L*1048576L;
+
+    private static final int MAGIC = 0x4A4D4943; // "JMIC"
+    private static final int HEADER_INTS = 10; // magic, alpha, width, height, subsampling, region x/y/w/h, key length
+    private static final String EXTENSION = ".jmic";
+    private static final double TRIM_FRACTION = 0.9; // trimming removes entries until the total is this fraction of the budget
+    private static final String TEMP_PREFIX = "tmp";
+    private static final String TEMP_EXTENSION = ".part";
+    private static final long STALE_TEMP_MILLIS = 3600000L; // temporary files older than this were left by a failed write (another instance may be writing newer ones)
+
+    private final Path directory; // the directory holding the cache files
+    private ExecutorService writer = null; // the background thread for writing (created when first required)
+    private long budget = DEFAULT_BUDGET; // the maximum number of bytes to store
+    private long hits = 0; // the number of renditions read from disk
+    private long misses = 0; // the number of renditions not found on disk
+    private long total = -1; // the number of bytes in the cache files (-1 until the directory is scanned; only used on the writer thread)
+
+    // ------------------ Constructor -------------------
+
+    /**
+     * @param directory The directory to store the cache files in (created when the first entry is written).
+     */
+    public DiskImageCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /** Creates a disk cache in the default directory for the current user (see defaultDirectory).
+     * @return The new object.
+     */
+    public static DiskImageCache createDefault() {
+        return new DiskImageCache(defaultDirectory());
+    }
+
+    /** Returns the platform's per-user cache directory for JMorph images:
+     * %LOCALAPPDATA%\JMorph\ImageCache on Windows, ~/Library/Caches/JMorph/ImageCache on macOS and
+     * $XDG_CACHE_HOME/jmorph/images (by default ~/.cache/jmorph/images) elsewhere.
+     * @return The directory (which may not exist yet).
+     */
+    public static Path defaultDirectory() {
+        String home = System.getProperty("user.home");
+        String os = System.getProperty("os.name","").toLowerCase();
+        if (os.startsWith("windows")) {
+            String local = System.getenv("LOCALAPPDATA");
+            Path base = ( local==null || local.isEmpty() ? Paths.get(home,"AppData","Local") : Paths.get(local) );
+            return base.resolve("JMorph").resolve("ImageCache");
+        }
+        if (os.startsWith("mac")) {
+            return Paths.get(home,"Library","Caches","JMorph","ImageCache");
+        }
+        String xdg = System.getenv("XDG_CACHE_HOME");
+        Path base = ( xdg==null || xdg.isEmpty() ? Paths.get(home,".cache") : Paths.get(xdg) );
+        return base.resolve("jmorph").resolve("images");
+    }
+
+    // -------------------- Getters and Setters -------------------
+
+    public synchronized long getBudget() { return budget; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized void setBudget(long b) { budget = Math.max(0,b); }
+
+    // -------------------- Public Methods -------------------
+
+    /** Returns true if renditions with some subsampling are worth storing on disk.
+     * Full-resolution renditions are not stored because they are as large as the decoded image.
+     * @param subsampling The subsampling of the rendition.
+     * @return True if the rendition should be stored.
+     */
+    public static boolean shouldStore(int subsampling) {
+        return ( subsampling>1 );
+    }
+
+    /** Reads a rendition from the cache.
+     * @param file The image file.
+     * @param subsampling The requested subsampling.
+     * @param region The requested region (null for the whole image).
+     * @param fullWidth The width of the full-resolution image.
+     * @param fullHeight The height of the full-resolution image.
+     * @param mapThreshold Renditions with rasters at least this many bytes use the memory-mapped file as their
+     * (read-only) raster instead of being copied onto the heap (Long.MAX_VALUE to always copy).
+     * @return The rendition or null if it is not stored.
+     */
+    public DisplayImage read(File file, int subsampling, Rectangle region, int fullWidth, int fullHeight, long mapThreshold) {
+        String key = key(file,subsampling,region);
+        if (key==null) { return null; }
+        Path path = pathFor(key);
+        DisplayImage di = null;
+        if (Files.isRegularFile(path)) {
+            di = readEntry(path,key,fullWidth,fullHeight,mapThreshold);
+        }
+        synchronized (this) {
+            if (di==null) { misses++; } else { hits++; }
+        }
+        if (di!=null) {
+            // Mark the entry as recently used:
+            path.toFile().setLastModified(System.currentTimeMillis());
+        }
+        return di;
+    }
+
+    /** Writes a rendition to the cache on a background thread.
+     * @param file The image file.
+     * @param subsampling The requested subsampling.
+     * @param region The requested region (null for the whole image).
+     * @param di The rendition.
+     */
+    public void write(File file, int subsampling, Rectangle region, DisplayImage di) {
+        String key = key(file,subsampling,region);
+        if (key==null) { return; }
+        getWriter().execute( () -> {
+            if (total<0) { total = scan(); }
+            total += writeEntry(pathFor(key),key,di);
+            trim();
+        } );
+    }
+
+    /** Provides a description of the cache usage for display purposes.
+     * @return A multi-line description.
+     */
+    public synchronized String statisticsString() {
+        return "Disk cache directory: " + directory + System.lineSeparator()
+                + "Disk cache budget: " + ImageCache.megabytesString(budget) + System.lineSeparator()
+                + "Disk cache hits: " + hits + System.lineSeparator()
+                + "Disk cache misses: " + misses;
+    }
+
+    // -------------------- Private Methods -------------------
+
+    /** Returns the background thread for writing, starting it the first time. */
+    private synchronized ExecutorService getWriter() {
+        if (writer==null) {
+            writer = Executors.newSingleThreadExecutor( (Runnable r) -> {
+                Thread t = new Thread(r,"JMorph image disk cache");
+                t.setDaemon(true); // don't stop the application from exiting
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+        }
+        return writer;
+    }
+
+    /** Creates the key string for a rendition or returns null if the file doesn't exist. */
+    private static String key(File file, int subsampling, Rectangle region) {
+        if ( file==null || !file.isFile() ) { return null; }
+        String path;
+        try {
+            path = file.getCanonicalPath();
+        } catch (IOException e) {
+            path = file.getAbsolutePath();
+        }
+        String r = ( region==null ? "all" : region.x + "," + region.y + "," + region.width + "," + region.height );
+        return path + "|" + file.length() + "|" + file.lastModified() + "|" + subsampling + "|" + r;
+    }
+
+    /** Hashes a key string to a file name in the cache directory. */
+    private Path pathFor(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x",b));
+            }
+            return directory.resolve(sb.toString() + EXTENSION);
+        } catch (NoSuchAlgorithmException e) {
+            return directory.resolve(Integer.toHexString(key.hashCode()) + EXTENSION);
+        }
+    }
+
+    private static DisplayImage readEntry(Path path, String key, int fullWidth, int fullHeight, long mapThreshold) {
+        try (FileChannel ch = FileChannel.open(path,StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY,0,ch.size());
+            buf.order(ByteOrder.BIG_ENDIAN);
+            // Read and check the header:
+            if ( buf.remaining()<4*HEADER_INTS || buf.getInt()!=MAGIC ) { return null; }
+            boolean alpha = ( buf.getInt()!=0 );
+            int w = buf.getInt();
+            int h = buf.getInt();
+            int s = buf.getInt();
+            Rectangle r = new Rectangle(buf.getInt(),buf.getInt(),buf.getInt(),buf.getInt());
+            int n = buf.getInt();
+            if ( w<=0 || h<=0 || n<0 || n>buf.remaining() ) { return null; }
+            byte[] k = new byte[n];
+            buf.get(k);
+            if (!key.equals(new String(k,StandardCharsets.UTF_8))) { return null; } // hash collision
+            long bytes = 4L*w*h;
+            if ( buf.remaining() < bytes ) { return null; } // truncated
+            BufferedImage image;
+            if ( bytes>=mapThreshold && (long)w*h<=DirectIntDataBuffer.MAX_SIZE ) {
+                // Use the mapped pixels as the raster (the mapping stays valid after the channel is closed):
+                buf.limit( buf.position() + (int)bytes );
+                IntBuffer pixels = buf.slice().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+                image = OffHeapImages.create(new DirectIntDataBuffer(pixels),w,h,alpha);
+                return new DisplayImage(image,s,r,fullWidth,fullHeight);
+            }
+            // Copy the pixels straight into the image data buffer:
+            image = new BufferedImage(w,h,( alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB ));
+            int[] data = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+            buf.asIntBuffer().get(data);
+            return new DisplayImage(image,s,r,fullWidth,fullHeight);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Writes an entry and returns the change in the number of bytes stored (zero if the write failed). */
+    private long writeEntry(Path path, String key, DisplayImage di) {
+        BufferedImage image = di.getImage();
+        int w = image.getWidth();
+        int h = image.getHeight();
+        Rectangle r = di.getRegion();
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        int[] pixels = image.getRGB(0,0,w,h,null,0,w);
+        ByteBuffer header = ByteBuffer.allocate(4*HEADER_INTS + k.length).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt( image.getColorModel().hasAlpha() ? 1 : 0 );
+        header.putInt(w).putInt(h).putInt(di.getSubsampling());
+        header.putInt(r.x).putInt(r.y).putInt(r.width).putInt(r.height);
+        header.putInt(k.length).put(k);
+        header.flip();
+        ByteBuffer body = ByteBuffer.allocate(4*pixels.length).order(ByteOrder.BIG_ENDIAN);
+        body.asIntBuffer().put(pixels);
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            // Write to a temporary file and then move it into place so a partial entry is never read:
+            temp = Files.createTempFile(directory,TEMP_PREFIX,TEMP_EXTENSION);
+            try (FileChannel ch = FileChannel.open(temp,StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) { ch.write(header); }
+                while (body.hasRemaining()) { ch.write(body); }
+            }
+            long old = ( Files.isRegularFile(path) ? Files.size(path) : 0 );
+            Files.move(temp,path,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            return header.limit() + body.limit() - old;
+        } catch (IOException | RuntimeException e) {
+            // The entry is simply not cached.
+            return 0;
+        } finally {
+            // Don't leave a partial entry behind if the write or move failed:
+            if (temp!=null) { temp.toFile().delete(); }
+        }
+    }
+
+    /** Lists the cache files and returns their total size, deleting any temporary files
+     * left behind by writes that never finished (e.g. if the application was killed).
+     */
+    private long scan() {
+        long now = System.currentTimeMillis();
+        File[] temps = directory.toFile().listFiles( (File f) -> f.getName().startsWith(TEMP_PREFIX) && f.getName().endsWith(TEMP_EXTENSION) );
+        if (temps!=null) {
+            for (File f : temps) {
+                if ( now - f.lastModified() > STALE_TEMP_MILLIS ) { f.delete(); }
+            }
+        }
+        File[] files = listEntries();
+        if (files==null) { return 0; }
+        long sum = 0;
+        for (File f : files) {
+            sum += f.length();
+        }
+        return sum;
+    }
+
+    private File[] listEntries() {
+        return directory.toFile().listFiles( (File f) -> f.getName().endsWith(EXTENSION) );
+    }
+
+    /** Removes the least recently used entries if the running total exceeds the budget.
+     * The directory is only listed when that happens, and enough entries are removed to leave
+     * some room so that the next few writes don't have to list it again.
+     */
+    private void trim() {
+        long b = getBudget();
+        if (total<=b) { return; }
+        File[] files = listEntries();
+        if (files==null) {
+            total = 0;
+            return;
+        }
+        // Recalculate the total in case files were changed outside the application:
+        long[] lengths = new long[files.length];
+        long[] times = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        total = 0;
+        for ( int i=0 ; i<files.length ; i++ ) {
+            lengths[i] = files[i].length();
+            times[i] = files[i].lastModified();
+            order[i] = i;
+            total += lengths[i];
+        }
+        if (total<=b) { return; }
+        long target = (long)( TRIM_FRACTION*b );
+        Arrays.sort(order,Comparator.comparingLong( (Integer i) -> times[i] ));
+        for (int i : order) {
+            if (total<=target) { break; }
+            if (files[i].delete()) { total -= lengths[i]; }
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package jmorph.images;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.BufferedImage;
+
+/** A possibly subsampled rendition of all or part of an image file.
+ * The region is given in full-resolution pixel coordinates of the image file,
+ * so the rendition can be painted with the same transform used for the measurements.
+ * @author Peter Lelievre
+ */
+public final class DisplayImage {
+
+    // ------------------ Properties -------------------
+
+    private final BufferedImage image; // the decoded pixels
+    private final int subsampling; // the number of full-resolution pixels per decoded pixel in each direction
+    private final Rectangle region; // the region of the full-resolution image that was decoded
+    private final int fullWidth; // the width of the full-resolution image
+    private final int fullHeight; // the height of the full-resolution image
+
+    // ------------------ Constructor -------------------
+
+    /**
+     * @param image The decoded pixels.
+     * @param subsampling The number of full-resolution pixels per decoded pixel in each direction.
+     * @param region The region of the full-resolution image that was decoded.
+     * @param fullWidth The width of the full-resolution image.
+     * @param fullHeight The height of the full-resolution image.
+     */
+    public DisplayImage(BufferedImage image, int subsampling, Rectangle region, int fullWidth, int fullHeight) {
+        this.image = image;
+        this.subsampling = subsampling;
+        this.region = new Rectangle(region);
+        this.fullWidth = fullWidth;
+        this.fullHeight = fullHeight;
+    }
+
+    // -------------------- Getters -------------------
+
+    public BufferedImage getImage() { return image; }
+    public int getSubsampling() { return subsampling; }
+    public Rectangle getRegion() { return new Rectangle(region); }
+    public int getFullWidth() { return fullWidth; }
+    public int getFullHeight() { return fullHeight; }
+
+    /** Returns true if the rendition is of the whole image at full resolution.
+     * @return True if the rendition is of the whole image at full resolution.
+     */
+    public boolean isFullResolution() {
+        return ( subsampling==1 && covers(null) );
+    }
+
+    /** Returns true if the rendition includes a region of the full-resolution image.
+     * @param r The region in full-resolution pixel coordinates (null for the whole image).
+     * @return True if the region is included.
+     */
+    public boolean covers(Rectangle r) {
+        if (r==null) {
+            return ( region.x==0 && region.y==0 && region.width==fullWidth && region.height==fullHeight );
+        }
+        return region.contains(r);
+    }
+
+    // -------------------- Public Methods -------------------
+
+    /** Paints the rendition.
+     * @param g2 A Graphics2D object to paint with.
+     * @param imageToPanel The transform from full-resolution image pixel coordinates to panel coordinates.
+     */
+    public void paint(Graphics2D g2, AffineTransform imageToPanel) {
+        AffineTransform trans = new AffineTransform(imageToPanel);
+        trans.translate(region.x,region.y);
+        trans.scale(subsampling,subsampling);
+        if (OffHeapImages.isOffHeap(image)) {
+            paintOffHeap(g2,trans);
+        } else {
+            g2.drawImage(image,trans,null);
+        }
+    }
+
+    // -------------------- Private Methods -------------------
+
+    /** Paints an image stored off the heap by copying only the part inside the clip onto the heap,
+     * which Java2D can draw much faster than the whole image through its general loops. */
+    private void paintOffHeap(Graphics2D g2, AffineTransform trans) {
+        Rectangle r = new Rectangle(image.getWidth(),image.getHeight());
+        Shape clip = g2.getClip();
+        if (clip!=null) {
+            try {
+                Rectangle c = trans.createInverse().createTransformedShape(clip).getBounds();
+                c.grow(2,2); // a little extra for interpolation at the edges
+                r = r.intersection(c);
+            } catch (NoninvertibleTransformException e) {
+                return;
+            }
+        }
+        if (r.isEmpty()) { return; }
+        AffineTransform t = new AffineTransform(trans);
+        t.translate(r.x,r.y);
+        g2.drawImage(OffHeapImages.copyRegion(image,r),t,null);
+    }
+
+}
@@ -0,0 +1,467 @@
+package jmorph.images;
+
+import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import jmorph.diagnostics.Timings;
+
+/** A cache of decoded sample images with a memory budget.
+ * Images are keyed by their file so samples that share an image file
+ * (e.g. those created by splitting a multi-sample image) share the same entries.
+ * Each file may have several renditions stored: subsampled versions for display and
+ * full-resolution versions of the whole image or of a region (e.g. a zoom box).
+ * A request is satisfied by any stored rendition of the file with enough resolution that covers
+ * the requested region, so a full-resolution image is only decoded when it is actually needed.
+ * When the total size of the decoded rasters exceeds the budget the least recently
+ * used renditions are evicted. The renditions returned by the latest display request (see beginDisplay)
+ * and the most recently used rendition are never evicted so that the image on the screen is always
+ * available, even with a budget of zero; other renditions of the same file (e.g. tiles or zoom regions
+ * that are no longer visible) are evicted like any others.
+ * Images may be read on several threads at once; a request for an image that is already
+ * being read waits for that read rather than reading the file again.
+ * Reduced-resolution renditions are also kept in an optional disk cache so they
+ * don't have to be decoded again in later sessions.
+ * Renditions with large rasters are moved outside the Java heap so they don't add to garbage collection pauses.
+ * @author Peter Lelievre
+ */
+public final class ImageCache {
+
+    // ------------------ Properties -------------------
+
+    /** Budget to use when storing images until memory is short. */
+    public static final long DEFAULT_BUDGET = defaultBudget();
+    /** Budget to use to store only the current image. */
+    public static final long NO_BUDGET = 0;
+
+    private final LinkedHashMap<Key,DisplayImage> images = new LinkedHashMap<>(16,0.75f,true); // the stored renditions in access order
+    private final HashMap<File,HashMap<Key,DisplayImage>> renditionsByFile = new HashMap<>(); // the stored renditions for each file (looking these up doesn't change the access order)
+    private final HashMap<Key,FutureTask<DisplayImage>> reading = new HashMap<>(); // the renditions currently being read
+    private final HashMap<File,ImageInfo> infos = new HashMap<>(); // the header information for the image files
+    private final HashSet<File> failed = new HashSet<>(); // the files with headers that could be read but pixels that could not be decoded
+    private final DiskImageCache disk; // the persistent cache of reduced-resolution renditions (may be null)
+    private File current = null; // the file for the current sample image
+    private HashSet<Key> pinned = new HashSet<>(); // the renditions returned by the latest display request, which are never evicted
+    private HashSet<Key> pinning = null; // the renditions returned so far by a display request in progress (null if none)
+    private Thread pinningThread = null; // the thread making the display request in progress
+    private long budget = DEFAULT_BUDGET; // the maximum number of bytes to store (may be exceeded by the current and most recent images)
+    private long bytes = 0; // the number of bytes currently stored
+    private long offHeapBytes = 0; // the number of those bytes stored outside the Java heap
+    private long offHeapThreshold = OffHeapImages.DEFAULT_THRESHOLD; // renditions with at least this many bytes are moved off the heap
+    private long hits = 0; // the number of requests satisfied from the cache
+    private long misses = 0; // the number of requests that required decoding
+    private long evictions = 0; // the number of images evicted to satisfy the budget
+
+    // ------------------ Constructors -------------------
+
+    public ImageCache() {
+        this(null);
+    }
+
+    /**
+     * @param disk The persistent cache of reduced-resolution renditions (may be null).
+     */
+    public ImageCache(DiskImageCache disk) {
+        this.disk = disk;
+    }
+
+    // -------------------- Getters -------------------
+
+    public DiskImageCache getDiskCache() { return disk; }
+
+    public synchronized long getBudget() { return budget; }
+    public synchronized long getBytes() { return bytes; }
+    public synchronized long getOffHeapBytes() { return offHeapBytes; }
+    public synchronized long getOffHeapThreshold() { return offHeapThreshold; }
+    public synchronized int getCount() { return images.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+
+    // -------------------- Setters -------------------
+
+    /** Sets the memory budget and evicts images as required to satisfy it.
+     * @param b The maximum number of bytes to store (non-positive to store only the current and most recent images).
+     */
+    public synchronized void setBudget(long b) {
+        budget = Math.max(0,b);
+        evict();
+    }
+
+    /** Sets the size above which decoded renditions are stored outside the Java heap.
+     * This only affects renditions read after it is called.
+     * @param b The threshold in bytes (Long.MAX_VALUE to keep all renditions on the heap).
+     */
+    public synchronized void setOffHeapThreshold(long b) {
+        offHeapThreshold = Math.max(0,b);
+    }
+
+    /** Sets the file for the current sample image. The renditions kept for the previous
+     * display request are released if they belong to a different file.
+     * @param file The image file (may be null).
+     */
+    public synchronized void setCurrent(File file) {
+        if (!Objects.equals(file,current)) { pinned.clear(); }
+        current = file;
+        evict();
+    }
+
+    // -------------------- Display Requests -------------------
+
+    /** Starts a display request: the renditions returned to the calling thread until endDisplay is called
+     * are kept (never evicted) until the next display request ends, replacing those kept for the last one.
+     */
+    public synchronized void beginDisplay() {
+        pinning = new HashSet<>();
+        pinningThread = Thread.currentThread();
+    }
+
+    /** Ends a display request started by beginDisplay and evicts any renditions no longer required. */
+    public synchronized void endDisplay() {
+        if ( pinning==null || pinningThread!=Thread.currentThread() ) { return; }
+        pinned = pinning;
+        pinning = null;
+        pinningThread = null;
+        evict();
+    }
+
+    // -------------------- Public Methods -------------------
+
+    /** Returns the full-resolution image for a file, reading the file if it is not stored.
+     * @param file The image file.
+     * @return The image or null if the file could not be read.
+     */
+    public BufferedImage get(File file) {
+        DisplayImage di = getDisplay(file,1,null);
+        if (di==null) { return null; }
+        return di.getImage();
+    }
+
+    /** Returns a rendition of an image file with at least the requested resolution, reading the file if required.
+     * @param file The image file.
+     * @param subsampling The largest acceptable number of full-resolution pixels per decoded pixel.
+     * @param region The region required in full-resolution pixel coordinates (null for the whole image).
+     * @return The rendition or null if the file could not be read.
+     */
+    public DisplayImage getDisplay(File file, int subsampling, Rectangle region) {
+
+        // Check for a stored rendition or one that is already being read:
+        if (file==null) { return null; }
+        Key key = new Key(file,Math.max(1,subsampling),region);
+        FutureTask<DisplayImage> task;
+        boolean owner = false;
+        synchronized (this) {
+            Key stored = findStored(key);
+            if (stored!=null) {
+                hits++;
+                pin(stored);
+                return images.get(stored); // marks it as the most recently used
+            }
+            task = reading.get(key);
+            if (task==null) {
+                misses++;
+                task = new FutureTask<>(() -> readRendition(key));
+                reading.put(key,task);
+                owner = true;
+            } else {
+                hits++; // counted as a hit because the file is only read once
+            }
+        }
+
+        // Read the image outside the lock so other requests are not blocked:
+        if (owner) {
+            long t0 = System.nanoTime();
+            task.run();
+            Timings.IMAGE_LOAD.record(t0);
+        }
+        DisplayImage di;
+        try {
+            di = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            di = null;
+        }
+
+        // Store the rendition:
+        synchronized (this) {
+            if (di!=null) { pin(key); }
+            if (owner) {
+                reading.remove(key);
+                if (di!=null) {
+                    store(key,di);
+                    evict();
+                } else if (infos.containsKey(file)) {
+                    failed.add(file);
+                }
+            }
+        }
+        return di;
+
+    }
+
+    /** Returns a rendition of a whole image file suitable for displaying it on the screen, reading the file if required.
+     * @param file The image file.
+     * @return The rendition or null if the file could not be read.
+     */
+    public DisplayImage preload(File file) {
+        Dimension d = getSize(file);
+        if (d==null) { return null; }
+        return getDisplay(file,screenSubsampling(d),null);
+    }
+
+    /** Returns the header information for an image file, reading only the file header if required.
+     * @param file The image file.
+     * @return The information or null if the file could not be read.
+     */
+    public ImageInfo getInfo(File file) {
+        if (file==null) { return null; }
+        synchronized (this) {
+            ImageInfo info = infos.get(file);
+            if (info!=null) { return info; }
+        }
+        ImageInfo info = ImageDecoder.probe(file);
+        if (info==null) { return null; }
+        synchronized (this) {
+            infos.put(file,info);
+        }
+        return info;
+    }
+
+    /** Returns the full-resolution dimensions of an image file, reading only the file header if required.
+     * @param file The image file.
+     * @return The dimensions or null if the file could not be read.
+     */
+    public Dimension getSize(File file) {
+        ImageInfo info = getInfo(file);
+        if (info==null) { return null; }
+        return info.getSize();
+    }
+
+    /** Returns true if an attempt to decode the pixels of a file has failed
+     * (e.g. for an unsupported colour space) even though its header could be read.
+     * @param file The image file.
+     * @return True if decoding has failed.
+     */
+    public synchronized boolean hasFailed(File file) {
+        return failed.contains(file);
+    }
+
+    /** Returns true if a rendition of a file suitable for the screen is stored or is being read.
+     * This does not change the order of use.
+     * @param file The image file.
+     * @return True if a rendition is stored or is being read.
+     */
+    public synchronized boolean containsOrReading(File file) {
+        if (renditionsByFile.containsKey(file)) { return true; }
+        for (Key key : reading.keySet()) {
+            if (key.file.equals(file)) { return true; }
+        }
+        return false;
+    }
+
+    /** Returns true if any rendition of a file is stored.
+     * This does not change the order of use.
+     * @param file The image file.
+     * @return True if a rendition of the file is stored.
+     */
+    public synchronized boolean contains(File file) {
+        return renditionsByFile.containsKey(file);
+    }
+
+    /** Removes all renditions of a file.
+     * @param file The image file.
+     */
+    public synchronized void remove(File file) {
+        infos.remove(file);
+        failed.remove(file);
+        HashMap<Key,DisplayImage> renditions = renditionsByFile.remove(file);
+        if (renditions==null) { return; }
+        for (Key key : renditions.keySet()) {
+            DisplayImage di = images.remove(key);
+            if (di!=null) { unstore(di); }
+        }
+    }
+
+    /** Removes all stored images. */
+    public synchronized void clear() {
+        images.clear();
+        renditionsByFile.clear();
+        bytes = 0;
+        offHeapBytes = 0;
+    }
+
+    /** Resets the hit, miss and eviction counters. */
+    public synchronized void resetCounters() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /** Provides a description of the cache usage for display purposes.
+     * @return A multi-line description.
+     */
+    public synchronized String statisticsString() {
+        String s = "Images stored: " + images.size() + System.lineSeparator()
+                + "Memory used: " + megabytesString(bytes) + System.lineSeparator()
+                + "Memory used outside the heap: " + megabytesString(offHeapBytes) + System.lineSeparator()
+                + "Memory budget: " + megabytesString(budget) + System.lineSeparator()
+                + "Hits: " + hits + System.lineSeparator()
+                + "Misses: " + misses + System.lineSeparator()
+                + "Evictions: " + evictions;
+        if (disk!=null) {
+            s += System.lineSeparator() + disk.statisticsString();
+        }
+        return s;
+    }
+
+    /** Calculates the memory used by the raster of an image.
+     * @param image The image.
+     * @return The number of bytes in the image data buffer.
+     */
+    public static long sizeOf(BufferedImage image) {
+        DataBuffer db = image.getRaster().getDataBuffer();
+        return (long)db.getSize() * db.getNumBanks() * DataBuffer.getDataTypeSize(db.getDataType()) / 8;
+    }
+
+    /** Converts a number of bytes to a string in megabytes.
+     * @param b The number of bytes.
+     * @return The string.
+     */
+    public static String megabytesString(long b) {
+        return String.format("%.1f MB",b/1048576.0);
+    }
+
+    /** Returns the subsampling that fits an image of some size on the screen.
+     * @param d The full-resolution dimensions of the image.
+     * @return The subsampling (one if there is no screen).
+     */
+    public static int screenSubsampling(Dimension d) {
+        if (GraphicsEnvironment.isHeadless()) { return 1; }
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        double scaling = Math.min( screen.getWidth()/d.getWidth() , screen.getHeight()/d.getHeight() );
+        return ImageDecoder.subsamplingFor(scaling);
+    }
+
+    // -------------------- Private Methods -------------------
+
+    /** Reads a rendition from the disk cache if possible, otherwise decodes it from the image file. */
+    private DisplayImage readRendition(Key key) {
+        boolean useDisk = ( disk!=null && DiskImageCache.shouldStore(key.subsampling) );
+        if (useDisk) {
+            Dimension d = getSize(key.file);
+            if (d==null) { return null; }
+            DisplayImage di = disk.read(key.file,key.subsampling,key.region,d.width,d.height,getOffHeapThreshold());
+            if (di!=null) { return moveOffHeap(di); }
+        }
+        DisplayImage di = ImageDecoder.decode(key.file,key.subsampling,key.region);
+        if ( di!=null && useDisk ) {
+            disk.write(key.file,key.subsampling,key.region,di);
+        }
+        return moveOffHeap(di);
+    }
+
+    /** Copies a rendition with a large raster outside the Java heap (the heap copy can then be collected). */
+    private DisplayImage moveOffHeap(DisplayImage di) {
+        if ( di==null || sizeOf(di.getImage())<getOffHeapThreshold() ) { return di; }
+        BufferedImage image = OffHeapImages.copyOf(di.getImage());
+        if (image==di.getImage()) { return di; }
+        return new DisplayImage(image,di.getSubsampling(),di.getRegion(),di.getFullWidth(),di.getFullHeight());
+    }
+
+    /** Finds the stored rendition that satisfies a request with the least memory (without marking it as used).
+     * @return The key of the rendition, or null if none is stored.
+     */
+    private Key findStored(Key key) {
+        HashMap<Key,DisplayImage> renditions = renditionsByFile.get(key.file);
+        if (renditions==null) { return null; }
+        Key best = null;
+        for (Map.Entry<Key,DisplayImage> entry : renditions.entrySet()) {
+            Key k = entry.getKey();
+            if (k.subsampling>key.subsampling) { continue; }
+            if (!entry.getValue().covers(key.region)) { continue; }
+            if ( best==null || k.subsampling>best.subsampling ) { best = k; }
+        }
+        return best;
+    }
+
+    /** Keeps a rendition if it is being returned to a display request in progress on the calling thread. */
+    private void pin(Key key) {
+        if ( pinning!=null && pinningThread==Thread.currentThread() ) { pinning.add(key); }
+    }
+
+    private void store(Key key, DisplayImage di) {
+        if (images.put(key,di)!=null) { return; } // already stored
+        renditionsByFile.computeIfAbsent(key.file,(File f) -> new HashMap<>()).put(key,di);
+        long b = sizeOf(di.getImage());
+        bytes += b;
+        if (OffHeapImages.isOffHeap(di.getImage())) { offHeapBytes += b; }
+    }
+
+    private void unstore(DisplayImage di) {
+        long b = sizeOf(di.getImage());
+        bytes -= b;
+        if (OffHeapImages.isOffHeap(di.getImage())) { offHeapBytes -= b; }
+    }
+
+    /** Evicts the least recently used images until the budget is satisfied, keeping those being displayed and the most recent. */
+    private void evict() {
+        Iterator<Map.Entry<Key,DisplayImage>> it = images.entrySet().iterator();
+        int n = images.size();
+        while ( bytes>budget && n>1 ) { // the last entry is the most recent
+            Map.Entry<Key,DisplayImage> entry = it.next();
+            n--;
+            Key key = entry.getKey();
+            if ( pinned.contains(key) || ( pinning!=null && pinning.contains(key) ) ) { continue; }
+            it.remove();
+            HashMap<Key,DisplayImage> renditions = renditionsByFile.get(key.file);
+            renditions.remove(key);
+            if (renditions.isEmpty()) { renditionsByFile.remove(key.file); }
+            unstore(entry.getValue());
+            evictions++;
+        }
+    }
+
+    private static long defaultBudget() {
+        // Use half of the memory available to the virtual machine:
+        long max = Runtime.getRuntime().maxMemory();
+        if (max==Long.MAX_VALUE) { return 1024L*1048576L; } // no limit reported
+        return max/2;
+    }
+
+    // -------------------- Key -------------------
+
+    /** Identifies a rendition of an image file. */
+    private static final class Key {
+        private final File file;
+        private final int subsampling;
+        private final Rectangle region; // null for the whole image
+        Key(File file, int subsampling, Rectangle region) {
+            this.file = file;
+            this.subsampling = subsampling;
+            this.region = ( region==null ? null : new Rectangle(region) );
+        }
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key k)) { return false; }
+            return ( subsampling==k.subsampling && file.equals(k.file) && Objects.equals(region,k.region) );
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hash(file,subsampling,region);
+        }
+    }
+
+}
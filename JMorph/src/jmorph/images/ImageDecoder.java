@@ -0,0 +1,209 @@
+package jmorph.images;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import jmorph.diagnostics.ImageDecodeEvent;
+import jmorph.diagnostics.Timings;
+import org.w3c.dom.NodeList;
+
+/** Static methods for reading image files at reduced resolution or reading only their headers.
+ * @author Peter Lelievre
+ */
+public final class ImageDecoder {
+
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final String TIFF_METADATA_FORMAT = "javax_imageio_tiff_image_1.0";
+
+    private ImageDecoder() {} // prevents instantiation
+
+    /** Reads the dimensions and orientation of an image from the file header without decoding any pixels.
+     * The orientation is read from the EXIF information in JPEG files and the orientation tag in TIFF files.
+     * @param file The image file.
+     * @return The information or null if the file could not be read.
+     */
+    public static ImageInfo probe(File file) {
+        ImageInputStream iis = null;
+        ImageReader reader = null;
+        try {
+            iis = ImageIO.createImageInputStream(file);
+            reader = createReader(iis,false);
+            if (reader==null) { return null; }
+            return new ImageInfo(reader.getWidth(0),reader.getHeight(0),readOrientation(reader));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        } finally {
+            close(reader,iis);
+        }
+    }
+
+    /** Reads an image file, or a region of it, using source subsampling.
+     * The region is expanded outward to a multiple of the subsampling so that
+     * renditions of overlapping regions line up.
+     * @param file The image file.
+     * @param subsampling The number of full-resolution pixels per decoded pixel in each direction.
+     * @param region The region to read in full-resolution pixel coordinates (null for the whole image).
+     * @return The rendition or null if the file could not be read.
+     */
+    public static DisplayImage decode(File file, int subsampling, Rectangle region) {
+        long t0 = System.nanoTime();
+        ImageDecodeEvent event = new ImageDecodeEvent();
+        event.begin();
+        long pixels = 0;
+        ImageInputStream iis = null;
+        ImageReader reader = null;
+        try {
+            iis = ImageIO.createImageInputStream(file);
+            reader = createReader(iis,true);
+            if (reader==null) { return null; }
+            int w = reader.getWidth(0);
+            int h = reader.getHeight(0);
+            int s = Math.max(1,subsampling);
+            Rectangle r = alignRegion(region,s,w,h);
+            if (r.isEmpty()) { return null; }
+            ImageReadParam param = reader.getDefaultReadParam();
+            if ( r.width!=w || r.height!=h ) {
+                param.setSourceRegion(r);
+            }
+            if (s>1) {
+                param.setSourceSubsampling(s,s,0,0);
+            }
+            BufferedImage image = reader.read(0,param);
+            if (image==null) { return null; }
+            pixels = (long)image.getWidth()*image.getHeight();
+            return new DisplayImage(image,s,r,w,h);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        } finally {
+            close(reader,iis);
+            Timings.IMAGE_DECODE.record(t0);
+            event.report(file,region,Math.max(1,subsampling),pixels);
+        }
+    }
+
+    /** Expands a region outward to multiples of the subsampling and clips it to the image.
+     * @param region The region in full-resolution pixel coordinates (null for the whole image).
+     * @param s The subsampling.
+     * @param w The width of the full-resolution image.
+     * @param h The height of the full-resolution image.
+     * @return A new rectangle.
+     */
+    public static Rectangle alignRegion(Rectangle region, int s, int w, int h) {
+        Rectangle bounds = new Rectangle(0,0,w,h);
+        if (region==null) { return bounds; }
+        int x1 = Math.floorDiv(region.x,s)*s;
+        int y1 = Math.floorDiv(region.y,s)*s;
+        int x2 = -Math.floorDiv(-(region.x+region.width),s)*s;
+        int y2 = -Math.floorDiv(-(region.y+region.height),s)*s;
+        return new Rectangle(x1,y1,x2-x1,y2-y1).intersection(bounds);
+    }
+
+    /** Returns the largest power-of-two subsampling that keeps at least one decoded pixel per panel pixel.
+     * @param scaling The number of panel pixels per full-resolution image pixel.
+     * @return The subsampling (at least one).
+     */
+    public static int subsamplingFor(double scaling) {
+        int s = 1;
+        while ( 2.0*s*scaling <= 1.0 ) {
+            s *= 2;
+        }
+        return s;
+    }
+
+    private static ImageReader createReader(ImageInputStream iis, boolean ignoreMetadata) {
+        if (iis==null) { return null; }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+        if (!readers.hasNext()) { return null; }
+        ImageReader reader = readers.next();
+        reader.setInput(iis,true,ignoreMetadata); // forward seeking only
+        return reader;
+    }
+
+    /** Reads the EXIF orientation from the image metadata, which doesn't require any pixels to be decoded. */
+    private static int readOrientation(ImageReader reader) {
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            if (metadata==null) { return ImageInfo.ORIENTATION_NORMAL; }
+            String format = metadata.getNativeMetadataFormatName();
+            if (JPEG_METADATA_FORMAT.equals(format)) {
+                // The EXIF information is stored as a TIFF structure inside an APP1 marker segment:
+                IIOMetadataNode root = (IIOMetadataNode)metadata.getAsTree(format);
+                NodeList nodes = root.getElementsByTagName("unknown");
+                for ( int i=0 ; i<nodes.getLength() ; i++ ) {
+                    IIOMetadataNode node = (IIOMetadataNode)nodes.item(i);
+                    if ( !"225".equals(node.getAttribute("MarkerTag")) ) { continue; }
+                    if ( node.getUserObject() instanceof byte[] data ) {
+                        int orientation = exifOrientation(data);
+                        if (orientation>0) { return orientation; }
+                    }
+                }
+            } else if (TIFF_METADATA_FORMAT.equals(format)) {
+                IIOMetadataNode root = (IIOMetadataNode)metadata.getAsTree(format);
+                NodeList fields = root.getElementsByTagName("TIFFField");
+                for ( int i=0 ; i<fields.getLength() ; i++ ) {
+                    IIOMetadataNode field = (IIOMetadataNode)fields.item(i);
+                    if ( !Integer.toString(EXIF_ORIENTATION_TAG).equals(field.getAttribute("number")) ) { continue; }
+                    NodeList values = field.getElementsByTagName("TIFFShort");
+                    if (values.getLength()>0) {
+                        return Integer.parseInt(((IIOMetadataNode)values.item(0)).getAttribute("value"));
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Treat unreadable metadata as no orientation information.
+        }
+        return ImageInfo.ORIENTATION_NORMAL;
+    }
+
+    /** Finds the orientation tag in the first image file directory of an EXIF APP1 segment, returning 0 if there is none. */
+    private static int exifOrientation(byte[] data) {
+        byte[] exifHeader = "Exif\0\0".getBytes(StandardCharsets.ISO_8859_1);
+        if (data.length<exifHeader.length+8) { return 0; }
+        for ( int i=0 ; i<exifHeader.length ; i++ ) {
+            if (data[i]!=exifHeader[i]) { return 0; }
+        }
+        ByteBuffer buf = ByteBuffer.wrap(data,exifHeader.length,data.length-exifHeader.length).slice();
+        // Check the TIFF byte order mark:
+        if ( data[exifHeader.length]=='I' && data[exifHeader.length+1]=='I' ) {
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+        } else if ( data[exifHeader.length]!='M' || data[exifHeader.length+1]!='M' ) {
+            return 0;
+        }
+        // Loop over the 12-byte entries in the first image file directory:
+        int ifd = buf.getInt(4);
+        if ( ifd<8 || ifd+2>buf.limit() ) { return 0; }
+        int n = buf.getShort(ifd) & 0xFFFF;
+        for ( int i=0 ; i<n ; i++ ) {
+            int p = ifd + 2 + 12*i;
+            if (p+12>buf.limit()) { return 0; }
+            if ( (buf.getShort(p) & 0xFFFF) == EXIF_ORIENTATION_TAG ) {
+                return buf.getShort(p+8) & 0xFFFF; // a single SHORT value is stored at the start of the value field
+            }
+        }
+        return 0;
+    }
+
+    private static void close(ImageReader reader, ImageInputStream iis) {
+        if (reader!=null) { reader.dispose(); }
+        if (iis!=null) {
+            try {
+                iis.close();
+            } catch (IOException e) {
+                // Nothing to do here.
+            }
+        }
+    }
+
+}
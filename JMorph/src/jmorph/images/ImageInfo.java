@@ -0,0 +1,52 @@
+package jmorph.images;
+
+import java.awt.Dimension;
+
+/** Information about an image file that can be read from its header without decoding any pixels.
+ * @author Peter Lelievre
+ */
+public final class ImageInfo {
+
+    // ------------------ Properties -------------------
+
+    /** The EXIF orientation of an image stored the right way up (also used if the file has no orientation tag). */
+    public static final int ORIENTATION_NORMAL = 1;
+
+    private final int width; // the width of the full-resolution image as stored in the file
+    private final int height; // the height of the full-resolution image as stored in the file
+    private final int orientation; // the EXIF orientation (1 to 8)
+
+    // ------------------ Constructor -------------------
+
+    /**
+     * @param width The width of the full-resolution image.
+     * @param height The height of the full-resolution image.
+     * @param orientation The EXIF orientation (values outside 1 to 8 are treated as normal).
+     */
+    public ImageInfo(int width, int height, int orientation) {
+        this.width = width;
+        this.height = height;
+        this.orientation = ( orientation>=1 && orientation<=8 ? orientation : ORIENTATION_NORMAL );
+    }
+
+    // -------------------- Getters -------------------
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getOrientation() { return orientation; }
+
+    /** Returns the dimensions of the full-resolution image as stored in the file.
+     * @return A new object.
+     */
+    public Dimension getSize() {
+        return new Dimension(width,height);
+    }
+
+    /** Returns true if a viewer honouring the EXIF orientation would swap the width and height.
+     * @return True for orientations 5 to 8.
+     */
+    public boolean isTransposed() {
+        return ( orientation>=5 );
+    }
+
+}
@@ -0,0 +1,94 @@
+package jmorph.images;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Reads images into an image cache on a background thread before they are needed.
+ * The prefetch window is replaced each time the current sample changes and any
+ * queued reads for files that have fallen out of the window are cancelled
+ * (a read that has already started is allowed to finish).
+ * @author Peter Lelievre
+ */
+public final class ImagePrefetcher {
+
+    // ------------------ Properties -------------------
+
+    /** Default number of samples after the current sample to prefetch. */
+    public static final int NEXT_DEFAULT = 2;
+    /** Default number of samples before the current sample to prefetch. */
+    public static final int PREVIOUS_DEFAULT = 1;
+
+    private final ImageCache cache; // the cache to read the images into
+    private final ExecutorService executor; // the background thread
+    private final HashMap<File,Future<?>> queued = new HashMap<>(); // the reads that have been submitted
+    private int next = NEXT_DEFAULT; // the number of samples after the current sample to prefetch
+    private int previous = PREVIOUS_DEFAULT; // the number of samples before the current sample to prefetch
+
+    // ------------------ Constructor -------------------
+
+    /**
+     * @param cache The cache to read the images into.
+     */
+    public ImagePrefetcher(ImageCache cache) {
+        this.cache = cache;
+        executor = Executors.newSingleThreadExecutor( (Runnable r) -> {
+            Thread t = new Thread(r,"JMorph image prefetch");
+            t.setDaemon(true); // don't stop the application from exiting
+            t.setPriority(Thread.MIN_PRIORITY); // stay out of the way of the GUI
+            return t;
+        });
+    }
+
+    // -------------------- Getters and Setters -------------------
+
+    public int getNext() { return next; }
+    public int getPrevious() { return previous; }
+    public void setNext(int n) { next = Math.max(0,n); }
+    public void setPrevious(int n) { previous = Math.max(0,n); }
+
+    // -------------------- Public Methods -------------------
+
+    /** Replaces the prefetch window.
+     * The files should be ordered by priority (the first will be read first).
+     * Files already stored in (or being read into) the cache are skipped.
+     * @param files The files in the new window.
+     */
+    public synchronized void prefetch(List<File> files) {
+
+        // Cancel queued reads that are no longer in the window:
+        Iterator<Map.Entry<File,Future<?>>> it = queued.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<File,Future<?>> entry = it.next();
+            Future<?> future = entry.getValue();
+            if ( future.isDone() || !files.contains(entry.getKey()) ) {
+                future.cancel(false); // no effect if the read has started or finished
+                it.remove();
+            }
+        }
+
+        // Nothing is worth prefetching if the cache can't store anything beyond the current image:
+        if (cache.getBudget()==ImageCache.NO_BUDGET) { return; }
+
+        // Submit reads for the new files in the window:
+        for (File file : files) {
+            if ( file==null || queued.containsKey(file) || cache.containsOrReading(file) ) { continue; }
+            queued.put( file , executor.submit( () -> { cache.preload(file); } ) );
+        }
+
+    }
+
+    /** Cancels all queued reads. */
+    public synchronized void cancel() {
+        for (Future<?> future : queued.values()) {
+            future.cancel(false);
+        }
+        queued.clear();
+    }
+
+}
@@ -0,0 +1,83 @@
+package jmorph.images;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/** Static methods for displaying very large images as a pyramid of lazily decoded tiles.
+ * Level k of the pyramid is the image subsampled by 2^k and each level is divided into
+ * tiles of TILE_SIZE decoded pixels on a side. Only the tiles that intersect the visible
+ * region are decoded. The tiles are stored in the image cache like any other rendition,
+ * keyed by file, subsampling and tile region, so they share its LRU eviction and budget.
+ * A tile request can be satisfied by a coarser-grained stored rendition that covers it
+ * (e.g. the screen-resolution rendition) so tiles are only decoded where more detail is needed.
+ * @author Peter Lelievre
+ */
+public final class ImagePyramid {
+
+    /** The width and height of a tile in decoded pixels. */
+    public static final int TILE_SIZE = 512;
+    /** Images with more full-resolution pixels than this are displayed using tiles. */
+    public static final long LARGE_IMAGE_PIXELS = 50000000L;
+
+    private ImagePyramid() {} // prevents instantiation
+
+    /** Returns true if an image is large enough to be displayed using tiles.
+     * @param d The full-resolution dimensions of the image.
+     * @return True if the image should be displayed using tiles.
+     */
+    public static boolean isLarge(Dimension d) {
+        return ( (long)d.width*d.height > LARGE_IMAGE_PIXELS );
+    }
+
+    /** Calculates the regions of the tiles at some level that intersect a region.
+     * @param d The full-resolution dimensions of the image.
+     * @param subsampling The subsampling for the pyramid level (a power of two).
+     * @param region The region required in full-resolution pixel coordinates (null for the whole image).
+     * @return The tile regions in full-resolution pixel coordinates, clipped to the image.
+     */
+    public static List<Rectangle> tiles(Dimension d, int subsampling, Rectangle region) {
+        Rectangle bounds = new Rectangle(d);
+        Rectangle r = ( region==null ? bounds : region.intersection(bounds) );
+        ArrayList<Rectangle> out = new ArrayList<>();
+        if (r.isEmpty()) { return out; }
+        int t = TILE_SIZE*subsampling; // tile size in full-resolution pixels
+        int i1 = r.x/t;
+        int j1 = r.y/t;
+        int i2 = (r.x+r.width-1)/t;
+        int j2 = (r.y+r.height-1)/t;
+        for ( int j=j1 ; j<=j2 ; j++ ) {
+            for ( int i=i1 ; i<=i2 ; i++ ) {
+                out.add( new Rectangle(i*t,j*t,t,t).intersection(bounds) );
+            }
+        }
+        return out;
+    }
+
+    /** Returns the renditions required to display a region of an image at some level.
+     * Tiles that are not stored in the cache are decoded.
+     * Each rendition is only included once, even if it satisfies several tiles.
+     * @param cache The image cache.
+     * @param file The image file.
+     * @param subsampling The subsampling for the pyramid level (a power of two).
+     * @param region The region required in full-resolution pixel coordinates (null for the whole image).
+     * @return The renditions (an empty list if the file could not be read).
+     */
+    public static List<DisplayImage> getTiles(ImageCache cache, File file, int subsampling, Rectangle region) {
+        ArrayList<DisplayImage> out = new ArrayList<>();
+        Dimension d = cache.getSize(file);
+        if (d==null) { return out; }
+        IdentityHashMap<DisplayImage,Boolean> found = new IdentityHashMap<>();
+        for (Rectangle tile : tiles(d,subsampling,region)) {
+            DisplayImage di = cache.getDisplay(file,subsampling,tile);
+            if ( di!=null && found.put(di,Boolean.TRUE)==null ) {
+                out.add(di);
+            }
+        }
+        return out;
+    }
+
+}
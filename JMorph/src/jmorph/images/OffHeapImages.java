@@ -0,0 +1,88 @@
+package jmorph.images;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.nio.IntBuffer;
+
+/** Static methods for creating images with pixels stored outside the Java heap.
+ * The pixels are packed RGB or ARGB ints held in a DirectIntDataBuffer.
+ * Java2D draws such images through its general (slower) loops, so only images large enough
+ * to matter to the garbage collector are worth moving off the heap.
+ * @author Peter Lelievre
+ */
+public final class OffHeapImages {
+
+    /** Images with rasters at least this many bytes are moved off the heap by default. */
+    public static final long DEFAULT_THRESHOLD = 32L*1048576L;
+
+    private OffHeapImages() {} // prevents instantiation
+
+    /** Returns true if the pixels of an image are stored outside the Java heap.
+     * @param image The image.
+     * @return True if the image raster uses a DirectIntDataBuffer.
+     */
+    public static boolean isOffHeap(BufferedImage image) {
+        return ( image.getRaster().getDataBuffer() instanceof DirectIntDataBuffer );
+    }
+
+    /** Copies an image into a new image with its pixels stored outside the Java heap.
+     * The copy is made one row at a time so no second full-size array is needed on the heap.
+     * @param image The image to copy.
+     * @return The copy, or the supplied image if it is already off the heap, too large or the direct memory is exhausted.
+     */
+    public static BufferedImage copyOf(BufferedImage image) {
+        if (isOffHeap(image)) { return image; }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        if ( (long)w*h > DirectIntDataBuffer.MAX_SIZE ) { return image; }
+        DirectIntDataBuffer db;
+        try {
+            db = new DirectIntDataBuffer(w*h);
+        } catch (OutOfMemoryError e) {
+            return image; // direct memory is limited separately from the heap
+        }
+        IntBuffer data = db.getBuffer();
+        int[] row = new int[w];
+        for ( int y=0 ; y<h ; y++ ) {
+            image.getRGB(0,y,w,1,row,0,w);
+            data.put(y*w,row);
+        }
+        return create(db,w,h,image.getColorModel().hasAlpha());
+    }
+
+    /** Copies a region of an image stored off the heap into a new image on the heap.
+     * @param image An image created by this class.
+     * @param r The region to copy, which must lie inside the image.
+     * @return A new TYPE_INT_RGB or TYPE_INT_ARGB image.
+     */
+    public static BufferedImage copyRegion(BufferedImage image, Rectangle r) {
+        IntBuffer data = ((DirectIntDataBuffer)image.getRaster().getDataBuffer()).getBuffer();
+        int w = image.getWidth();
+        BufferedImage out = new BufferedImage(r.width,r.height,
+                ( image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB ));
+        int[] pixels = ((DataBufferInt)out.getRaster().getDataBuffer()).getData();
+        for ( int j=0 ; j<r.height ; j++ ) {
+            data.get( (r.y+j)*w + r.x , pixels , j*r.width , r.width );
+        }
+        return out;
+    }
+
+    /** Creates an image from packed pixels already stored in a DirectIntDataBuffer.
+     * @param db The pixels, row by row.
+     * @param w The image width.
+     * @param h The image height.
+     * @param alpha True if the pixels are ARGB, false for RGB.
+     * @return The new image.
+     */
+    public static BufferedImage create(DirectIntDataBuffer db, int w, int h, boolean alpha) {
+        ColorModel cm = ( alpha ? ColorModel.getRGBdefault() : new DirectColorModel(24,0x00FF0000,0x0000FF00,0x000000FF) );
+        WritableRaster raster = Raster.createWritableRaster(cm.createCompatibleSampleModel(w,h),db,null);
+        return new BufferedImage(cm,raster,false,null);
+    }
+
+}
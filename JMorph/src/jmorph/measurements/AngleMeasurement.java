@@ -102,7 +102,7 @@ public class AngleMeasurement extends DefaultMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
+    protected String computeStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
@@ -125,7 +125,7 @@ public class AngleMeasurement extends DefaultMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForExportCSV(double factor, AffineTransform trans) {
+    protected String computeStringForExportCSV(double factor, AffineTransform trans) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
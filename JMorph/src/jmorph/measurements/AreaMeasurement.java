@@ -2,14 +2,17 @@ package jmorph.measurements;
 
 import geometry.MyPoint2D;
 import geometry.MyPoint2DVector;
-import geometry.MyPolygon;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.GeneralPath;
+import jmorph.geometry.PackedPolygon;
+import jmorph.geometry.PolygonMoments;
+import jmorph.geometry.ScreenCache;
 import paint.PaintingUtils;
 
 /** The area and centroid of a polygon defined by several points.
+ * Some shape descriptors (principal axes, orientation, eccentricity and radius of gyration)
+ * are also calculated from the second moments of the polygon.
  * @author Peter Lelievre
  */
 public class AreaMeasurement extends DefaultMeasurement {
@@ -24,7 +27,8 @@ public class AreaMeasurement extends DefaultMeasurement {
     // ------------------ Properties -------------------
 
     @SuppressWarnings("ProtectedField")
-    protected MyPolygon coordsOrig = null; /** The original user-selected coordinate points before processing. */
+    protected PackedPolygon coordsOrig = null; /** The original user-selected coordinate points before processing. */
+    private PolygonMoments momentsOrig = null; /** The moments of the coordsOrig polygon. */
 
     // ------------------- Deep Copy ------------------
 
@@ -56,6 +60,7 @@ public class AreaMeasurement extends DefaultMeasurement {
     @Override
     public void setCoordinates(MyPoint2DVector coords) {
         // Clear all the outline analysis properties before setting the coordinates:
+        clearResults();
         clearOutlineAnalysis();
         coordinates = coords;
     }
@@ -89,6 +94,7 @@ public class AreaMeasurement extends DefaultMeasurement {
     /** Clears a measurement (clears the coordinate list, etc.). */
     @Override
     public void clear() {
+        clearResults();
         coordinates.clear();
         clearOutlineAnalysis();
     }
@@ -150,7 +156,7 @@ public class AreaMeasurement extends DefaultMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
+    protected String computeStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
@@ -170,8 +176,9 @@ public class AreaMeasurement extends DefaultMeasurement {
         MyPoint2D p = calculateCentroid();
         p.transform(trans);
 
-        // Write as "area (x,y)":
-        return Float.toString((float)a) + " (" + Float.toString((float)p.getX()) + "," + Float.toString((float)p.getY()) + ")";
+        // Write as "area (x,y)" followed by the shape descriptors:
+        return Float.toString((float)a) + " (" + Float.toString((float)p.getX()) + "," + Float.toString((float)p.getY()) + ")"
+                + shapeStringForDisplay(factor);
         
     }
 
@@ -195,7 +202,7 @@ public class AreaMeasurement extends DefaultMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForExportCSV(double factor, AffineTransform trans) {
+    protected String computeStringForExportCSV(double factor, AffineTransform trans) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
@@ -216,7 +223,7 @@ public class AreaMeasurement extends DefaultMeasurement {
         p.transform(trans);
 
         // Add the calculated and calibrated measurement values (area and centroid coordinates) to a string:
-        return a + "," + p.getX() + "," + p.getY() + "," + !coordsOrig.isClockwise();
+        return a + "," + p.getX() + "," + p.getY() + "," + !origMoments().isClockwise();
 
     }
 
@@ -241,27 +248,18 @@ public class AreaMeasurement extends DefaultMeasurement {
 
         }
 
-        // Create a path around the measurement coordinates:
-        GeneralPath path;
-        path = new GeneralPath();
-        coordinates.addToPath(path);
-
-        // Close the path if not measuring:
-        if (!measuring) {
-            path.closePath();
-        }
-
-        // Transform the path from sample to panel coordinates:
-        path.transform(trans);
+        // Create a path around the measurement coordinates, closed if not measuring
+        // (only transformed from sample to panel coordinates again if something has changed):
+        ScreenCache screen = coordinatesOnScreen(trans,scal,!measuring);
 
         // Draw the path:
         g2.setPaint(getPrimaryColour());
-        g2.draw(path);
+        g2.draw(screen.getPath());
 
         // Draw measurement coordinates as individual filled circles:
         if (coordinates!=null) {
             g2.setPaint(Color.BLACK);
-            PaintingUtils.paintPoints(g2,trans,coordinates,getPointWidth(),true);
+            screen.paintPoints(g2,getPointWidth(),true);
             if (!measuring) {
                 // First point is drawn larger:
                 PaintingUtils.paintPoint(g2,trans,coordinates.get(0),getPointWidth()+4,true);
@@ -275,24 +273,103 @@ public class AreaMeasurement extends DefaultMeasurement {
     /** Clears all the outline analysis properties. */
     protected void clearOutlineAnalysis(){
         coordsOrig = null;
+        momentsOrig = null;
+    }
+
+    /** Provides the moments of the polygon defined by the original coordinates.
+     * @return The moments, or null if the measurement has not been measured.
+     */
+    protected PolygonMoments origMoments() {
+        if (momentsOrig==null) {
+            if (coordsOrig==null) { fillCoordsOrig(); }
+            if (coordsOrig==null) { return null; }
+            momentsOrig = new PolygonMoments(coordsOrig);
+        }
+        return momentsOrig;
+    }
+
+    /** Provides the moments used to calculate the area, centroid and shape descriptors.
+     * For an Area object these are the moments of the polygon defined by the original coordinates.
+     * @return The moments, or null if the measurement has not been measured.
+     */
+    protected PolygonMoments calculateMoments() {
+        return origMoments();
     }
 
     /** Provides the uncalibrated area of the polygon.
      * @return The uncalibrated area of the polygon.
      */
     private double calculateArea() {
-        // Calculate area of the polygon defined by the coordinates:
-        if (coordsOrig==null) { fillCoordsOrig(); }
-        return coordsOrig.area();
+        return calculateMoments().getArea();
     }
 
     /** Provides the uncalibrated coordinates of the polygon centroid.
      * @return The uncalibrated coordinates of the polygon centroid.
      */
-    private MyPoint2D calculateCentroid() {
-        // Calculate area and centroid of the polygon defined by the coordinates:
-        if (coordsOrig==null) { fillCoordsOrig(); }
-        return coordsOrig.com();
+    protected MyPoint2D calculateCentroid() {
+        return calculateMoments().getCentroid();
+    }
+
+    /** Provides a string with the calibrated shape descriptors for display purposes.
+     * The lengths are only included if the calibration factor is defined.
+     * @param factor The calibration factor.
+     * @return A string with a line for each shape descriptor, each starting with a line separator.
+     */
+    protected String shapeStringForDisplay(double factor) {
+        PolygonMoments mom = calculateMoments();
+        String s = "";
+        if (factor!=NULL_CALIBRATION_DISTANCE) {
+            s += System.lineSeparator() + "   " + Float.toString((float)(factor*mom.majorAxis()))
+                    + ", " + Float.toString((float)(factor*mom.minorAxis())) + " (major, minor axes)";
+        }
+        s += System.lineSeparator() + "   " + Float.toString((float)Math.toDegrees(mom.orientation())) + " (orientation, degrees)";
+        s += System.lineSeparator() + "   " + Float.toString((float)mom.eccentricity()) + " (eccentricity)";
+        if (factor!=NULL_CALIBRATION_DISTANCE) {
+            s += System.lineSeparator() + "   " + Float.toString((float)(factor*mom.radiusOfGyration())) + " (radius of gyration)";
+        }
+        return s;
+    }
+
+    /** Provides the column names for the shape descriptors written by calculateShapeStringForExportCSV.
+     * The shape descriptors are only exported to a CSV file when requested,
+     * in which case they follow the columns provided by nameForExportCSV.
+     * @return A string containing the measurement name and shape descriptor names (commas between but NOT at the start or end).
+     */
+    public String shapeNameForExportCSV() {
+        return getName() + " (major axis),(minor axis),(orientation),(eccentricity),(radius of gyration)";
+    }
+
+    /** Provides a string with the calibrated shape descriptors for writing to a CSV file.
+     * The orientation is in radians.
+     * @param factor A calibration factor for the measurement's coordinate points.
+     * @return A string with five comma-separated values (no comma at the start or end).
+     */
+    public String calculateShapeStringForExportCSV(double factor) {
+
+        // Check for unmeasured measurement:
+        if (!isMeasured()) {
+            return "not measured,,,,";
+        }
+
+        // Make sure all calculations are preformed as required before exporting:
+        runBeforePainting(false);
+        PolygonMoments mom = calculateMoments();
+        if (mom==null) {
+            return "not measured,,,,";
+        }
+
+        // Add the shape descriptors to a string (the orientation and eccentricity do not need calibrating):
+        String major, minor, gyration;
+        if (factor!=NULL_CALIBRATION_DISTANCE) {
+            major = Double.toString(factor*mom.majorAxis());
+            minor = Double.toString(factor*mom.minorAxis());
+            gyration = Double.toString(factor*mom.radiusOfGyration());
+        } else {
+            major = "sample not calibrated";
+            minor = "";
+            gyration = "";
+        }
+        return major + "," + minor + "," + mom.orientation() + "," + mom.eccentricity() + "," + gyration;
     }
 
     /** Provides the calibrated area of the polygon.
@@ -306,7 +383,7 @@ public class AreaMeasurement extends DefaultMeasurement {
         return factor*factor*a;
     }
 
-    /** Copies the coordinates into the coordsOrig MyPolygon object.
+    /** Copies the coordinates into the coordsOrig PackedPolygon object.
      * Clears and recalculates any outline analysis that has been performed.
      */
     protected void fillCoordsOrig() {
@@ -318,12 +395,7 @@ public class AreaMeasurement extends DefaultMeasurement {
         clearOutlineAnalysis();
 
         // Fill the coordsOrig information:
-        coordsOrig = new MyPolygon();
-        for ( int j=0 ; j<coordinates.size() ; j++ ) {
-            // Deep copy over the points.
-            MyPoint2D p = coordinates.get(j).deepCopy();
-            coordsOrig.add(p);
-        }
+        coordsOrig = new PackedPolygon(coordinates);
 
     }
 
@@ -1,5 +1,6 @@
 package jmorph.measurements;
 
+import geometry.MyPoint2D;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
@@ -111,7 +112,7 @@ public class CountMeasurement extends DefaultMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
+    protected String computeStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
@@ -131,7 +132,7 @@ public class CountMeasurement extends DefaultMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForExportCSV(double factor, AffineTransform trans) {
+    protected String computeStringForExportCSV(double factor, AffineTransform trans) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
@@ -160,8 +161,20 @@ public class CountMeasurement extends DefaultMeasurement {
         g2.setPaint(getPrimaryColour()); // colour
 
         // Draw measurement coordinates as individual filled circles:
-        PaintingUtils.paintPoints(g2,trans,coordinates,getPointWidth(),true);
+        coordinatesOnScreen(trans,scal,false).paintPoints(g2,getPointWidth(),true);
 
     }
 
+    /** Paints what the cursor position would add to the measurement while it is being measured.
+     * The counted points are not connected so only the cursor position is drawn.
+     * @param g2 A Graphics2D object to paint with.
+     * @param trans An AffineTransform to use while painting.
+     * @param p The cursor position in sample image pixel coordinates.
+     */
+    @Override
+    public void paintPreview(Graphics2D g2, AffineTransform trans, MyPoint2D p) {
+        g2.setPaint(getPrimaryColour());
+        PaintingUtils.paintPoint(g2,trans,p,getPointWidth(),true);
+    }
+
 }
@@ -1,10 +1,15 @@
 package jmorph.measurements;
 
+import geometry.MyPoint2D;
 import geometry.MyPoint2DVector;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Objects;
+import jmorph.geometry.ScreenCache;
 import paint.Paintable;
 import paint.PaintingUtils;
 
@@ -18,6 +23,10 @@ import paint.PaintingUtils;
  * - typeString
  * - defaultPrimaryColour
  * - defaultSecondaryColour
+ * Subclasses implement computeStringForDisplay and computeStringForExportCSV instead of the
+ * calculateString methods in the Measurement interface: the results of those are cached here
+ * and only recalculated after the coordinates or calibration information change.
+ * Any subclass setter that changes the calculated results must call clearResults.
  * @author Peter Lelievre
  */
 public abstract class DefaultMeasurement implements Measurement {
@@ -35,6 +44,10 @@ public abstract class DefaultMeasurement implements Measurement {
     private Color colour2 = Color.BLACK; /** The secondary painting colour. */
     private int lineWidth = Paintable.DEFAULT_LINE_WIDTH; /** The line width for painting. */
     private int pointWidth = Paintable.DEFAULT_POINT_WIDTH; /** The point width for painting. */
+    private long version = 0; /** Incremented whenever the coordinates or other calculation settings change. */
+    private final CachedResult displayResult = new CachedResult(); /** The last result from calculateStringForDisplay. */
+    private final CachedResult exportResult = new CachedResult(); /** The last result from calculateStringForExportCSV. */
+    private final ScreenCache screenCoords = new ScreenCache(); /** The coordinates transformed to panel coordinates for painting. */
     
     // ------------------ Constructor -------------------
 
@@ -124,6 +137,14 @@ public abstract class DefaultMeasurement implements Measurement {
     @Override
     public int getPointWidth() { return pointWidth; }
 
+    /** Returns the version of the measurement.
+     * The version is incremented whenever the coordinates or any other settings
+     * that affect the calculated results change.
+     * @return The version of the measurement.
+     */
+    @Override
+    public long getVersion() { return version; }
+
     // -------------------- Setters -------------------
 
     /** Sets the name of the measurement.
@@ -136,7 +157,10 @@ public abstract class DefaultMeasurement implements Measurement {
      * @param coords The vector of measurement coordinates.
      */
     @Override
-    public void setCoordinates(MyPoint2DVector coords) { coordinates = coords; }
+    public void setCoordinates(MyPoint2DVector coords) {
+        clearResults();
+        coordinates = coords;
+    }
 
     /** Sets the marked status of the measurement.
      * @param m The marked status for the measurement.
@@ -200,23 +224,45 @@ public abstract class DefaultMeasurement implements Measurement {
         // Set the colour and line style for the measurement:
         g2.setPaint(getPrimaryColour()); // colour
 
-        // We will draw a path (whether fully measured or not):
-        GeneralPath path = new GeneralPath();
-
-        // Add the measurement coordinates to the path:
-        coordinates.addToPath(path);
-
-        // Transform from sample to panel coordinates:
-        path.transform(trans);
+        // We will draw a path (whether fully measured or not), which is only
+        // transformed from sample to panel coordinates again if something has changed:
+        ScreenCache screen = coordinatesOnScreen(trans,scal,false);
 
         // Draw the path:
-        g2.draw(path);
+        g2.draw(screen.getPath());
 
         // Draw measurement coordinates as individual filled circles:
-        PaintingUtils.paintPoints(g2,trans,coordinates,getPointWidth(),true);
+        screen.paintPoints(g2,getPointWidth(),true);
 
     }
 
+    /** Paints what the cursor position would add to the measurement while it is being measured.
+     * For a DefaultMeasurement object, this method draws the segment from the last coordinate
+     * to the cursor position and a filled circle at the cursor position.
+     * @param g2 A Graphics2D object to paint with.
+     * @param trans An AffineTransform to use while painting.
+     * @param p The cursor position in sample image pixel coordinates.
+     */
+    @Override
+    public void paintPreview(Graphics2D g2, AffineTransform trans, MyPoint2D p) {
+        g2.setPaint(getPrimaryColour());
+        if ( coordinates!=null && coordinates.size()>0 ) {
+            MyPoint2D q = coordinates.get(coordinates.size()-1);
+            g2.draw( trans.createTransformedShape(new Line2D.Double(q.getX(),q.getY(),p.getX(),p.getY())) );
+        }
+        PaintingUtils.paintPoint(g2,trans,p,getPointWidth(),true);
+    }
+
+    /** Provides the bounds of everything drawn by the paint method.
+     * For a DefaultMeasurement object, this is the bounding box of the coordinates.
+     * @return A new rectangle in sample image pixel coordinates, or null if there are no coordinates.
+     */
+    @Override
+    public Rectangle2D paintBounds() {
+        if (!hasCoordinates()) { return null; }
+        return new Rectangle2D.Double( coordinates.minX() , coordinates.minY() , coordinates.rangeX() , coordinates.rangeY() );
+    }
+
     // -------------------- Implemented Methods (Measurement) -------------------
 
     /** Checks that the supplied coordinates are appropriate for the measurement.
@@ -274,6 +320,7 @@ public abstract class DefaultMeasurement implements Measurement {
      */
     @Override
     public void clear() {
+        clearResults();
         coordinates.clear();
     }
 
@@ -293,8 +340,90 @@ public abstract class DefaultMeasurement implements Measurement {
         return getName();
     }
 
+    /** Provides a string that holds the value of the calculated and calibrated measurement.
+     * The intention is that this string should be used for display purposes.
+     * For a DefaultMeasurement object, the string is only recalculated (using computeStringForDisplay)
+     * if the measurement or the calibration information have changed since the last call.
+     * @param factor A calibration factor for the measurement's coordinate points.
+     * @param trans A calibration transform for the measurement's coordinate points.
+     * @param longDisplay Set to true to display more thorough information.
+     * @return A string representation of the calculated and calibrated measurement.
+     */
+    @Override
+    public final String calculateStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
+        if (!displayResult.matches(version,factor,trans,longDisplay)) {
+            String s = computeStringForDisplay(factor,trans,longDisplay);
+            displayResult.set(version,factor,trans,longDisplay,s);
+        }
+        return displayResult.string;
+    }
+
+    /** Provides a string that holds the value of the calculated and calibrated measurement.
+     * The intention is that this string should be used when writing to a CSV file.
+     * For a DefaultMeasurement object, the string is only recalculated (using computeStringForExportCSV)
+     * if the measurement or the calibration information have changed since the last call.
+     * @param factor A calibration factor for the measurement's coordinate points.
+     * @param trans A calibration transform for the measurement's coordinate points.
+     * @return A string representation of the calculated and calibrated measurement.
+     */
+    @Override
+    public final String calculateStringForExportCSV(double factor, AffineTransform trans) {
+        if (!exportResult.matches(version,factor,trans,false)) {
+            String s = computeStringForExportCSV(factor,trans);
+            exportResult.set(version,factor,trans,false,s);
+        }
+        return exportResult.string;
+    }
+
+    // -------------------- Protected Methods -------------------
+
+    /** Clears any cached calculation results.
+     * This must be called whenever the coordinates or any other settings
+     * that affect the calculated results change.
+     */
+    protected final void clearResults() {
+        version++;
+        displayResult.clear();
+        exportResult.clear();
+    }
+
+    /** Provides the coordinates, and a path through them, transformed to panel coordinates for painting.
+     * They are only transformed again if the coordinates, the transform or the closing of the path change.
+     * @param trans An AffineTransform from sample to panel coordinates.
+     * @param scal A scaling value involved in the transform.
+     * @param close Set to true to close the path.
+     * @return The transformed coordinates and path.
+     */
+    protected final ScreenCache coordinatesOnScreen(AffineTransform trans, double scal, boolean close) {
+        if (screenCoords.update(coordinates,version,trans,scal,close)) {
+            GeneralPath path = new GeneralPath();
+            if (hasCoordinates()) {
+                coordinates.addToPath(path);
+                if (close) { path.closePath(); }
+            }
+            screenCoords.setPath(path);
+            screenCoords.setPoints(coordinates);
+        }
+        return screenCoords;
+    }
+
     // -------------------- Abstract Methods -------------------
 
+    /** Calculates the string returned by calculateStringForDisplay.
+     * @param factor A calibration factor for the measurement's coordinate points.
+     * @param trans A calibration transform for the measurement's coordinate points.
+     * @param longDisplay Set to true to display more thorough information.
+     * @return A string representation of the calculated and calibrated measurement.
+     */
+    protected abstract String computeStringForDisplay(double factor, AffineTransform trans, boolean longDisplay);
+
+    /** Calculates the string returned by calculateStringForExportCSV.
+     * @param factor A calibration factor for the measurement's coordinate points.
+     * @param trans A calibration transform for the measurement's coordinate points.
+     * @return A string representation of the calculated and calibrated measurement.
+     */
+    protected abstract String computeStringForExportCSV(double factor, AffineTransform trans);
+
     /** Specifies a default primary painting colour.
      * @return The default primary painting colour.
      */
@@ -305,4 +434,29 @@ public abstract class DefaultMeasurement implements Measurement {
      */
     protected abstract Color defaultSecondaryColour();
 
+    // -------------------- Private Classes -------------------
+
+    /** A calculated result string and the information it was calculated from. */
+    private static final class CachedResult {
+        private long version = -1; /** The measurement version the result was calculated for. */
+        private double factor = 0.0; /** The calibration factor the result was calculated for. */
+        private AffineTransform trans = null; /** A copy of the calibration transform the result was calculated for. */
+        private boolean longDisplay = false; /** The display option the result was calculated for. */
+        private String string = null; /** The calculated result. */
+        private boolean matches(long v, double f, AffineTransform t, boolean ld) {
+            return ( string!=null && version==v && factor==f && longDisplay==ld && Objects.equals(trans,t) );
+        }
+        private void set(long v, double f, AffineTransform t, boolean ld, String s) {
+            version = v;
+            factor = f;
+            trans = ( t==null ? null : new AffineTransform(t) );
+            longDisplay = ld;
+            string = s;
+        }
+        private void clear() {
+            string = null;
+            trans = null;
+        }
+    }
+
 }
@@ -112,7 +112,7 @@ public class LandmarkMeasurement extends DefaultMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
+    protected String computeStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
@@ -153,7 +153,7 @@ public class LandmarkMeasurement extends DefaultMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForExportCSV(double factor, AffineTransform trans) {
+    protected String computeStringForExportCSV(double factor, AffineTransform trans) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
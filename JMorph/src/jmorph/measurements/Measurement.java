@@ -1,7 +1,10 @@
 package jmorph.measurements;
 
+import geometry.MyPoint2D;
 import geometry.MyPoint2DVector;
+import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 import paint.Paintable;
 
 /** Interface for a morphometric measurement taken on a sample image.
@@ -43,6 +46,11 @@ public interface Measurement extends Paintable {
      */
     public MyPoint2DVector getCoordinates();
 
+    /** Provides the version of the measurement, which changes whenever the coordinates or other settings change.
+     * @return The version of the measurement.
+     */
+    public long getVersion();
+
     /** Returns the marked status of the measurement.
      * Measurements are marked or unmarked by the user depending on whether or not they want to perform them.
      * @return True if the measurement is marked (for some purpose), false otherwise.
@@ -143,6 +151,24 @@ public interface Measurement extends Paintable {
      */
     public String nameForExportCSV();
 
+    // -------------------- Methods used while measuring -------------------
+
+    /** Paints what the cursor position would add to the measurement while it is being measured.
+     * The coordinates already clicked are painted by the paint method so only the floating part is painted here,
+     * which lets the cursor be followed without recalculating the whole measurement.
+     * @param g2 A Graphics2D object to paint with.
+     * @param trans An AffineTransform to use while painting.
+     * @param p The cursor position in sample image pixel coordinates.
+     */
+    public void paintPreview(Graphics2D g2, AffineTransform trans, MyPoint2D p);
+
+    /** Provides the bounds of everything drawn by the paint method, not including point or line widths,
+     * so that only the affected part of the display needs repainting when the measurement changes.
+     * The runBeforePainting method should be called first.
+     * @return A new rectangle in sample image pixel coordinates, or null if nothing is painted.
+     */
+    public Rectangle2D paintBounds();
+
     // -------------------- Methods that define title and prompt for dialogs -------------------
 
     /** Provides the title for a dialog with instructions on how to measure the measurement.
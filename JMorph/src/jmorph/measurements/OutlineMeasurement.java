@@ -2,11 +2,16 @@ package jmorph.measurements;
 
 import dialogs.Dialogs;
 import geometry.MyPoint2D;
-import geometry.MyPolygon;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+import jmorph.diagnostics.OutlineStageEvent;
+import jmorph.diagnostics.Timings;
+import jmorph.geometry.LevelOfDetail;
+import jmorph.geometry.PackedPolygon;
+import jmorph.geometry.ScreenCache;
 import jmorph.hangle.HAngle;
 import jmorph.hangle.HCurve;
 import jmorph.maths.Complex;
@@ -40,8 +45,11 @@ public class OutlineMeasurement extends SplineMeasurement {
     private int highestFFTCoefficient = OUTLINE_HIGHEST_FFT_COEFFICIENT_DEFAULT; /** The highest Fourier coefficient to use when reconstructing the outline. */
     private int normalizationIndex = OUTLINE_NORMALIZATION_INDEX_DEFAULT; /** The normalization index (an hangle parameter). */
     private int fourierAnalysisMethod = FOURIER_ANALYSIS_METHOD_DEFAULT; /** The method of Fourier outline analysis to use. */
-    private MyPolygon coordsResamp = null; /** Resampled coordinate points. */
-    private MyPolygon coordsRecon = null; /** Coordinate points reconstructed from the Fourier outline analysis. */
+    private PackedPolygon coordsResamp = null; /** Resampled coordinate points. */
+    private PackedPolygon coordsRecon = null; /** Coordinate points reconstructed from the Fourier outline analysis. */
+    private final LevelOfDetail.Cache reconLOD = new LevelOfDetail.Cache(); /** The coordsRecon polygon simplified for the current zoom level. */
+    private final ScreenCache screenResamp = new ScreenCache(); /** The coordsResamp points in panel coordinates. */
+    private final ScreenCache screenRecon = new ScreenCache(); /** The path around the coordsRecon polygon in panel coordinates. */
     private double[] thetaResamp = null; /** Interpolated (theta,radius) information. */
     private double[] radiusResamp = null; /** Interpolated (theta,radius) information. */
     private double[] radiusRecon = null; /** Radius information reconstructed from the Fourier analysis. */
@@ -83,6 +91,7 @@ public class OutlineMeasurement extends SplineMeasurement {
         // Set the value:
         resampPower = p;
         // Clear the resampling information and anything that relies on it:
+        clearResults();
         clearResamp();
     }
 
@@ -98,6 +107,7 @@ public class OutlineMeasurement extends SplineMeasurement {
         // Set the value:
         highestFFTCoefficient = n;
         // Clear the Fourier outline reconstruction information and anything that relies on it:
+        clearResults();
         clearRecon();
         //clearFourier(); // the external run of hcurve relies on files written during the external run of hangle.
     }
@@ -111,6 +121,7 @@ public class OutlineMeasurement extends SplineMeasurement {
         // Set the value:
         normalizationIndex = n;
         // Clear the Fourier outline reconstruction information and anything that relies on it:
+        clearResults();
         clearFourier();
     }
 
@@ -128,6 +139,7 @@ public class OutlineMeasurement extends SplineMeasurement {
         // Set the choice:
         fourierAnalysisMethod = method;
         // Clear the resampling information and anything that relies on it:
+        clearResults();
         clearResamp();
     }
 
@@ -136,7 +148,7 @@ public class OutlineMeasurement extends SplineMeasurement {
     /** Clears all the outline interpolation properties and anything that depends on them. */
     @Override
     public void clearInterp(){
-        coordsInterp = null;
+        super.clearInterp();
         clearResamp();
     }
 
@@ -202,7 +214,7 @@ public class OutlineMeasurement extends SplineMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
+    protected String computeStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
@@ -246,12 +258,15 @@ public class OutlineMeasurement extends SplineMeasurement {
         }
 
         // Write the direction of measurement:
-        if (coordsOrig.isClockwise()) {
+        if (origMoments().isClockwise()) {
             s += System.lineSeparator() + "   Measured counter-clockwise";
         } else {
             s += System.lineSeparator() + "   Measured clockwise";
         }
 
+        // Write the shape descriptors:
+        s += shapeStringForDisplay(factor);
+
         // Return early if not displaying the long information.
         if (!longDisplay) { return s; }
         
@@ -330,7 +345,7 @@ public class OutlineMeasurement extends SplineMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForExportCSV(double factor, AffineTransform trans) {
+    protected String computeStringForExportCSV(double factor, AffineTransform trans) {
 
         String s = "";
 
@@ -363,7 +378,7 @@ public class OutlineMeasurement extends SplineMeasurement {
             }
 
             // Write the measurement direction to the string:
-            s += !coordsOrig.isClockwise();
+            s += !origMoments().isClockwise();
 
         } else { // not measured
             s = "not measured,,";
@@ -428,11 +443,9 @@ public class OutlineMeasurement extends SplineMeasurement {
 
             // Calculate the centroid position:
             if (measuring) {
-                if (coordsOrig==null) { fillCoordsOrig(); }
-                p = coordsOrig.com();
+                p = origMoments().getCentroid();
             } else {
-                if (coordsInterp==null) { fillInterp(); }
-                p = coordsInterp.com(); // position of polygon centroid
+                p = calculateCentroid(); // position of outline centroid
             }
 
             // Draw a point at the polygon centroid
@@ -442,43 +455,34 @@ public class OutlineMeasurement extends SplineMeasurement {
         }
 
         // Always draw interpolated outline if it exists, whether measuring or not:
-        GeneralPath path = new GeneralPath();
-        if (coordsInterp==null) {
-            // Draw an un-closed path around the measurement coordinates:
-            coordinates.addToPath(path);
-        } else {
-            // Draw a closed path around the interpolated points:
-            addInterpToPath(path);
-        }
-
-        // Transform the path from sample to panel coordinates:
-        path.transform(trans);
-
-        // Draw the path:
         g2.setPaint(getPrimaryColour());
-        g2.draw(path);
+        g2.draw(outlineOnScreen(trans,scal));
 
         // Draw resampled coordinates as individual filled circles:
-        MyPoint2D pt;
         if ( !measuring && fourierAnalysisMethod!=FOURIER_ANALYSIS_METHOD_NONE && coordsResamp!=null ) {
             g2.setPaint(getPrimaryColour());
-            PaintingUtils.paintPoints(g2,trans,coordsResamp,getPointWidth(),true);
+            if (screenResamp.update(coordsResamp,getVersion(),trans,scal,false)) {
+                screenResamp.setPoints(coordsResamp);
+            }
+            screenResamp.paintPoints(g2,getPointWidth(),true);
         }
 
         // Draw a path around the outline reconstructed from the FFT analysis:
         if ( !measuring && fourierAnalysisMethod!=FOURIER_ANALYSIS_METHOD_NONE && coordsRecon!=null) {
             g2.setPaint(getSecondaryColour());
-            path = new GeneralPath();
-            addReconToPath(path);
-            path.transform(trans);
-            g2.draw(path);
+            if (screenRecon.update(coordsRecon,getVersion(),trans,scal,false)) {
+                GeneralPath path = new GeneralPath();
+                addReconToPath(path,scal);
+                screenRecon.setPath(path);
+            }
+            g2.draw(screenRecon.getPath());
             PaintingUtils.paintPoint(g2,trans,coordsRecon.get(0),getPointWidth()+6,true);
         }
 
         // Draw measurement coordinates as individual filled circles:
         if (coordinates!=null) {
             g2.setPaint(Color.BLACK);
-            PaintingUtils.paintPoints(g2,trans,coordinates,getPointWidth(),true);
+            coordinatesOnScreen(trans,scal,false).paintPoints(g2,getPointWidth(),true);
             if (!measuring) {
                 PaintingUtils.paintPoint(g2,trans,coordinates.get(0),getPointWidth()+4,true);
             }
@@ -486,6 +490,19 @@ public class OutlineMeasurement extends SplineMeasurement {
 
     }
 
+    /** Provides the bounds of everything drawn by the paint method, including the interpolated
+     * and reconstructed outlines.
+     * @return A new rectangle in sample image pixel coordinates, or null if there are no coordinates.
+     */
+    @Override
+    public Rectangle2D paintBounds() {
+        Rectangle2D r = super.paintBounds();
+        if ( r!=null && coordsRecon!=null && coordsRecon.size()>0 ) {
+            r.add(coordsRecon.bounds());
+        }
+        return r;
+    }
+
     // -------------------- New Private/Protected Methods -------------------
 
     /** Clears all the outline resampling properties and anything that depends on them. */
@@ -512,21 +529,16 @@ public class OutlineMeasurement extends SplineMeasurement {
     /** Adds the reconstructed outline coordinates in the vector to a general path object for plotting.
      * The first point is added using path.moveTo() and the subsequent points are added using path.lineTo().
      * The path is then closed.
+     * The points are first simplified to within a fraction of a screen pixel at the supplied scaling.
      * @param path The path to add the reconstructed outline points to.
+     * @param scal The scaling that will be used when painting the path.
      */
-    private void addReconToPath(GeneralPath path) {
+    private void addReconToPath(GeneralPath path, double scal) {
 
         if (coordsRecon==null) { return; } // nothing to add
 
-        // Add the first point:
-        MyPoint2D p = coordsRecon.get(0);
-        path.moveTo((float)p.getX(),(float)p.getY());
-
-        // Loop over the other points:
-        for ( int j=1 ; j<coordsRecon.size() ; j++ ) {
-            p = coordsRecon.get(j);
-            path.lineTo((float)p.getX(),(float)p.getY());
-        }
+        // Add the points:
+        reconLOD.get(coordsRecon,scal).addToPath(path);
 
         // Close the path:
         path.closePath();
@@ -563,6 +575,24 @@ public class OutlineMeasurement extends SplineMeasurement {
         return factor*len;
     }
 
+    @Override
+    protected int fourierTransformLength() {
+        return ( fourierCoefficients==null ? 0 : fourierCoefficients.size() );
+    }
+
+    /** Returns the name of the Fourier outline analysis method (as shown in the menu that changes it). */
+    @Override
+    protected String fourierAnalysisMethodString() {
+        switch(fourierAnalysisMethod) {
+            case FOURIER_ANALYSIS_METHOD_RADIUS_VS_THETA:
+                return "Radius-vs-Theta";
+            case FOURIER_ANALYSIS_METHOD_TANGENT_VS_ARCLENGTH:
+                return "Tangent-vs-ArcLength";
+            default:
+                return "None";
+        }
+    }
+
     /** Performs the outline resampling. */
     private boolean fillResamp() {
 
@@ -602,79 +632,78 @@ public class OutlineMeasurement extends SplineMeasurement {
 
         // Clear the information that depends on this information:
         clearResamp();
-
-        // Resampling requires a second interpolation.
-        // The first step is to calculate radius vs. theta for the interpolated points:
-        int n = coordsInterp.size();
-        double[] theta = new double[n];
-        double[] radius = new double[n];
-        MyPoint2D pc = coordsInterp.com(); // centre of mass of the outline
-        MyPoint2D p;
-        double dx,dy;
-        for ( int j=0 ; j<n ; j++ ) {
-            p = coordsInterp.get(j);
-            // The radius is the distance between the coordinate point and the centroid:
-            radius[j] = MyPoint2D.distanceBetweenPoints(p,pc);
-            // Theta is the polar angle:
-            dx = p.getX() - pc.getX();
-            dy = p.getY() - pc.getY();
-            theta[j] = Math.atan2(dy,dx);
-        }
-
-        // Figure out if the outline is clockwise or counterclockwise:
-        boolean clockwise = coordsInterp.isClockwise();
-
-        // If clockwise then need to make the values monotonically increasing
-        // (except for a single jump):
-        if (clockwise) {
-            Double[] temp = new Double[n];
+        OutlineStageEvent stage = OutlineStageEvent.start(Timings.OUTLINE_RESAMPLING,"Resampling");
+        try {
+
+            // Resampling requires a second interpolation.
+            // The first step is to calculate radius vs. theta for the interpolated points:
+            int n = coordsInterp.size();
+            double[] theta = new double[n];
+            double[] radius = new double[n];
+            MyPoint2D pc = interpMoments().getCentroid(); // centre of mass of the outline
+            double xc = pc.getX();
+            double yc = pc.getY();
+            double dx,dy;
             for ( int j=0 ; j<n ; j++ ) {
-                temp[j] = theta[j];
+                dx = coordsInterp.getX(j) - xc;
+                dy = coordsInterp.getY(j) - yc;
+                // The radius is the distance between the coordinate point and the centroid:
+                radius[j] = Math.sqrt( dx*dx + dy*dy );
+                // Theta is the polar angle:
+                theta[j] = Math.atan2(dy,dx);
             }
-            for ( int j=0 ; j<n ; j++ ) {
-                theta[j] = temp[n-j-1];
+
+            // Figure out if the outline is clockwise or counterclockwise:
+            boolean clockwise = interpMoments().isClockwise();
+
+            // If clockwise then need to make the values monotonically increasing
+            // (except for a single jump):
+            if (clockwise) {
+                double temp;
+                for ( int j=0 ; j<n/2 ; j++ ) {
+                    temp = theta[j];
+                    theta[j] = theta[n-j-1];
+                    theta[n-j-1] = temp;
+                    temp = radius[j];
+                    radius[j] = radius[n-j-1];
+                    radius[n-j-1] = temp;
+                }
             }
-            for ( int j=0 ; j<n ; j++ ) {
-                temp[j] = radius[j];
+
+            // Find where the theta values cross over and make them monotonic:
+            int it = PeriodicSegments.fixCrossOver(theta);
+            if (it==-2) {
+                //Dialogs.error(null,"You can not use radius vs. theta processing on this sample.","Error");
+                return false;
+            } else if (it==-1) {
+                //Dialogs.codeError(null,"Monotonicity failed when resampling radius vs. theta");
+                return false;
             }
+
+            // Perform a cubic interpolation at spaced theta values:
+            PeriodicCubicSpline cSpline = new PeriodicCubicSpline( n , theta[0] , theta[0] + 2.0*Math.PI , theta , radius );
+            if (!cSpline.isDefined()) {
+                //Dialogs.codeError(null,"Failed to create PeriodicCubic object when resampling radius vs. theta");
+                return false;
+            }
+            n = (int)Math.pow(2,resampPower);
+            double thetaStep = 2.0*Math.PI / n;
+            coordsResamp = new PackedPolygon(n);
+            thetaResamp = new double[n];
+            radiusResamp = new double[n];
+            double r,x,y;
+            double t = theta[0]; // always start at first user-supplied coordinate point
             for ( int j=0 ; j<n ; j++ ) {
-                radius[j] = temp[n-j-1];
+                r = cSpline.interpolate(t);
+                x = xc + r*Math.cos(t);
+                y = yc + r*Math.sin(t);
+                coordsResamp.add(x,y);
+                thetaResamp[j] = t;
+                radiusResamp[j] = r;
+                t += thetaStep;
             }
-            //temp = null;
-        }
-
-        // Find where the theta values cross over and make them monotonic:
-        int it = PeriodicSegments.fixCrossOver(theta);
-        if (it==-2) {
-            //Dialogs.error(null,"You can not use radius vs. theta processing on this sample.","Error");
-            return false;
-        } else if (it==-1) {
-            //Dialogs.codeError(null,"Monotonicity failed when resampling radius vs. theta");
-            return false;
-        }
-
-        // Perform a cubic interpolation at spaced theta values:
-        PeriodicCubicSpline cSpline = new PeriodicCubicSpline( n , theta[0] , theta[0] + 2.0*Math.PI , theta , radius );
-        if (!cSpline.isDefined()) {
-            //Dialogs.codeError(null,"Failed to create PeriodicCubic object when resampling radius vs. theta");
-            return false;
-        }
-        n = (int)Math.pow(2,resampPower);
-        double thetaStep = 2.0*Math.PI / n;
-        coordsResamp = new MyPolygon();
-        thetaResamp = new double[n];
-        radiusResamp = new double[n];
-        double r,x,y;
-        double t = theta[0]; // always start at first user-supplied coordinate point
-        for ( int j=0 ; j<n ; j++ ) {
-            r = cSpline.interpolate(t);
-            x = pc.getX() + r*Math.cos(t);
-            y = pc.getY() + r*Math.sin(t);
-            p = new MyPoint2D(x,y);
-            coordsResamp.add(p);
-            thetaResamp[j] = t;
-            radiusResamp[j] = r;
-            t += thetaStep;
+        } finally {
+            endStage(stage,coordsResamp);
         }
         
         // Return successfully:
@@ -717,26 +746,30 @@ public class OutlineMeasurement extends SplineMeasurement {
         clearResamp();
 
         // Resampling is as simple as extracting the interpolated points:
-        coordsResamp = new MyPolygon();
-        int n = (int)Math.pow(2,resampPower);
-        int dn = (int)Math.pow(2,INTERP_POWER-resampPower);
-        MyPoint2D p;
-        boolean clockwise = coordsInterp.isClockwise();
-
-        // Always add the first point:
-        p = coordsInterp.get(0);
-        coordsResamp.add(p);
-
-        // Now add the rest of the points in a way that ensures the resampling is counter-clockwise:
-        for ( int j=1 ; j<n ; j++ ) {
-            // Extract the required point:
-            if (clockwise) {
-                p = coordsInterp.get( (n-j)*dn );
-            } else {
-                p = coordsInterp.get(     j*dn );
+        OutlineStageEvent stage = OutlineStageEvent.start(Timings.OUTLINE_RESAMPLING,"Resampling");
+        try {
+            int n = (int)Math.pow(2,resampPower);
+            int dn = (int)Math.pow(2,INTERP_POWER-resampPower);
+            coordsResamp = new PackedPolygon(n);
+            boolean clockwise = interpMoments().isClockwise();
+
+            // Always add the first point:
+            coordsResamp.add( coordsInterp.getX(0) , coordsInterp.getY(0) );
+
+            // Now add the rest of the points in a way that ensures the resampling is counter-clockwise:
+            int k;
+            for ( int j=1 ; j<n ; j++ ) {
+                // Determine the index of the required point:
+                if (clockwise) {
+                    k = (n-j)*dn;
+                } else {
+                    k =     j*dn;
+                }
+                // Add it to the resampled coordinates:
+                coordsResamp.add( coordsInterp.getX(k) , coordsInterp.getY(k) );
             }
-            // Add it to the resampled coordinates:
-            coordsResamp.add(p);
+        } finally {
+            endStage(stage,coordsResamp);
         }
 
     }
@@ -782,7 +815,7 @@ public class OutlineMeasurement extends SplineMeasurement {
         clearFourier();
 
         // Calculate the centroid of the interpolated outline:
-        MyPoint2D pc = coordsInterp.com();
+        MyPoint2D pc = interpMoments().getCentroid();
 
         // Insert the double values into a complex object:
         int n = radiusResamp.length;
@@ -792,9 +825,14 @@ public class OutlineMeasurement extends SplineMeasurement {
         }
 
         // Calculate the FFT:
-        Complex[] fc = FFT.fft(com);
-        fourierCoefficients = new ComplexVector();
-        fourierCoefficients.add(fc);
+        OutlineStageEvent stage = OutlineStageEvent.start(Timings.OUTLINE_FFT,"FFT");
+        try {
+            Complex[] fc = FFT.fft(com);
+            fourierCoefficients = new ComplexVector();
+            fourierCoefficients.add(fc);
+        } finally {
+            endStage(stage,coordsResamp);
+        }
         
         // Return successfully:
         return true;
@@ -816,9 +854,15 @@ public class OutlineMeasurement extends SplineMeasurement {
         clearFourier();
 
         // Calculate the FFT:
-        HAngle.Out out = HAngle.run(coordsResamp,normalizationIndex);
-        fourierCoefficients = out.coeffs;
-        outlineLength = out.length;
+        HAngle.Out out;
+        OutlineStageEvent stage = OutlineStageEvent.start(Timings.OUTLINE_HANGLE,"HAngle");
+        try {
+            out = HAngle.run(coordsResamp,normalizationIndex);
+            fourierCoefficients = out.coeffs;
+            outlineLength = out.length;
+        } finally {
+            endStage(stage,coordsResamp);
+        }
 
         // Check for a warning message and display it if there is one:
         if (out.message!=null) {
@@ -877,50 +921,55 @@ public class OutlineMeasurement extends SplineMeasurement {
         clearRecon();
 
         // Copy the fourierCoefficients object so it can be overwritten below:
-        int n = fourierCoefficients.size();
-        Complex[] newFFT = new Complex[n];
-        Complex cm;
-        for ( int j=0 ; j<n ; j++ ) {
-            cm = fourierCoefficients.get(j);
-            newFFT[j] = new Complex( cm.real() , cm.imag() );
-        }
-        int nfft = n/2 + 1; // number of non-duplicate FFT coefficients
-
-        // Keep only the first several FFT coefficients:
-        for ( int j=(highestFFTCoefficient+1);j<nfft;j++ ) {
-            newFFT[j] = new Complex(0.0,0.0);
-            newFFT[n-j] = new Complex(0.0,0.0);
-        }
+        OutlineStageEvent stage = OutlineStageEvent.start(Timings.OUTLINE_IFFT,"Inverse FFT");
+        try {
+            int n = fourierCoefficients.size();
+            Complex[] newFFT = new Complex[n];
+            Complex cm;
+            for ( int j=0 ; j<n ; j++ ) {
+                cm = fourierCoefficients.get(j);
+                newFFT[j] = new Complex( cm.real() , cm.imag() );
+            }
+            int nfft = n/2 + 1; // number of non-duplicate FFT coefficients
 
-        // Keep only the zeroth and one other of the coefficients:
-/*      for ( int j=1;j<nfft;j++ ) {
-            if ( j!=highestFFTCoefficient ) {
+            // Keep only the first several FFT coefficients:
+            for ( int j=(highestFFTCoefficient+1);j<nfft;j++ ) {
                 newFFT[j] = new Complex(0.0,0.0);
                 newFFT[n-j] = new Complex(0.0,0.0);
             }
-        }
+
+            // Keep only the zeroth and one other of the coefficients:
+/*          for ( int j=1;j<nfft;j++ ) {
+                if ( j!=highestFFTCoefficient ) {
+                    newFFT[j] = new Complex(0.0,0.0);
+                    newFFT[n-j] = new Complex(0.0,0.0);
+                }
+            }
 */
-        // Perform the inverse transform to get new radius values:
-        Complex[] com = FFT.ifft(newFFT);
-        radiusRecon = new double[n];
-        for ( int j=0 ; j<n ; j++ ) {
-            // There are imaginary values in the reconstruction due to machine precision problems. This can be safely ignored.
-            // http://www.engineeringproductivitytools.com/stuff/T0001/PT10.HTM
-            radiusRecon[j] = com[j].real();
-        }
-
-        // Convert the new (theta,radius) information to (x,y) coordinates:
-        coordsRecon = new MyPolygon();
-        MyPoint2D pc = coordsInterp.com();
-        double x,y,t,r;
-        for ( int j=0;j<n;j++ ) {
-            // Extract current theta and radius:
-            t = thetaResamp[j];
-            r = radiusRecon[j];
-            // Translate from polar back to Cartesian coordinates:
-            x = pc.getX() + r*Math.cos(t);
-            y = pc.getY() + r*Math.sin(t);
-            coordsRecon.add( new MyPoint2D(x,y) );
+            // Perform the inverse transform to get new radius values:
+            Complex[] com = FFT.ifft(newFFT);
+            radiusRecon = new double[n];
+            for ( int j=0 ; j<n ; j++ ) {
+                // There are imaginary values in the reconstruction due to machine precision problems. This can be safely ignored.
+                // http://www.engineeringproductivitytools.com/stuff/T0001/PT10.HTM
+                radiusRecon[j] = com[j].real();
+            }
+
+            // Convert the new (theta,radius) information to (x,y) coordinates:
+            coordsRecon = new PackedPolygon(n);
+            MyPoint2D pc = interpMoments().getCentroid();
+            double x,y,t,r;
+            for ( int j=0;j<n;j++ ) {
+                // Extract current theta and radius:
+                t = thetaResamp[j];
+                r = radiusRecon[j];
+                // Translate from polar back to Cartesian coordinates:
+                x = pc.getX() + r*Math.cos(t);
+                y = pc.getY() + r*Math.sin(t);
+                coordsRecon.add(x,y);
+            }
+        } finally {
+            endStage(stage,coordsRecon);
         }
         
         // Return successfully:
@@ -943,10 +992,15 @@ public class OutlineMeasurement extends SplineMeasurement {
         clearRecon();
 
         // Perform the inverse transform to get new coordinates:
-        coordsRecon = HCurve.run(fourierCoefficients,highestFFTCoefficient);
-
-        // Transform the reconstructed outline coordinates:
-        transformHCurveReconstruction(outlineLength);
+        OutlineStageEvent stage = OutlineStageEvent.start(Timings.OUTLINE_HCURVE,"HCurve");
+        try {
+            coordsRecon = HCurve.run(fourierCoefficients,highestFFTCoefficient);
+
+            // Transform the reconstructed outline coordinates:
+            transformHCurveReconstruction(outlineLength);
+        } finally {
+            endStage(stage,coordsRecon);
+        }
         
         // Return successfully:
         return true;
@@ -969,7 +1023,7 @@ public class OutlineMeasurement extends SplineMeasurement {
 
         // Line up the centre of masses:
         trans = new AffineTransform();
-        MyPoint2D pc = coordsInterp.com();
+        MyPoint2D pc = interpMoments().getCentroid();
         MyPoint2D qc = coordsRecon.com();
         double dx = pc.getX() - qc.getX();
         double dy = pc.getY() - qc.getY();
@@ -6,6 +6,7 @@ import geometry.MyPoint2DVector;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 import paint.PaintingUtils;
 
 /** The radius of a circle defined by three points.
@@ -135,7 +136,7 @@ public class RadiusMeasurement extends DefaultMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
+    protected String computeStringForDisplay(double factor, AffineTransform trans, boolean longDisplay) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
@@ -167,7 +168,7 @@ public class RadiusMeasurement extends DefaultMeasurement {
      * @return A string representation of the calculated and calibrated measurement.
      */
     @Override
-    public String calculateStringForExportCSV(double factor, AffineTransform trans) {
+    protected String computeStringForExportCSV(double factor, AffineTransform trans) {
 
         // Check for unmeasured measurement:
         if (!isMeasured()) {
@@ -219,6 +220,22 @@ public class RadiusMeasurement extends DefaultMeasurement {
 
     }
 
+    /** Provides the bounds of everything drawn by the paint method, including the circle once measured.
+     * @return A new rectangle in sample image pixel coordinates, or null if there are no coordinates.
+     */
+    @Override
+    public Rectangle2D paintBounds() {
+        Rectangle2D r = super.paintBounds();
+        if ( r!=null && isMeasured() ) {
+            double radius = calculateRadius();
+            MyPoint2D p = calculateCentre();
+            if ( Double.isFinite(radius) && Double.isFinite(p.getX()) && Double.isFinite(p.getY()) ) {
+                r.add( new Rectangle2D.Double( p.getX()-radius , p.getY()-radius , 2.0*radius , 2.0*radius ) );
+            }
+        }
+        return r;
+    }
+
     // -------------------- New Private/Protected Methods -------------------
 
     /** Provides the uncalibrated radius.
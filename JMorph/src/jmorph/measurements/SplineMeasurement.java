@@ -1,11 +1,18 @@
 package jmorph.measurements;
 
 import geometry.MyPoint2D;
-import geometry.MyPolygon;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import jmorph.diagnostics.OutlineStageEvent;
+import jmorph.diagnostics.Timings;
+import jmorph.geometry.LevelOfDetail;
+import jmorph.geometry.PackedPolygon;
+import jmorph.geometry.PolygonMoments;
+import jmorph.geometry.ScreenCache;
 import jmorph.splines.CatmullRomSpline;
 import jmorph.splines.CirclePreservingSpline;
 import jmorph.splines.OutlineSpline;
@@ -27,7 +34,11 @@ public class SplineMeasurement extends AreaMeasurement {
     @SuppressWarnings("ProtectedField")
     protected boolean useCircleSpline = USE_CIRCLE_SPLINE_DEFAULT; /** Use circle-preserving spline (true) or KB spline (false)? */
     @SuppressWarnings("ProtectedField")
-    protected MyPolygon coordsInterp = null; /** The spline interpolated coordinate points. */
+    protected PackedPolygon coordsInterp = null; /** The spline interpolated coordinate points. */
+    private PolygonMoments momentsInterp = null; /** The moments of the coordsInterp polygon. */
+    private PolygonMoments momentsSpline = null; /** The exact moments of the region enclosed by the outline spline. */
+    private final LevelOfDetail.Cache interpLOD = new LevelOfDetail.Cache(); /** The coordsInterp polygon simplified for the current zoom level. */
+    private final ScreenCache screenInterp = new ScreenCache(); /** The path around the coordsInterp polygon in panel coordinates. */
     @SuppressWarnings("ProtectedField")
     protected boolean isClosed = true; /** Set to false to alter the behavior of the spline (should only be false when being measured). */
 
@@ -64,7 +75,7 @@ public class SplineMeasurement extends AreaMeasurement {
     /** Clears all the outline analysis properties. */
     @Override
     public void clearOutlineAnalysis(){
-        coordsOrig = null;
+        super.clearOutlineAnalysis();
         clearSpline();
     }
 
@@ -126,26 +137,13 @@ public class SplineMeasurement extends AreaMeasurement {
         }
 
         // Always draw interpolated outline if it exists, whether measuring or not:
-        GeneralPath path = new GeneralPath();
-        if (coordsInterp==null) {
-            // Draw an un-closed path around the measurement coordinates:
-            coordinates.addToPath(path);
-        } else {
-            // Draw a closed path around the interpolated points:
-            addInterpToPath(path);
-        }
-
-        // Transform the path from sample to panel coordinates:
-        path.transform(trans);
-
-        // Draw the path:
         g2.setPaint(getPrimaryColour());
-        g2.draw(path);
+        g2.draw(outlineOnScreen(trans,scal));
 
         // Draw measurement coordinates as individual filled circles:
         if (coordinates!=null) {
             g2.setPaint(Color.BLACK);
-            PaintingUtils.paintPoints(g2,trans,coordinates,getPointWidth(),true);
+            coordinatesOnScreen(trans,scal,false).paintPoints(g2,getPointWidth(),true);
             if (!measuring) {
                 int n = coordinates.size()-1;
                 PaintingUtils.paintPoint(g2,trans,coordinates.get(0),2*getPointWidth(),true); // first point
@@ -155,6 +153,18 @@ public class SplineMeasurement extends AreaMeasurement {
 
     }
 
+    /** Provides the bounds of everything drawn by the paint method, including the interpolated outline.
+     * @return A new rectangle in sample image pixel coordinates, or null if there are no coordinates.
+     */
+    @Override
+    public Rectangle2D paintBounds() {
+        Rectangle2D r = super.paintBounds();
+        if ( r!=null && coordsInterp!=null && coordsInterp.size()>0 ) {
+            r.add(coordsInterp.bounds());
+        }
+        return r;
+    }
+
     // -------------------- New Pubic Methods -------------------
 
     /** Sets the useCircleSpline property.
@@ -166,6 +176,7 @@ public class SplineMeasurement extends AreaMeasurement {
         useCircleSpline = use;
 
         // Clear the spline information and anything that relies on it:
+        clearResults();
         clearSpline();
 
     }
@@ -175,12 +186,14 @@ public class SplineMeasurement extends AreaMeasurement {
     /** Clears all the outline spline properties and anything that depends on them. */
     protected void clearSpline(){
         outlineSpline = null;
+        momentsSpline = null;
         clearInterp();
     }
 
     /** Clears all the outline interpolation properties and anything that depends on them. */
     protected void clearInterp(){
         coordsInterp = null;
+        momentsInterp = null;
     }
 
     /** Calculates the outline spline. */
@@ -216,39 +229,70 @@ public class SplineMeasurement extends AreaMeasurement {
         clearInterp();
 
         // Fill the interpolation arrays:
-        int n = (int)Math.pow(2,INTERP_POWER);
-        double outlineStep = 1.0 / n;
-        coordsInterp = new MyPolygon();
-        double t;
-        MyPoint2D p;
-        for ( int j=0 ; j<n ; j++ ) {
-            // Interpolate at the next point along the outline curve:
-            t = j * outlineStep;
-            p = outlineSpline.interpolatePoint(t);
-            if (p==null) { break; } // will occur if the outline is not closed
-            coordsInterp.add(p);
+        OutlineStageEvent stage = OutlineStageEvent.start(Timings.SPLINE_INTERPOLATION,"Interpolation");
+        try {
+            int n = (int)Math.pow(2,INTERP_POWER);
+            double outlineStep = 1.0 / n;
+            coordsInterp = new PackedPolygon(n);
+            double t;
+            MyPoint2D p;
+            for ( int j=0 ; j<n ; j++ ) {
+                // Interpolate at the next point along the outline curve:
+                t = j * outlineStep;
+                p = outlineSpline.interpolatePoint(t);
+                if (p==null) { break; } // will occur if the outline is not closed
+                coordsInterp.add(p);
+            }
+        } finally {
+            endStage(stage,coordsInterp);
         }
 
     }
 
+    /** Finishes timing an outline analysis stage started with OutlineStageEvent.start.
+     * @param stage The event started for the stage.
+     * @param coords The outline points produced by the stage (null if the stage failed).
+     */
+    protected void endStage(OutlineStageEvent stage, PackedPolygon coords) {
+        stage.finish( getName(), fourierAnalysisMethodString(), ( coords==null ? 0 : coords.size() ), fourierTransformLength() );
+    }
+
+    /** Returns the name of the Fourier outline analysis method, or null if there is none. */
+    protected String fourierAnalysisMethodString() { return null; }
+
+    /** Returns the number of Fourier coefficients calculated, or 0 if there are none. */
+    protected int fourierTransformLength() { return 0; }
+
+    /** Provides the outline path to paint in panel coordinates: a closed path around the interpolated points
+     * if they exist, otherwise an un-closed path around the measurement coordinates.
+     * The path is only rebuilt if the points, the transform or the scaling change.
+     * @param trans An AffineTransform from sample to panel coordinates.
+     * @param scal A scaling value involved in the transform.
+     * @return The path in panel coordinates.
+     */
+    protected Path2D outlineOnScreen(AffineTransform trans, double scal) {
+        if (coordsInterp==null) { return coordinatesOnScreen(trans,scal,false).getPath(); }
+        if (screenInterp.update(coordsInterp,getVersion(),trans,scal,outlineSpline.isClosed())) {
+            GeneralPath path = new GeneralPath();
+            addInterpToPath(path,scal);
+            screenInterp.setPath(path);
+        }
+        return screenInterp.getPath();
+    }
+
     /** Adds the interpolated coordinates in the vector to a general path object for plotting.
      * The first point is added using path.moveTo() and the subsequent points are added using path.lineTo().
      * The path is closed if the Spline object is closed (determined using the isClosed method).
+     * The points are first simplified to within a fraction of a screen pixel at the supplied scaling.
      * @param path The path to add the interpolated points to.
+     * @param scal The scaling that will be used when painting the path.
      */
-    protected void addInterpToPath(GeneralPath path) {
+    protected void addInterpToPath(GeneralPath path, double scal) {
 
         if (coordsInterp==null) { return; } // nothing to add
 
-        // Add the first point:
-        MyPoint2D p = coordsInterp.get(0);
-        path.moveTo((float)p.getX(),(float)p.getY());
-
-        // Loop over the other points:
-        for ( int j=1 ; j<coordsInterp.size() ; j++ ) {
-            p = coordsInterp.get(j);
-            path.lineTo((float)p.getX(),(float)p.getY());
-        }
+        // Add the points:
+        interpLOD.get(coordsInterp,scal).addToPath(path);
 
         // Close the path:
         if (outlineSpline.isClosed()) {
@@ -257,39 +301,51 @@ public class SplineMeasurement extends AreaMeasurement {
 
     }
 
-    /** Provides the uncalibrated area of the outline.
-     * If the spline interpolation has not been calculated then the area returned
-     * is that of the polygon defined by the original coordinates.
-     * @return The uncalibrated area.
+    /** Provides the moments of the spline interpolated polygon.
+     * @return The moments, or null if the interpolation can not be calculated.
      */
-    private double calculateArea() {
-        // Calculate area of the polygon defined by the coordinates:
-        if (coordsInterp==null) { fillInterp(); }
-        if (coordsInterp==null) {
-            if (coordsOrig==null) { fillCoordsOrig(); }
-            // Here we are using the original coordinates:
-            return coordsOrig.area();
-        } else {
-            // Here we are using the spline interpolated coordinates:
-            return coordsInterp.area();
+    protected PolygonMoments interpMoments() {
+        if (momentsInterp==null) {
+            if (coordsInterp==null) { fillInterp(); }
+            if (coordsInterp==null) { return null; }
+            momentsInterp = new PolygonMoments(coordsInterp);
         }
+        return momentsInterp;
     }
 
-    /** Provides the uncalibrated coordinates of the outline centroid.
-     * If the spline interpolation has not been calculated then the centroid returned
-     * is that for the polygon defined by the original coordinates.
-     * @return The uncalibrated coordinates of the outline centroid.
+    /** Provides the exact moments of the region enclosed by the outline spline.
+     * These are integrated segment by segment so the spline interpolation is not required.
+     * @return The moments, or null if the spline is not closed or can not be calculated.
      */
-    protected MyPoint2D calculateCentroid() {
-        // Calculate area and centroid of the polygon defined by the coordinates:
-        if (coordsInterp==null) { fillInterp(); }
-        if (coordsInterp==null) {
-            if (coordsOrig==null) { fillCoordsOrig(); }
+    protected PolygonMoments splineMoments() {
+        if (momentsSpline==null) {
+            if (outlineSpline==null) { fillSpline(); }
+            if (outlineSpline==null) { return null; }
+            momentsSpline = outlineSpline.calculateMoments();
+        }
+        return momentsSpline;
+    }
+
+    /** Provides the moments used to calculate the area, centroid and shape descriptors.
+     * These are the exact moments for the closed spline. While the spline is still open
+     * (being measured) the moments of the interpolated polygon are used instead and,
+     * if that has not been calculated, those of the polygon defined by the original coordinates.
+     * @return The moments, or null if the measurement has not been measured.
+     */
+    @Override
+    protected PolygonMoments calculateMoments() {
+        PolygonMoments mom = splineMoments();
+        if (mom!=null) {
+            // Here we are using the exact spline integrals:
+            return mom;
+        }
+        mom = interpMoments();
+        if (mom==null) {
             // Here we are using the original coordinates:
-            return coordsOrig.com();
+            return origMoments();
         } else {
             // Here we are using the spline interpolated coordinates:
-            return coordsInterp.com();
+            return mom;
         }
     }
 
@@ -0,0 +1,78 @@
+package jmorph.menutasks;
+
+import dialogs.Dialogs;
+import jmorph.JMorph;
+
+/**
+ * @author Peter
+ */
+public final class ChangeImageCacheBudgetMenuTask extends ControlledMenuTask {
+
+    private static final long BYTES_PER_MEGABYTE = 1048576L;
+
+    public ChangeImageCacheBudgetMenuTask(JMorph con) { super(con); }
+
+    @Override
+    public String text() { return "memory budget..."; }
+
+    @Override
+    public String tip() { return "Change the memory available for storing images (least recently used images are released first)"; }
+
+    @Override
+    public String title() { return "Change Image Memory Budget"; }
+
+    @Override
+    public boolean check() { return true; }
+
+    @Override
+    public void execute() {
+
+        // Check for the required information:
+        if (!check()) { return; }
+
+        // Loop until user supplies an acceptable value or cancels:
+        long currentValue = controller.getImageCache().getBudget() / BYTES_PER_MEGABYTE;
+        String errorMessage = "You must enter a single non-negative integer value. Please try again.";
+        while (true) {
+
+            // Ask for the budget:
+            String budgetString = Dialogs.input(controller,
+               "Enter the memory budget for storing images (MB):",title(),
+               Long.toString(currentValue));
+
+            // Check the response:
+            if (budgetString == null) { return; } // user cancelled
+            budgetString = budgetString.trim();
+            String[] ss = budgetString.split("[ ]+");
+            if (ss.length!=1) {
+                Dialogs.error(controller,errorMessage,title());
+                continue;
+            }
+
+            // Convert the response to long:
+            try {
+
+                long newValue = Long.parseLong(ss[0].trim());
+                // Check for value out of range (including values too large to convert to bytes):
+                if ( newValue<0 || newValue>Long.MAX_VALUE/BYTES_PER_MEGABYTE ) {
+                    // Display error dialog:
+                    Dialogs.error(controller,errorMessage,title());
+                } else {
+                    // Check if value has changed:
+                    if (newValue==currentValue) { return; }
+                    // Set the budget:
+                    controller.setImageCacheBudget(newValue*BYTES_PER_MEGABYTE);
+                    // Return successfully;
+                    return;
+                } // if
+
+            } catch (NumberFormatException e) {
+                // Display error dialog:
+                Dialogs.error(controller,errorMessage,title());
+            } // try-catch
+
+        } // while loop
+
+    }
+
+}
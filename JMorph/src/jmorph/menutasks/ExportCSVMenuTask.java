@@ -5,6 +5,9 @@ import fileio.FileUtils;
 import java.io.File;
 import javax.swing.JFileChooser;
 import jmorph.JMorph;
+import jmorph.measurements.AreaMeasurement;
+import jmorph.measurements.OutlineMeasurement;
+import jmorph.measurements.SplineMeasurement;
 
 /**
  * @author Peter
@@ -33,6 +36,27 @@ public final class ExportCSVMenuTask extends ControlledMenuTask {
         // Check for the required information:
         if (!check()) { return; }
 
+        // Ask whether to add the shape descriptors of any area, spline or outline measurements:
+        String[] typeStrings = new String[3];
+        typeStrings[0] = new AreaMeasurement().typeString(); //"area";
+        typeStrings[1] = new SplineMeasurement().typeString(); //"spline";
+        typeStrings[2] = new OutlineMeasurement().typeString(); //"outline";
+        boolean shapes = false;
+        if ( controller.typeStringMask(typeStrings).length!=0 ) {
+            String prompt = "Export the shape descriptors (major and minor axes, orientation, eccentricity"
+                    + System.lineSeparator() + "and radius of gyration) of the area, spline and outline measurements?";
+            int response = Dialogs.question(controller,prompt,title(),"Yes","No","Cancel","No");
+            switch (response) {
+                case Dialogs.YES_OPTION:
+                    shapes = true;
+                    break;
+                case Dialogs.NO_OPTION:
+                    break;
+                default:
+                    return;
+            }
+        }
+
         // Get the file to write to:
         JFileChooser chooser = new JFileChooser();
         File saveDirectory = controller.getSaveDirectory();
@@ -52,7 +76,7 @@ public final class ExportCSVMenuTask extends ControlledMenuTask {
         // Make sure the file extension is .csv:
         String root = FileUtils.getRoot(file);
         file = new File( root + ".csv" );
-        Boolean ok = controller.exportCSV(file);
+        Boolean ok = controller.exportCSV(file,shapes);
 
         // Write the file:
         if (ok) {
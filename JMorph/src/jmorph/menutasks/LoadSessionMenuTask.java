@@ -3,6 +3,7 @@ package jmorph.menutasks;
 import dialogs.Dialogs;
 import jmorph.JMorph;
 import jmorph.SessionLoader;
+import jmorph.diagnostics.SessionEvent;
 
 /**
  * @author Peter
@@ -40,7 +41,10 @@ public final class LoadSessionMenuTask extends ControlledMenuTask {
         if (!ok) { return; }
         
         // Load the session file:
+        SessionEvent event = new SessionEvent();
+        event.begin();
         SessionLoader.LoadSessionReturnObject out = SessionLoader.loadSessionAscii1(controller,controller.getSessionFile());
+        event.report("load",controller.getSessionFile(),controller.numberOfSamples(),out.message==null);
 
         // Check for error:
         if (out.message!=null) {
@@ -68,6 +72,11 @@ public final class LoadSessionMenuTask extends ControlledMenuTask {
             Dialogs.warning(controller,"Session loaded successfully from earlier version " + out.version + " of JCube.",title());
         }
         
+        // Warn about any samples that don't match their images:
+        if (out.warning!=null) {
+            Dialogs.warning(controller,out.warning,title());
+        }
+        
     }
     
 }
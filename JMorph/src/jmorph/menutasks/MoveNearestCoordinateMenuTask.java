@@ -0,0 +1,40 @@
+package jmorph.menutasks;
+
+import jmorph.JMorph;
+import jmorph.MouseInteractionManager;
+
+/**
+ * @author Peter
+ */
+public final class MoveNearestCoordinateMenuTask extends ControlledMenuTask {
+    
+    public MoveNearestCoordinateMenuTask(JMorph con) {
+        super(con);
+    }
+    
+    @Override
+    public String text() { return "Move the nearest coordinate"; }
+
+    @Override
+    public String tip() { return "Move whichever measurement coordinate for the current sample is nearest the first click"; }
+
+    @Override
+    public String title() { return "Move the Nearest Coordinate"; }
+
+    @Override
+    public boolean check() {
+        return ( controller.hasSamples() && controller.hasMeasurements() && controller.currentSampleImageExists() );
+    }
+
+    @Override
+    public void execute() {
+        
+        // Check for the required information:
+        if (!check()) { return; }
+        
+        // Tell the image panel to move a single coordinate for whichever measurement is clicked:
+        controller.startMeasuring(null,MouseInteractionManager.NEAREST_INDEX,MouseInteractionManager.MOVE_COORDINATE_MODE);
+        
+    }
+    
+}
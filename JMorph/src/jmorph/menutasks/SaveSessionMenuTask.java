@@ -5,6 +5,7 @@ import fileio.FileUtils;
 import java.io.File;
 import jmorph.JMorph;
 import jmorph.SessionSaver;
+import jmorph.diagnostics.SessionEvent;
 import jmorph.filters.SessionFilter;
 
 /**
@@ -46,7 +47,10 @@ public final class SaveSessionMenuTask extends ControlledMenuTask {
             if (response != Dialogs.OK_OPTION) { return; }
         }
         // Save ascii file:
+        SessionEvent event = new SessionEvent();
+        event.begin();
         ok = SessionSaver.saveSessionAscii1(controller,sessionFile);
+        event.report("save",sessionFile,controller.numberOfSamples(),ok);
         // Display:
         if (ok) {
             Dialogs.inform(controller,"Session saved successfully.",title());
@@ -1,7 +1,6 @@
 package jmorph.splines;
 
-import geometry.MyPoint2D;
-import geometry.MyPoint2DVector;
+import jmorph.geometry.PackedPolygon;
 
 /** Catmull–Rom spline (Kochanek–Bartels spline with continuity=0.0, bias=0.0, tension=0.0).
  * http://en.wikipedia.org/wiki/Kochanek–Bartels_spline
@@ -17,7 +16,7 @@ public final class CatmullRomSpline extends KnotsAndTangentsSpline {
      * @param knots0 The knot points defining the outline spline.
      * @param isClosed Set to true if the outline is closed, false if open.
      */
-    public CatmullRomSpline(MyPoint2DVector knots0, boolean isClosed){
+    public CatmullRomSpline(PackedPolygon knots0, boolean isClosed){
         super(knots0,isClosed);
         initialize();
     }
@@ -32,8 +31,7 @@ public final class CatmullRomSpline extends KnotsAndTangentsSpline {
         int j1,j2;
         int n = knots.size();
         double tx,ty;
-        MyPoint2D p1,p2;
-        tangents = new MyPoint2DVector();
+        tangents = new PackedPolygon(n);
         for ( int j=0 ; j<n ; j++ ) {
 
             // Determine indices of neighbouring knots:
@@ -50,14 +48,10 @@ public final class CatmullRomSpline extends KnotsAndTangentsSpline {
                 if (j2>=n) { j2 -= n; }
             }
 
-            // Extract the knots:
-            p1 = knots.get(j1);
-            p2 = knots.get(j2);
-
             // Set the tangent:
-            tx = 0.5*( p2.getX() - p1.getX() );
-            ty = 0.5*( p2.getY() - p1.getY() );
-            tangents.add( new MyPoint2D(tx,ty) );
+            tx = 0.5*( knots.getX(j2) - knots.getX(j1) );
+            ty = 0.5*( knots.getY(j2) - knots.getY(j1) );
+            tangents.add(tx,ty);
         }
 
     }
@@ -2,7 +2,7 @@ package jmorph.splines;
 
 import geometry.Circle;
 import geometry.MyPoint2D;
-import geometry.MyPoint2DVector;
+import jmorph.geometry.PackedPolygon;
 
 /** Spline that preserves circle-like characteristics.
  *
@@ -16,7 +16,7 @@ public final class CirclePreservingSpline extends KnotsAndTangentsSpline {
      * @param knots0 The knot points defining the outline spline.
      * @param isClosed Set to true if the outline is closed, false if open.
      */
-    public CirclePreservingSpline(MyPoint2DVector knots0, boolean isClosed){
+    public CirclePreservingSpline(PackedPolygon knots0, boolean isClosed){
         super(knots0,isClosed);
         initialize();
     }
@@ -30,7 +30,7 @@ public final class CirclePreservingSpline extends KnotsAndTangentsSpline {
         // Calculate the tangent components:
         int n = knots.size();
         int j1,j2;
-        tangents = new MyPoint2DVector();
+        tangents = new PackedPolygon(n);
         MyPoint2D pj,p0,p1,p2;
         double p0x,p0y,p1x,p1y,p2x,p2y,a,b,c,d,xc,yc,dx,dy,dlen,tx,ty,tlen,dotprod;
         Circle circ;
@@ -103,7 +103,7 @@ public final class CirclePreservingSpline extends KnotsAndTangentsSpline {
                 tx = tx/tlen*dlen;
                 ty = ty/tlen*dlen;
             }
-            tangents.add( new MyPoint2D(tx,ty) );
+            tangents.add(tx,ty);
             
         }
 
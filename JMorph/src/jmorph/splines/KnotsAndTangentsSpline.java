@@ -2,7 +2,8 @@ package jmorph.splines;
 
 import dialogs.Dialogs;
 import geometry.MyPoint2D;
-import geometry.MyPoint2DVector;
+import jmorph.geometry.PackedPolygon;
+import jmorph.geometry.PolygonMoments;
 
 /** Closed or open outline spline defined by tangents at knot points.
  * @author Peter Lelievre
@@ -12,9 +13,9 @@ public abstract class KnotsAndTangentsSpline implements OutlineSpline {
     // ------------------ Properties -------------------
 
     @SuppressWarnings("ProtectedField")
-    protected MyPoint2DVector knots=null; // the knot points
+    protected PackedPolygon knots=null; // the knot points
     @SuppressWarnings("ProtectedField")
-    protected MyPoint2DVector tangents=null; // the spline tangents
+    protected PackedPolygon tangents=null; // the spline tangents
     private JoinedSegments segments=null; // contains information about the length of each spline segment
     @SuppressWarnings("ProtectedField")
     protected boolean isClosed = true;
@@ -25,7 +26,7 @@ public abstract class KnotsAndTangentsSpline implements OutlineSpline {
      * @param knots0 The knot points defining the outline spline.
      * @param isClosed Set to true if the outline is closed, false if open.
      */
-    public KnotsAndTangentsSpline(MyPoint2DVector knots0, boolean isClosed){
+    public KnotsAndTangentsSpline(PackedPolygon knots0, boolean isClosed){
         knots = knots0;
         this.isClosed = isClosed;
     }
@@ -124,6 +125,39 @@ public abstract class KnotsAndTangentsSpline implements OutlineSpline {
 
     }
 
+    /** Calculates the exact area moments of the region enclosed by the spline.
+     * The integrals are calculated in closed form for each spline segment,
+     * so no interpolation of the spline is required.
+     * @return The moments or null if the outline is not closed or the required information does not exist.
+     */
+    @Override
+    public PolygonMoments calculateMoments() {
+
+        // Make sure that the spline has been calculated:
+        if (!isClosed) { return null; }
+        if (tangents==null) { calculate(); }
+        if (tangents==null) { return null; }
+
+        // Work relative to the first knot point to reduce round-off error:
+        int n = knots.size();
+        if (n==0) { return null; }
+        double x0 = knots.getX(0);
+        double y0 = knots.getY(0);
+
+        // Sum the contributions from each segment:
+        double[] sums = new double[6];
+        for ( int j=0 ; j<n ; j++ ) {
+            int j2 = j + 1;
+            if (j2>=n) { j2 -= n; }
+            TangentPair tpair = new TangentPair(knots,tangents,j,j2);
+            tpair.addAreaIntegrals(x0,y0,sums);
+        }
+
+        // Create the moments object:
+        return new PolygonMoments( x0, y0, sums[0], sums[1], sums[2], sums[3], sums[4], sums[5] );
+
+    }
+
     // -------------------- Abstract Methods -------------------
 
     /** Calculates the spline tangents. */
@@ -164,7 +198,7 @@ public abstract class KnotsAndTangentsSpline implements OutlineSpline {
         }
 
         // Create TangentPair object:
-        TangentPair tpair = new TangentPair(knots.get(j1),knots.get(j2),tangents.get(j1),tangents.get(j2));
+        TangentPair tpair = new TangentPair(knots,tangents,j1,j2);
 
         // Calculate the point:
         return tpair.interpolatePoint(t);
@@ -204,7 +238,7 @@ public abstract class KnotsAndTangentsSpline implements OutlineSpline {
         }
 
         // Create TangentPair object:
-        TangentPair tpair = new TangentPair(knots.get(j1),knots.get(j2),tangents.get(j1),tangents.get(j2));
+        TangentPair tpair = new TangentPair(knots,tangents,j1,j2);
 
         // Calculate the point:
         return tpair.interpolateTangent(t);
@@ -230,7 +264,7 @@ public abstract class KnotsAndTangentsSpline implements OutlineSpline {
             if (j2>=n) { j2 -= n; }
 
             // Create TangentPair object:
-            TangentPair tpair = new TangentPair(knots.get(j1),knots.get(j2),tangents.get(j1),tangents.get(j2));
+            TangentPair tpair = new TangentPair(knots,tangents,j1,j2);
 
             // Get the length:
             ds[j] = tpair.getLength();
@@ -1,6 +1,7 @@
 package jmorph.splines;
 
 import geometry.MyPoint2D;
+import jmorph.geometry.PolygonMoments;
 
 /** A spline around an outline.
  * @author Peter Lelievre
@@ -30,4 +31,9 @@ public interface OutlineSpline {
      */
     public MyPoint2D interpolateTangent(double t);
 
+    /** Calculates the exact area moments of the region enclosed by the spline.
+     * @return The moments or null if the outline is not closed or the required information does not exist.
+     */
+    public PolygonMoments calculateMoments();
+
 }
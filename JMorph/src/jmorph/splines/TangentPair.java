@@ -2,6 +2,7 @@ package jmorph.splines;
 
 import dialogs.Dialogs;
 import geometry.MyPoint2D;
+import jmorph.geometry.PackedPolygon;
 
 /** A single section of a spline interpolated between tangents at knot points.
  * @author Peter Lelievre
@@ -12,10 +13,10 @@ public class TangentPair {
 
     private final int N_INTEGRATION_SEGMENTS = 1024; // number of segments for numerical integration
 
-    private MyPoint2D knot1=null; // the first knot point
-    private MyPoint2D knot2=null; // the second knot point
-    private MyPoint2D tangent1=null; // the first spline tangent
-    private MyPoint2D tangent2=null; // the second spline tangent
+    private final double k1x, k1y; // the first knot point
+    private final double k2x, k2y; // the second knot point
+    private final double t1x, t1y; // the first spline tangent
+    private final double t2x, t2y; // the second spline tangent
     private double length=0; // length of the spline segment
     private boolean hasBeenCalculated = false; // whether or not the segment length has been calculated through numerical integration
 
@@ -28,10 +29,31 @@ public class TangentPair {
      * @param t2 The spline tangent at the second knot point.
      */
     public TangentPair(MyPoint2D k1, MyPoint2D k2, MyPoint2D t1, MyPoint2D t2){
-        knot1 = k1;
-        knot2 = k2;
-        tangent1 = t1;
-        tangent2 = t2;
+        this( k1.getX(), k1.getY(), k2.getX(), k2.getY(),
+              t1.getX(), t1.getY(), t2.getX(), t2.getY() );
+    }
+
+    /**
+     * @param knots The knot points.
+     * @param tangents The spline tangents at the knot points.
+     * @param j1 The index of the first knot point.
+     * @param j2 The index of the second knot point.
+     */
+    public TangentPair(PackedPolygon knots, PackedPolygon tangents, int j1, int j2){
+        this( knots.getX(j1), knots.getY(j1), knots.getX(j2), knots.getY(j2),
+              tangents.getX(j1), tangents.getY(j1), tangents.getX(j2), tangents.getY(j2) );
+    }
+
+    private TangentPair(double k1x, double k1y, double k2x, double k2y,
+            double t1x, double t1y, double t2x, double t2y){
+        this.k1x = k1x;
+        this.k1y = k1y;
+        this.k2x = k2x;
+        this.k2y = k2y;
+        this.t1x = t1x;
+        this.t1y = t1y;
+        this.t2x = t2x;
+        this.t2y = t2y;
     }
 
     // -------------------- Getters -------------------
@@ -52,9 +74,6 @@ public class TangentPair {
      */
     public MyPoint2D interpolatePoint(double t){
 
-        // Make sure that the spline has been specified:
-        if ( knot1==null || knot2==null || tangent1==null || tangent2==null ) { return null; }
-
         // t should be on [0,1]
         if ( t<0.0 || t>1.0 ) {
             Dialogs.codeError(null,"t=" + t + " out of range in TangentPair.interpolatePoint");
@@ -62,14 +81,14 @@ public class TangentPair {
         }
 
         // Calculate the point:
-        double t2 = Math.pow(t,2.0);
-        double t3 = Math.pow(t,3.0);
+        double t2 = t*t;
+        double t3 = t2*t;
         double a1 =  2.0*t3 - 3.0*t2 + 1.0;
         double b1 =      t3 - 2.0*t2 + t;
         double a2 = -2.0*t3 + 3.0*t2;
         double b2 =      t3 -     t2;
-        double px = a1*knot1.getX() + b1*tangent1.getX() + a2*knot2.getX() + b2*tangent2.getX();
-        double py = a1*knot1.getY() + b1*tangent1.getY() + a2*knot2.getY() + b2*tangent2.getY();
+        double px = a1*k1x + b1*t1x + a2*k2x + b2*t2x;
+        double py = a1*k1y + b1*t1y + a2*k2y + b2*t2y;
         return new MyPoint2D(px,py);
 
     }
@@ -80,9 +99,6 @@ public class TangentPair {
      */
     public MyPoint2D interpolateTangent(double t){
 
-        // Make sure that the spline has been specified:
-        if ( knot1==null || knot2==null || tangent1==null || tangent2==null ) { return null; }
-
         // t should be on [0,1]
         if ( t<0.0 || t>1.0 ) {
             Dialogs.codeError(null,"t out of range in TangentPair.interpolateTangent");
@@ -90,36 +106,112 @@ public class TangentPair {
         }
 
         // Calculate the point:
-        double t2 = Math.pow(t,2.0);
+        double t2 = t*t;
         double a1 =  6.0*t2 - 6.0*t;
         double b1 =  3.0*t2 - 4.0*t + 1.0;
         double a2 = -6.0*t2 + 6.0*t;
         double b2 =  3.0*t2 - 2.0*t;
-        double px = a1*knot1.getX() + b1*tangent1.getX() + a2*knot2.getX() + b2*tangent2.getX();
-        double py = a1*knot1.getY() + b1*tangent1.getY() + a2*knot2.getY() + b2*tangent2.getY();
+        double px = a1*k1x + b1*t1x + a2*k2x + b2*t2x;
+        double py = a1*k1y + b1*t1y + a2*k2y + b2*t2y;
         return new MyPoint2D(px,py);
 
     }
 
+    /** Adds the contributions of this segment to the area integrals of a closed spline.
+     * The integrals are calculated exactly by converting Green's theorem line integrals
+     * along the cubic segment into polynomial integrals over [0,1].
+     * The values added to the sums array are, in order, the signed area and the integrals
+     * of x, y, x*x, y*y and x*y over the area, all relative to the origin (x0,y0).
+     * @param x0 The x coordinate of the origin.
+     * @param y0 The y coordinate of the origin.
+     * @param sums An array of length 6 to add the contributions to.
+     */
+    public void addAreaIntegrals(double x0, double y0, double[] sums) {
+
+        // Convert the Hermite form to polynomial coefficients in t (lowest order first):
+        double[] x = { k1x - x0 , t1x , 3.0*(k2x-k1x) - 2.0*t1x - t2x , 2.0*(k1x-k2x) + t1x + t2x };
+        double[] y = { k1y - y0 , t1y , 3.0*(k2y-k1y) - 2.0*t1y - t2y , 2.0*(k1y-k2y) + t1y + t2y };
+
+        // Calculate the derivatives:
+        double[] dx = { x[1] , 2.0*x[2] , 3.0*x[3] };
+        double[] dy = { y[1] , 2.0*y[2] , 3.0*y[3] };
+
+        // The common integrand x*dy - y*dx:
+        double[] c = subtract( multiply(x,dy) , multiply(y,dx) );
+
+        // Green's theorem gives the area integrals as line integrals of c:
+        sums[0] += integrate(c) / 2.0;
+        sums[1] += integrate(multiply(x,c)) / 3.0;
+        sums[2] += integrate(multiply(y,c)) / 3.0;
+        sums[3] += integrate(multiply(multiply(x,x),c)) / 4.0;
+        sums[4] += integrate(multiply(multiply(y,y),c)) / 4.0;
+        sums[5] += integrate(multiply(multiply(x,y),c)) / 4.0;
+
+    }
+
     // -------------------- Private Methods -------------------
 
+    /** Multiplies two polynomials.
+     * @param p The coefficients of the first polynomial (lowest order first).
+     * @param q The coefficients of the second polynomial (lowest order first).
+     * @return The coefficients of the product.
+     */
+    private static double[] multiply(double[] p, double[] q) {
+        double[] r = new double[p.length+q.length-1];
+        for ( int i=0 ; i<p.length ; i++ ) {
+            for ( int j=0 ; j<q.length ; j++ ) {
+                r[i+j] += p[i]*q[j];
+            }
+        }
+        return r;
+    }
+
+    /** Subtracts one polynomial from another.
+     * @param p The coefficients of the first polynomial (lowest order first).
+     * @param q The coefficients of the polynomial to subtract (lowest order first).
+     * @return The coefficients of the difference.
+     */
+    private static double[] subtract(double[] p, double[] q) {
+        double[] r = new double[Math.max(p.length,q.length)];
+        for ( int i=0 ; i<p.length ; i++ ) { r[i] += p[i]; }
+        for ( int i=0 ; i<q.length ; i++ ) { r[i] -= q[i]; }
+        return r;
+    }
+
+    /** Integrates a polynomial over [0,1].
+     * @param p The coefficients of the polynomial (lowest order first).
+     * @return The integral.
+     */
+    private static double integrate(double[] p) {
+        double s = 0.0;
+        for ( int i=0 ; i<p.length ; i++ ) {
+            s += p[i] / (i+1);
+        }
+        return s;
+    }
+
     /** Calculates the segment length by numerical integration. */
     private void calculateSegmentLength() {
 
-        // Check that the spline has been specified:
-        if ( knot1==null || knot2==null || tangent1==null || tangent2==null ) { return; }
-
         // Calculate the segment length by numerical integration:
         length = 0.0;
-        MyPoint2D p1,p2;
         double dt = 1.0 / N_INTEGRATION_SEGMENTS;
-        double t; // = 0.0;
-        p1 = interpolatePoint(0.0);
+        double t,t2,t3,a1,b1,a2,b2,px,py;
+        double qx = k1x; // the point at t=0
+        double qy = k1y;
         for ( int k=1 ; k<=N_INTEGRATION_SEGMENTS ; k++ ) {
             t = Math.min( 1.0 , k*dt ); // to ensure that machine precision problems don't cause error with t>1.0
-            p2 = interpolatePoint(t);
-            length += MyPoint2D.distanceBetweenPoints(p1,p2);
-            p1 = p2;
+            t2 = t*t;
+            t3 = t2*t;
+            a1 =  2.0*t3 - 3.0*t2 + 1.0;
+            b1 =      t3 - 2.0*t2 + t;
+            a2 = -2.0*t3 + 3.0*t2;
+            b2 =      t3 -     t2;
+            px = a1*k1x + b1*t1x + a2*k2x + b2*t2x;
+            py = a1*k1y + b1*t1y + a2*k2y + b2*t2y;
+            length += Math.hypot( px-qx , py-qy );
+            qx = px;
+            qy = py;
         }
 
         // Mark it as having been calculated:
@@ -0,0 +1,60 @@
+package jmorph.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/** Tests the zoom levels, tolerances, simplified polygon cache and marker culling.
+ * @author Peter Lelievre
+ */
+public class LevelOfDetailTest {
+
+    @Test
+    public void zoomLevels() {
+        assertEquals( 0 , LevelOfDetail.zoomLevel(1.0) );
+        assertEquals( 0 , LevelOfDetail.zoomLevel(1.99) );
+        assertEquals( 1 , LevelOfDetail.zoomLevel(2.0) );
+        assertEquals( -1 , LevelOfDetail.zoomLevel(0.5) );
+        assertEquals( -4 , LevelOfDetail.zoomLevel(0.1) );
+    }
+
+    @Test
+    public void toleranceHoldsForWholeLevel() {
+        // The tolerance in screen pixels must not exceed the limit at any scaling in a level:
+        for (double scaling : new double[]{0.01,0.1,0.3,0.5,0.99,1.0,1.5,1.999,2.0,7.0}) {
+            double tol = LevelOfDetail.tolerance(LevelOfDetail.zoomLevel(scaling));
+            assertTrue( tol*scaling <= LevelOfDetail.TOLERANCE_PIXELS );
+            assertTrue( tol*scaling >= 0.5*LevelOfDetail.TOLERANCE_PIXELS ); // but is not needlessly small
+        }
+    }
+
+    @Test
+    public void cacheRecalculatesOnlyWhenRequired() {
+        LevelOfDetail.Cache cache = new LevelOfDetail.Cache();
+        assertNull( cache.get(null,1.0) );
+        PackedPolygon poly = PackedPolygonTest.star(1000);
+        PackedPolygon s1 = cache.get(poly,0.1);
+        assertTrue( s1.size() < poly.size() );
+        assertSame( s1 , cache.get(poly,0.12) ); // same level
+        PackedPolygon s2 = cache.get(poly,1.0);
+        assertNotSame( s1 , s2 );
+        assertTrue( s2.size() >= s1.size() );
+        assertNotSame( s2 , cache.get(poly.deepCopy(),1.0) ); // different polygon
+    }
+
+    @Test
+    public void cullerSkipsOccupiedCells() {
+        LevelOfDetail.Culler culler = new LevelOfDetail.Culler(8); // cells of 4 pixels
+        assertFalse( culler.skip(1.0,1.0) );
+        assertTrue( culler.skip(3.9,0.1) );
+        assertFalse( culler.skip(4.1,1.0) );
+        assertFalse( culler.skip(-0.1,1.0) );
+        assertTrue( culler.skip(-3.0,3.0) );
+        assertFalse( culler.skip(1.0,-1.0) );
+    }
+
+}
@@ -0,0 +1,148 @@
+package jmorph.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import geometry.MyPoint2D;
+import geometry.MyPolygon;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import org.junit.Test;
+
+/** Tests the packed polygon calculations against those of the MyPolygon class.
+ * @author Peter Lelievre
+ */
+public class PackedPolygonTest {
+
+    private static final double TOL = 1.0e-9;
+
+    @Test
+    public void matchesMyPolygon() {
+        PackedPolygon poly = star(100);
+        MyPolygon my = poly.toMyPolygon();
+        assertEquals( my.area() , poly.area() , TOL );
+        assertEquals( my.length() , poly.length() , TOL );
+        assertEquals( my.isClockwise() , poly.isClockwise() );
+        MyPoint2D c1 = my.com();
+        MyPoint2D c2 = poly.com();
+        assertEquals( c1.getX() , c2.getX() , TOL );
+        assertEquals( c1.getY() , c2.getY() , TOL );
+    }
+
+    @Test
+    public void signedArea() {
+        PackedPolygon poly = new PackedPolygon();
+        poly.add(0.0,0.0);
+        poly.add(2.0,0.0);
+        poly.add(2.0,3.0);
+        poly.add(0.0,3.0);
+        assertEquals( 6.0 , poly.signedArea() , TOL );
+        assertFalse(poly.isClockwise());
+        PackedPolygon reversed = new PackedPolygon();
+        for ( int i=poly.size()-1 ; i>=0 ; i-- ) { reversed.add(poly.get(i)); }
+        assertEquals( -6.0 , reversed.signedArea() , TOL );
+        assertTrue(reversed.isClockwise());
+        assertEquals( 6.0 , reversed.area() , TOL );
+        assertEquals( 10.0 , reversed.length() , TOL );
+    }
+
+    @Test
+    public void growsAndCopies() {
+        PackedPolygon poly = new PackedPolygon(1);
+        for ( int i=0 ; i<1000 ; i++ ) { poly.add(i,-i); }
+        assertEquals( 1000 , poly.size() );
+        assertEquals( 999.0 , poly.getX(999) , 0.0 );
+        assertEquals( -999.0 , poly.getY(999) , 0.0 );
+        PackedPolygon copy = poly.deepCopy();
+        poly.clear();
+        assertEquals( 0 , poly.size() );
+        assertEquals( 1000 , copy.size() );
+        assertEquals( 500.0 , copy.getX(500) , 0.0 );
+    }
+
+    @Test
+    public void boundsAndTransform() {
+        PackedPolygon poly = star(7);
+        MyPolygon my = poly.toMyPolygon();
+        AffineTransform trans = new AffineTransform(1.5,0.2,-0.3,0.8,10.0,-4.0);
+        poly.transform(trans);
+        my.transform(trans);
+        for ( int i=0 ; i<poly.size() ; i++ ) {
+            assertEquals( my.get(i).getX() , poly.getX(i) , TOL );
+            assertEquals( my.get(i).getY() , poly.getY(i) , TOL );
+        }
+        Rectangle2D r = poly.bounds();
+        for ( int i=0 ; i<poly.size() ; i++ ) {
+            assertTrue( poly.getX(i)>=r.getMinX() && poly.getX(i)<=r.getMaxX() );
+            assertTrue( poly.getY(i)>=r.getMinY() && poly.getY(i)<=r.getMaxY() );
+        }
+        assertNull( new PackedPolygon().bounds() );
+    }
+
+    @Test
+    public void simplifyRemovesCollinearPoints() {
+        PackedPolygon poly = new PackedPolygon();
+        for ( int i=0 ; i<=100 ; i++ ) { poly.add( i , 2.0*i ); }
+        PackedPolygon s = poly.simplify(1.0e-6);
+        assertEquals( 2 , s.size() );
+        assertEquals( 0.0 , s.getX(0) , 0.0 );
+        assertEquals( 100.0 , s.getX(1) , 0.0 );
+    }
+
+    @Test
+    public void simplifyStaysWithinTolerance() {
+        // A noisy curve:
+        PackedPolygon poly = new PackedPolygon();
+        java.util.Random random = new java.util.Random(1);
+        for ( int i=0 ; i<5000 ; i++ ) {
+            double t = 0.01*i;
+            poly.add( 10.0*t , 30.0*Math.sin(t) + random.nextDouble() );
+        }
+        for (double tol : new double[]{0.25,1.0,4.0}) {
+            PackedPolygon s = poly.simplify(tol);
+            assertTrue( s.size() < poly.size() );
+            assertEquals( poly.getX(0) , s.getX(0) , 0.0 );
+            assertEquals( poly.getX(poly.size()-1) , s.getX(s.size()-1) , 0.0 );
+            // Each kept point is an original point in order, and every original point lies near the segment spanning it:
+            int k = 0;
+            for ( int i=0 ; i<poly.size() ; i++ ) {
+                if ( k+1<s.size() && poly.getX(i)==s.getX(k+1) && poly.getY(i)==s.getY(k+1) ) { k++; }
+                int k2 = Math.min(k+1,s.size()-1);
+                double d = segmentDistance( poly.getX(i), poly.getY(i), s.getX(k), s.getY(k), s.getX(k2), s.getY(k2) );
+                assertTrue( "distance " + d + " for tolerance " + tol , d<=tol );
+            }
+            assertEquals( s.size()-1 , k );
+        }
+    }
+
+    @Test
+    public void simplifyKeepsSmallPolygons() {
+        PackedPolygon poly = star(2);
+        assertEquals( 2 , poly.simplify(100.0).size() );
+        poly = star(10);
+        assertEquals( 10 , poly.simplify(0.0).size() );
+        assertEquals( 0 , new PackedPolygon().simplify(1.0).size() );
+    }
+
+    /** Returns the distance from a point to a line segment. */
+    private static double segmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double len2 = dx*dx + dy*dy;
+        double t = ( len2==0.0 ? 0.0 : Math.max(0.0,Math.min(1.0,((px-ax)*dx+(py-ay)*dy)/len2)) );
+        return Math.hypot( px - ax - t*dx , py - ay - t*dy );
+    }
+
+    /** Returns a star-shaped (non-convex) counterclockwise polygon. */
+    static PackedPolygon star(int n) {
+        PackedPolygon poly = new PackedPolygon();
+        for ( int i=0 ; i<n ; i++ ) {
+            double t = 2.0*Math.PI*i/n;
+            double r = ( i%2==0 ? 50.0 : 20.0 );
+            poly.add( 5.0 + r*Math.cos(t) , -8.0 + r*Math.sin(t) );
+        }
+        return poly;
+    }
+
+}
@@ -0,0 +1,121 @@
+package jmorph.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import org.junit.Test;
+
+/** Tests the nearest point searches against a brute force search, including after incremental updates.
+ * @author Peter Lelievre
+ */
+public class PointGridTest {
+
+    private static final int N_OWNERS = 6;
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        Random random = new Random(2);
+        PointGrid grid = new PointGrid(10.0);
+        ArrayList<double[]> points = new ArrayList<>();
+        for ( int owner=0 ; owner<N_OWNERS ; owner++ ) { addOwner(grid,points,owner,200,random); }
+        assertEquals( points.size() , grid.size() );
+        checkQueries(grid,points,random);
+    }
+
+    @Test
+    public void incrementalUpdates() {
+        Random random = new Random(3);
+        PointGrid grid = new PointGrid(25.0);
+        ArrayList<double[]> points = new ArrayList<>();
+        for ( int owner=0 ; owner<N_OWNERS ; owner++ ) { addOwner(grid,points,owner,100,random); }
+        // Remove some owners:
+        grid.removeOwner(2);
+        grid.removeOwner(4);
+        grid.removeOwner(99); // not in the grid
+        points.removeIf( p -> p[0]==2 || p[0]==4 );
+        assertEquals( points.size() , grid.size() );
+        checkQueries(grid,points,random);
+        // Put one back in a different place (e.g. the measurement was moved):
+        addOwner(grid,points,2,150,random);
+        assertEquals( points.size() , grid.size() );
+        checkQueries(grid,points,random);
+        // Clear and start again:
+        grid.clear();
+        points.clear();
+        assertEquals( 0 , grid.size() );
+        assertNull( grid.nearest(0.0,0.0,-1,Double.POSITIVE_INFINITY) );
+        addOwner(grid,points,5,50,random);
+        checkQueries(grid,points,random);
+    }
+
+    @Test
+    public void tiesAreBrokenByOwnerThenIndex() {
+        PointGrid grid = new PointGrid(1.0);
+        grid.add(3,7,5.0,5.0);
+        grid.add(1,9,5.0,5.0);
+        grid.add(1,4,5.0,5.0);
+        grid.add(2,0,5.0,5.0);
+        PointGrid.Entry e = grid.nearest(5.2,5.1,-1,Double.POSITIVE_INFINITY);
+        assertEquals( 1 , e.getOwner() );
+        assertEquals( 4 , e.getIndex() );
+    }
+
+    /** Adds random points for an owner, clustered around a random centre, to the grid and the list. */
+    private static void addOwner(PointGrid grid, ArrayList<double[]> points, int owner, int n, Random random) {
+        double cx = 1000.0*random.nextDouble() - 200.0;
+        double cy = 800.0*random.nextDouble() - 100.0;
+        for ( int i=0 ; i<n ; i++ ) {
+            double x = cx + 100.0*random.nextGaussian();
+            double y = cy + 100.0*random.nextGaussian();
+            grid.add(owner,i,x,y);
+            points.add( new double[]{owner,i,x,y} );
+        }
+    }
+
+    /** Checks random queries (inside and well outside the points) with and without owner filters and distance limits. */
+    private static void checkQueries(PointGrid grid, ArrayList<double[]> points, Random random) {
+        for ( int q=0 ; q<500 ; q++ ) {
+            double x = 3000.0*random.nextDouble() - 1200.0;
+            double y = 3000.0*random.nextDouble() - 1200.0;
+            if (q%2==0) { // mostly near the points
+                x = 0.4*x + 400.0;
+                y = 0.4*y + 300.0;
+            }
+            double maxDistance = ( q%3==0 ? Double.POSITIVE_INFINITY : 200.0*random.nextDouble() );
+            int owner = ( q%4==0 ? random.nextInt(N_OWNERS) : -1 );
+            check( grid.nearest(x,y,owner,maxDistance) , bruteForce(points,x,y,( owner<0 ? null : (int o) -> o==owner ),maxDistance) );
+            IntPredicate even = (int o) -> o%2==0;
+            check( grid.nearest(x,y,even,maxDistance) , bruteForce(points,x,y,even,maxDistance) );
+        }
+    }
+
+    private static double[] bruteForce(ArrayList<double[]> points, double x, double y, IntPredicate accept, double maxDistance) {
+        double[] best = null;
+        double bestD2 = maxDistance*maxDistance;
+        for (double[] p : points) {
+            if ( accept!=null && !accept.test((int)p[0]) ) { continue; }
+            double d2 = (p[2]-x)*(p[2]-x) + (p[3]-y)*(p[3]-y);
+            if ( d2<bestD2 || ( d2==bestD2 && best!=null && ( p[0]<best[0] || ( p[0]==best[0] && p[1]<best[1] ) ) ) ) {
+                best = p;
+                bestD2 = d2;
+            }
+        }
+        return best;
+    }
+
+    private static void check(PointGrid.Entry e, double[] expected) {
+        if (expected==null) {
+            assertNull(e);
+            return;
+        }
+        assertNotNull(e);
+        assertEquals( (int)expected[0] , e.getOwner() );
+        assertEquals( (int)expected[1] , e.getIndex() );
+        assertEquals( expected[2] , e.getX() , 0.0 );
+        assertEquals( expected[3] , e.getY() , 0.0 );
+    }
+
+}
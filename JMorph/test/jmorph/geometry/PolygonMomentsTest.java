@@ -0,0 +1,120 @@
+package jmorph.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/** Tests the moments and shape descriptors against shapes with known values.
+ * @author Peter Lelievre
+ */
+public class PolygonMomentsTest {
+
+    private static final double TOL = 1.0e-9;
+
+    @Test
+    public void rectangle() {
+        double w = 6.0, h = 2.0;
+        PolygonMoments mom = new PolygonMoments(rectangle(10.0,20.0,w,h,0.0));
+        assertEquals( w*h , mom.getArea() , TOL );
+        assertFalse(mom.isClockwise());
+        assertEquals( 10.0 , mom.getCentroidX() , TOL );
+        assertEquals( 20.0 , mom.getCentroidY() , TOL );
+        // The variances of a rectangle are w^2/12 and h^2/12:
+        assertEquals( 4.0*Math.sqrt(w*w/12.0) , mom.majorAxis() , TOL );
+        assertEquals( 4.0*Math.sqrt(h*h/12.0) , mom.minorAxis() , TOL );
+        assertEquals( 0.0 , mom.orientation() , TOL );
+        assertEquals( Math.sqrt(1.0-h*h/(w*w)) , mom.eccentricity() , TOL );
+        assertEquals( Math.sqrt((w*w+h*h)/12.0) , mom.radiusOfGyration() , TOL );
+    }
+
+    @Test
+    public void rotatedRectangle() {
+        double w = 6.0, h = 2.0, angle = 0.5;
+        PolygonMoments mom = new PolygonMoments(rectangle(-3.0,4.0,w,h,angle));
+        assertEquals( w*h , mom.getArea() , TOL );
+        assertEquals( -3.0 , mom.getCentroidX() , TOL );
+        assertEquals( 4.0 , mom.getCentroidY() , TOL );
+        assertEquals( 4.0*Math.sqrt(w*w/12.0) , mom.majorAxis() , TOL );
+        assertEquals( 4.0*Math.sqrt(h*h/12.0) , mom.minorAxis() , TOL );
+        assertEquals( angle , mom.orientation() , TOL );
+        // Rotating by a further right angle swaps the axes:
+        mom = new PolygonMoments(rectangle(-3.0,4.0,h,w,angle));
+        assertEquals( angle - 0.5*Math.PI , mom.orientation() , TOL );
+    }
+
+    @Test
+    public void clockwiseRectangle() {
+        PackedPolygon ccw = rectangle(1.0,2.0,4.0,3.0,0.3);
+        PackedPolygon cw = new PackedPolygon();
+        for ( int i=ccw.size()-1 ; i>=0 ; i-- ) { cw.add(ccw.getX(i),ccw.getY(i)); }
+        PolygonMoments m1 = new PolygonMoments(ccw);
+        PolygonMoments m2 = new PolygonMoments(cw);
+        assertTrue(m2.isClockwise());
+        assertEquals( -m1.getSignedArea() , m2.getSignedArea() , TOL );
+        assertEquals( m1.getCentroidX() , m2.getCentroidX() , TOL );
+        assertEquals( m1.getCentroidY() , m2.getCentroidY() , TOL );
+        assertEquals( m1.majorAxis() , m2.majorAxis() , TOL );
+        assertEquals( m1.minorAxis() , m2.minorAxis() , TOL );
+        assertEquals( m1.orientation() , m2.orientation() , TOL );
+    }
+
+    @Test
+    public void ellipse() {
+        // The ellipse with the same second moments as an ellipse is the ellipse itself:
+        double a = 50.0, b = 30.0, angle = -1.2;
+        int n = 20000;
+        PackedPolygon poly = new PackedPolygon(n);
+        double c = Math.cos(angle), s = Math.sin(angle);
+        for ( int i=0 ; i<n ; i++ ) {
+            double t = 2.0*Math.PI*i/n;
+            double x = a*Math.cos(t);
+            double y = b*Math.sin(t);
+            poly.add( 100.0 + c*x - s*y , 200.0 + s*x + c*y );
+        }
+        PolygonMoments mom = new PolygonMoments(poly);
+        double tol = 1.0e-4;
+        assertEquals( Math.PI*a*b , mom.getArea() , tol*Math.PI*a*b );
+        assertEquals( 100.0 , mom.getCentroidX() , tol );
+        assertEquals( 200.0 , mom.getCentroidY() , tol );
+        assertEquals( 2.0*a , mom.majorAxis() , tol*a );
+        assertEquals( 2.0*b , mom.minorAxis() , tol*b );
+        assertEquals( angle , mom.orientation() , tol );
+        assertEquals( Math.sqrt(1.0-b*b/(a*a)) , mom.eccentricity() , tol );
+        assertEquals( Math.sqrt((a*a+b*b)/4.0) , mom.radiusOfGyration() , tol*a );
+    }
+
+    @Test
+    public void circle() {
+        int n = 1000;
+        PackedPolygon poly = new PackedPolygon(n);
+        for ( int i=0 ; i<n ; i++ ) {
+            double t = 2.0*Math.PI*i/n;
+            poly.add( 10.0*Math.cos(t) , 10.0*Math.sin(t) );
+        }
+        PolygonMoments mom = new PolygonMoments(poly);
+        assertEquals( 0.0 , mom.eccentricity() , 1.0e-6 );
+        assertEquals( mom.majorAxis() , mom.minorAxis() , 1.0e-9 );
+    }
+
+    @Test
+    public void empty() {
+        PolygonMoments mom = new PolygonMoments(new PackedPolygon());
+        assertEquals( 0.0 , mom.getArea() , 0.0 );
+        assertEquals( 0.0 , mom.eccentricity() , 0.0 );
+        assertEquals( 0.0 , mom.majorAxis() , 0.0 );
+    }
+
+    /** Returns a counterclockwise rectangle with its first side rotated from the x axis. */
+    private static PackedPolygon rectangle(double xc, double yc, double w, double h, double angle) {
+        double c = Math.cos(angle), s = Math.sin(angle);
+        double[] xs = { -0.5*w , 0.5*w , 0.5*w , -0.5*w };
+        double[] ys = { -0.5*h , -0.5*h , 0.5*h , 0.5*h };
+        PackedPolygon poly = new PackedPolygon(4);
+        for ( int i=0 ; i<4 ; i++ ) {
+            poly.add( xc + c*xs[i] - s*ys[i] , yc + s*xs[i] + c*ys[i] );
+        }
+        return poly;
+    }
+
+}
@@ -0,0 +1,159 @@
+package jmorph.images;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import javax.imageio.ImageIO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests the least recently used eviction and the pinning of displayed renditions.
+ * @author Peter Lelievre
+ */
+public class ImageCacheTest {
+
+    private static final int SIZE = 64; // the width and height of the test images
+
+    private File dir; // temporary directory holding the test images
+    private File a, b, c; // the test images
+    private ImageCache cache;
+    private long bytes; // the number of bytes in one full-resolution rendition
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("ImageCacheTest").toFile();
+        a = writeImage("a.png",0xFF0000);
+        b = writeImage("b.png",0x00FF00);
+        c = writeImage("c.png",0x0000FF);
+        cache = new ImageCache();
+        cache.setOffHeapThreshold(Long.MAX_VALUE);
+        assertNotNull( cache.get(a) );
+        bytes = cache.getBytes();
+        assertTrue( bytes>0 );
+        cache.clear();
+        cache.resetCounters();
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : new File[]{a,b,c}) {
+            if (f!=null) { f.delete(); }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        cache.setBudget(2*bytes);
+        cache.get(a);
+        cache.get(b);
+        cache.get(a); // a is now more recent than b
+        cache.get(c);
+        assertTrue( cache.contains(a) );
+        assertFalse( cache.contains(b) );
+        assertTrue( cache.contains(c) );
+        assertEquals( 2*bytes , cache.getBytes() );
+        assertEquals( 1 , cache.getHits() );
+        assertEquals( 3 , cache.getMisses() );
+        assertEquals( 1 , cache.getEvictions() );
+        // Lowering the budget evicts down to the most recent:
+        cache.setBudget(bytes);
+        assertFalse( cache.contains(a) );
+        assertTrue( cache.contains(c) );
+        assertEquals( bytes , cache.getBytes() );
+    }
+
+    @Test
+    public void keepsMostRecentWithNoBudget() {
+        cache.setBudget(ImageCache.NO_BUDGET);
+        BufferedImage image = cache.get(a);
+        assertTrue( cache.contains(a) );
+        assertSame( image , cache.get(a) );
+        cache.get(b);
+        assertFalse( cache.contains(a) );
+        assertTrue( cache.contains(b) );
+        assertEquals( 1 , cache.getCount() );
+    }
+
+    @Test
+    public void keepsPinnedRenditions() {
+        cache.setBudget(ImageCache.NO_BUDGET);
+        cache.setCurrent(a);
+        cache.beginDisplay();
+        cache.get(a);
+        cache.endDisplay();
+        cache.get(b);
+        cache.get(c);
+        assertTrue( cache.contains(a) ); // pinned by the display request
+        assertFalse( cache.contains(b) );
+        assertTrue( cache.contains(c) ); // most recent
+        // A later display request replaces the pinned renditions:
+        cache.beginDisplay();
+        cache.get(c);
+        cache.endDisplay();
+        assertFalse( cache.contains(a) );
+        assertTrue( cache.contains(c) );
+    }
+
+    @Test
+    public void changingCurrentFileReleasesPins() {
+        cache.setBudget(ImageCache.NO_BUDGET);
+        cache.setCurrent(a);
+        cache.beginDisplay();
+        cache.get(a);
+        cache.endDisplay();
+        cache.get(b);
+        assertTrue( cache.contains(a) );
+        cache.setCurrent(a); // same file so still pinned
+        assertTrue( cache.contains(a) );
+        cache.setCurrent(b);
+        assertFalse( cache.contains(a) );
+        assertTrue( cache.contains(b) );
+    }
+
+    @Test
+    public void pinsOnlyOnRequestingThread() throws InterruptedException {
+        cache.setBudget(ImageCache.NO_BUDGET);
+        cache.beginDisplay();
+        Thread other = new Thread( () -> cache.get(b) ); // e.g. a prefetch while the display request is in progress
+        other.start();
+        other.join();
+        cache.get(a);
+        cache.endDisplay();
+        cache.get(c);
+        assertTrue( cache.contains(a) );
+        assertFalse( cache.contains(b) );
+    }
+
+    @Test
+    public void storedRenditionSatisfiesLowerResolutionRequests() {
+        cache.get(a);
+        DisplayImage di = cache.getDisplay(a,2,new Rectangle(8,8,16,16));
+        assertTrue( di.isFullResolution() );
+        assertEquals( 1 , cache.getHits() );
+        assertEquals( 1 , cache.getMisses() );
+        assertEquals( 1 , cache.getCount() );
+        cache.remove(a);
+        assertFalse( cache.contains(a) );
+        assertEquals( 0 , cache.getBytes() );
+    }
+
+    private File writeImage(String name, int rgb) throws IOException {
+        BufferedImage image = new BufferedImage(SIZE,SIZE,BufferedImage.TYPE_INT_RGB);
+        for ( int y=0 ; y<SIZE ; y++ ) {
+            for ( int x=0 ; x<SIZE ; x++ ) { image.setRGB(x,y,rgb^(x*y)); }
+        }
+        File file = new File(dir,name);
+        ImageIO.write(image,"png",file);
+        return file;
+    }
+
+}
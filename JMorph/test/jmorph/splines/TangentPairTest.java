@@ -0,0 +1,108 @@
+package jmorph.splines;
+
+import static org.junit.Assert.assertEquals;
+import geometry.MyPoint2D;
+import jmorph.geometry.PackedPolygon;
+import jmorph.geometry.PolygonMoments;
+import org.junit.Test;
+
+/** Tests the exact spline area integrals against polygons.
+ * @author Peter Lelievre
+ */
+public class TangentPairTest {
+
+    // A closed outline (counterclockwise) and some tangents at its knots:
+    private static final double[][] KNOTS = { {0.0,0.0} , {40.0,-5.0} , {60.0,30.0} , {25.0,50.0} , {-10.0,25.0} };
+
+    @Test
+    public void straightSegmentsMatchPolygon() {
+        // With tangents along the chords each segment is a straight line so the integrals are those of the polygon:
+        int n = KNOTS.length;
+        PackedPolygon knots = knots();
+        PackedPolygon tangents = new PackedPolygon(n);
+        for ( int j=0 ; j<n ; j++ ) {
+            int j2 = (j+1) % n;
+            tangents.add( KNOTS[j2][0]-KNOTS[j][0] , KNOTS[j2][1]-KNOTS[j][1] );
+        }
+        double[] sums = new double[6];
+        for ( int j=0 ; j<n ; j++ ) {
+            // The tangent at both ends of a segment is along its chord:
+            MyPoint2D t = tangents.get(j);
+            new TangentPair( knots.get(j) , knots.get((j+1)%n) , t , t ).addAreaIntegrals(KNOTS[0][0],KNOTS[0][1],sums);
+        }
+        assertMatches( new PolygonMoments(knots) , moments(sums) , 1.0e-9 );
+    }
+
+    @Test
+    public void curvedSegmentsMatchDensePolygon() {
+        // Use Catmull-Rom tangents so the segments are curved:
+        int n = KNOTS.length;
+        PackedPolygon knots = knots();
+        PackedPolygon tangents = new PackedPolygon(n);
+        for ( int j=0 ; j<n ; j++ ) {
+            int jp = (j+1) % n;
+            int jm = (j+n-1) % n;
+            tangents.add( 0.5*(KNOTS[jp][0]-KNOTS[jm][0]) , 0.5*(KNOTS[jp][1]-KNOTS[jm][1]) );
+        }
+        double x0 = 7.0, y0 = -3.0; // the result should not depend on the origin
+        double[] sums = new double[6];
+        PackedPolygon dense = new PackedPolygon();
+        int m = 4000; // points per segment
+        for ( int j=0 ; j<n ; j++ ) {
+            TangentPair tpair = new TangentPair(knots,tangents,j,(j+1)%n);
+            tpair.addAreaIntegrals(x0,y0,sums);
+            for ( int k=0 ; k<m ; k++ ) {
+                dense.add(tpair.interpolatePoint((double)k/m));
+            }
+        }
+        assertMatches( new PolygonMoments(dense) , moments(x0,y0,sums) , 1.0e-5 );
+    }
+
+    @Test
+    public void reversedOutlineNegatesArea() {
+        int n = KNOTS.length;
+        PackedPolygon knots = knots();
+        PackedPolygon tangents = new PackedPolygon(n);
+        for ( int j=0 ; j<n ; j++ ) { tangents.add( 5.0*(j%2) , -3.0 ); }
+        double[] forward = new double[6];
+        double[] backward = new double[6];
+        for ( int j=0 ; j<n ; j++ ) {
+            int j2 = (j+1) % n;
+            new TangentPair(knots,tangents,j,j2).addAreaIntegrals(0.0,0.0,forward);
+            // The same curve traversed in the opposite direction has negated tangents:
+            MyPoint2D t1 = tangents.get(j2);
+            MyPoint2D t2 = tangents.get(j);
+            new TangentPair( knots.get(j2) , knots.get(j) , new MyPoint2D(-t1.getX(),-t1.getY()) , new MyPoint2D(-t2.getX(),-t2.getY()) )
+                    .addAreaIntegrals(0.0,0.0,backward);
+        }
+        for ( int i=0 ; i<6 ; i++ ) {
+            assertEquals( -forward[i] , backward[i] , 1.0e-9*Math.abs(forward[i]) );
+        }
+    }
+
+    private static PackedPolygon knots() {
+        PackedPolygon knots = new PackedPolygon(KNOTS.length);
+        for (double[] k : KNOTS) { knots.add(k[0],k[1]); }
+        return knots;
+    }
+
+    private static PolygonMoments moments(double[] sums) {
+        return moments(KNOTS[0][0],KNOTS[0][1],sums);
+    }
+
+    private static PolygonMoments moments(double x0, double y0, double[] sums) {
+        return new PolygonMoments( x0, y0, sums[0], sums[1], sums[2], sums[3], sums[4], sums[5] );
+    }
+
+    /** Checks two sets of moments agree to within a relative tolerance. */
+    private static void assertMatches(PolygonMoments expected, PolygonMoments actual, double tol) {
+        double size = Math.sqrt(expected.getArea());
+        assertEquals( expected.getSignedArea() , actual.getSignedArea() , tol*expected.getArea() );
+        assertEquals( expected.getCentroidX() , actual.getCentroidX() , tol*size );
+        assertEquals( expected.getCentroidY() , actual.getCentroidY() , tol*size );
+        assertEquals( expected.majorAxis() , actual.majorAxis() , tol*size );
+        assertEquals( expected.minorAxis() , actual.minorAxis() , tol*size );
+        assertEquals( expected.orientation() , actual.orientation() , tol );
+    }
+
+}